@@ -0,0 +1,148 @@
+package com.araujo.jordan.wearrow;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+
+import java.util.List;
+
+/**
+ * {@link LocationSource} on the FusedLocationProviderApi of Play services. The GPS flag of the
+ * request asks for high accuracy, the network one for balanced power, the passive one alone for
+ * no power. Batching, the request wait goes to {@code setMaxWaitTime}, so the fixes of a few
+ * minutes wake the handheld once.
+ * <p/>
+ * The client must have the LocationServices API. The updates are requested when it connects,
+ * and again when it reconnects. The source only listens to the client while started, so a
+ * replaced source is not kept nor told by it.
+ * <p/>
+ * The fused api doesn't tell when the user turns a provider off, so while started the source
+ * watches the providers of the LocationManager and tells the listener when the GPS or the
+ * network of the request is turned off, like the LocationManager does.
+ */
+public class FusedLocationSource implements LocationSource, GoogleApiClient.ConnectionCallbacks {
+
+    private final Context context;
+    private final GoogleApiClient googleApiClient;
+    private final LocationManager locationManager; //only to know if the user turned the location off
+    private final boolean isBatching;
+    private final PositionRecord fix = new PositionRecord();
+
+    private LocationRequest locationRequest; //null when stopped
+    private boolean isGps, isNetwork; //of the request
+    private boolean isGpsEnabled, isNetworkEnabled;
+    private Looper looper;
+    private Listener listener;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(LocationResult result) {
+            List<Location> locations = result.getLocations();
+            for (int i = 0; i < locations.size(); i++) {
+                Location location = locations.get(i);
+                LocationManagerSource.toPositionRecord(location, fix);
+                listener.onLocation(fix, location.getProvider(), locations.size() - 1 - i);
+            }
+        }
+    };
+
+    private final BroadcastReceiver providersChanged = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onProvidersChanged();
+        }
+    };
+
+    /**
+     * @param isBatching false delivers every fix at once, whatever the request wait
+     */
+    public FusedLocationSource(Context context, GoogleApiClient googleApiClient, boolean isBatching) {
+        this.context = context.getApplicationContext();
+        this.googleApiClient = googleApiClient;
+        this.isBatching = isBatching;
+        locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    @Override
+    public boolean start(ProviderPolicy.Request request, Listener listener) {
+        if (locationRequest == null)
+            context.registerReceiver(providersChanged, new IntentFilter(LocationManager.PROVIDERS_CHANGED_ACTION));
+        this.listener = listener;
+        looper = Looper.myLooper();
+        isGps = request.gps;
+        isNetwork = request.network;
+        isGpsEnabled = locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER);
+        isNetworkEnabled = locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER);
+        locationRequest = LocationRequest.create()
+                .setPriority(getPriority(request))
+                .setInterval(request.minTimeMillis)
+                .setFastestInterval(request.minTimeMillis)
+                .setSmallestDisplacement(request.minDistance)
+                .setMaxWaitTime(isBatching ? request.maxWaitMillis : 0);
+        if (!googleApiClient.isConnectionCallbacksRegistered(this))
+            googleApiClient.registerConnectionCallbacks(this); //calls onConnected at once if connected
+        else if (googleApiClient.isConnected())
+            requestUpdates(); //a new request while started
+        return isGpsEnabled || isNetworkEnabled;
+    }
+
+    /**
+     * Tell the listener about a provider of the request that was just turned off
+     */
+    private void onProvidersChanged() {
+        if (locationRequest == null)
+            return;
+        boolean wasGpsEnabled = isGpsEnabled, wasNetworkEnabled = isNetworkEnabled;
+        isGpsEnabled = locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER);
+        isNetworkEnabled = locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER);
+        if (isGps && wasGpsEnabled && !isGpsEnabled)
+            listener.onProviderDisabled(LocationManager.GPS_PROVIDER);
+        else if (isNetwork && wasNetworkEnabled && !isNetworkEnabled)
+            listener.onProviderDisabled(LocationManager.NETWORK_PROVIDER);
+    }
+
+    private static int getPriority(ProviderPolicy.Request request) {
+        if (request.gps)
+            return LocationRequest.PRIORITY_HIGH_ACCURACY;
+        if (request.network)
+            return LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+        return LocationRequest.PRIORITY_NO_POWER;
+    }
+
+    private void requestUpdates() {
+        LocationServices.FusedLocationApi.requestLocationUpdates(googleApiClient, locationRequest,
+                locationCallback, looper);
+    }
+
+    @Override
+    public void stop() {
+        if (locationRequest != null)
+            context.unregisterReceiver(providersChanged);
+        locationRequest = null;
+        googleApiClient.unregisterConnectionCallbacks(this);
+        if (googleApiClient.isConnected())
+            LocationServices.FusedLocationApi.removeLocationUpdates(googleApiClient, locationCallback);
+    }
+
+    @Override
+    public void onConnected(Bundle bundle) {
+        if (locationRequest != null)
+            requestUpdates();
+    }
+
+    @Override
+    public void onConnectionSuspended(int i) {
+
+    }
+}
@@ -0,0 +1,80 @@
+package com.araujo.jordan.wearrow;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.util.Log;
+
+/**
+ * {@link LocationSource} on the platform LocationManager, one provider per flag of the request,
+ * as a {@link ProviderSelector} picks them. It delivers every fix alone, the request wait is
+ * ignored.
+ */
+public class LocationManagerSource implements LocationSource, LocationListener, ProviderSelector.Providers {
+
+    private final LocationManager locationManager;
+    private final PositionRecord fix = new PositionRecord();
+    private Listener listener;
+
+    public LocationManagerSource(Context context) {
+        locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    /**
+     * Register the providers of the request that are enabled. If none is, the GPS or the
+     * network, whichever is.
+     */
+    @Override
+    public boolean start(ProviderPolicy.Request request, Listener listener) {
+        this.listener = listener;
+        locationManager.removeUpdates(this);
+        return ProviderSelector.register(request, this);
+    }
+
+    @Override
+    public boolean isEnabled(String provider) {
+        return locationManager.isProviderEnabled(provider);
+    }
+
+    @Override
+    public void requestUpdates(String provider, ProviderPolicy.Request request) {
+        locationManager.requestLocationUpdates(provider, request.minTimeMillis, request.minDistance, this);
+    }
+
+    @Override
+    public void stop() {
+        locationManager.removeUpdates(this);
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        toPositionRecord(location, fix);
+        listener.onLocation(fix, location.getProvider(), 0);
+    }
+
+    /**
+     * Copy the position, and the speed and bearing when it has both, of the location
+     */
+    static void toPositionRecord(Location location, PositionRecord out) {
+        out.set(location.getLatitude(), location.getLongitude(), location.getTime(), location.getAccuracy());
+        if (location.hasSpeed() && location.hasBearing())
+            out.setMotion(location.getSpeed(), location.getBearing());
+    }
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras) {
+        Log.v("ARAUJOJORDAN", "Alterando provedor: " + provider + " " + status);
+    }
+
+    @Override
+    public void onProviderEnabled(String provider) {
+        Log.v("ARAUJOJORDAN", "Ativando provedor: " + provider);
+    }
+
+    @Override
+    public void onProviderDisabled(String provider) {
+        listener.onProviderDisabled(provider);
+    }
+}
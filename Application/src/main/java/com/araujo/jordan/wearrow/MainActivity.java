@@ -20,11 +20,14 @@ import android.app.ActionBar;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.IntentSender;
+import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -33,20 +36,14 @@ import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.GoogleApiClient.ConnectionCallbacks;
 import com.google.android.gms.common.api.GoogleApiClient.OnConnectionFailedListener;
-import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.MessageApi;
-import com.google.android.gms.wearable.MessageApi.SendMessageResult;
 import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.NodeApi;
 import com.google.android.gms.wearable.Wearable;
 
-import java.nio.ByteBuffer;
-import java.util.Collection;
-import java.util.HashSet;
-
 public class MainActivity extends Activity implements DataApi.DataListener,
         MessageApi.MessageListener, NodeApi.NodeListener, ConnectionCallbacks,
         OnConnectionFailedListener {
@@ -57,18 +54,26 @@ public class MainActivity extends Activity implements DataApi.DataListener,
      * Request code for launching the Intent to resolve Google Play services errors.
      */
     private static final int REQUEST_RESOLVE_ERROR = 1000;
-    private static final String START_ACTIVITY_PATH = "/start-activity";
+
+    private static final String PREFERENCES = "wearrow";
+    private static final String PREFERENCE_PROXIMITY_MODE = "proximityMode";
 
     private GoogleApiClient mGoogleApiClient;
     private RotationArrow mRotationArrow;
+    private TransportExecutor mTransportExecutor; //the one thread that talks to the wear
+    private NodeRegistry mNodeRegistry; //the connected wear nodes
+    private PositionTransport mTransport;
 
     private LatLng mLatLng;
+    private volatile boolean mIsProximityMode; //read by the transport thread
     private ImageView arrowImg;
     private TextView arrowText;
 
     @Override
     public void onCreate(Bundle b) {
         super.onCreate(b);
+        mTransportExecutor = new TransportExecutor();
+        mNodeRegistry = new NodeRegistry();
         setContentView(R.layout.main_activity);
         setupViews();
 
@@ -87,6 +92,7 @@ public class MainActivity extends Activity implements DataApi.DataListener,
                 .addConnectionCallbacks(this)
                 .addOnConnectionFailedListener(this)
                 .build();
+        mTransport = new WearablePositionTransport(mGoogleApiClient, mNodeRegistry);
     }
 
     @Override
@@ -114,6 +120,35 @@ public class MainActivity extends Activity implements DataApi.DataListener,
         mGoogleApiClient.disconnect();
         if(mRotationArrow != null)
             mRotationArrow.stop();
+        mTransportExecutor.shutdown(); //after the stop signal queued by the arrow
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main_activity, menu);
+        menu.findItem(R.id.proximityMode).setChecked(mIsProximityMode);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() != R.id.proximityMode)
+            return super.onOptionsItemSelected(item);
+        item.setChecked(!item.isChecked());
+        getSharedPreferences(PREFERENCES, MODE_PRIVATE).edit()
+                .putBoolean(PREFERENCE_PROXIMITY_MODE, item.isChecked()).apply();
+        setProximityMode(item.isChecked());
+        onStartWearableActivity(); //the wear takes the mode with the destination
+        return true;
+    }
+
+    /**
+     * Opt-in, far from the destination the sensors of both devices sleep, see
+     * {@link ProximityGeofence}
+     */
+    private void setProximityMode(boolean isProximityMode) {
+        mIsProximityMode = isProximityMode;
+        mRotationArrow.setProximityMode(isProximityMode, ProximityGeofence.DEFAULT_WAKE_DISTANCE);
     }
 
     @Override //ConnectionCallbacks
@@ -123,7 +158,14 @@ public class MainActivity extends Activity implements DataApi.DataListener,
         Wearable.MessageApi.addListener(mGoogleApiClient, this);
         Wearable.NodeApi.addListener(mGoogleApiClient, this);
 
-        onStartWearableActivity();
+        final NodeSource nodeSource = new WearableNodeSource(mGoogleApiClient);
+        mTransportExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mNodeRegistry.refresh(nodeSource);
+            }
+        });
+        onStartWearableActivity(); //queued after the refresh
     }
 
     @Override //ConnectionCallbacks
@@ -161,6 +203,8 @@ public class MainActivity extends Activity implements DataApi.DataListener,
     @Override //NodeListener
     public void onPeerConnected(final Node peer) {
         LOGD(TAG, "onPeerConnected: " + peer);
+        mNodeRegistry.onPeerConnected(peer.getId());
+        mRotationArrow.resetPositionStream();
         onStartWearableActivity();
 
     }
@@ -168,41 +212,25 @@ public class MainActivity extends Activity implements DataApi.DataListener,
     @Override //NodeListener
     public void onPeerDisconnected(final Node peer) {
         LOGD(TAG, "onPeerDisconnected: " + peer);
+        mNodeRegistry.onPeerDisconnected(peer.getId());
     }
 
-    private Collection<String> getNodes() {
-        HashSet<String> results = new HashSet<>();
-        NodeApi.GetConnectedNodesResult nodes =
-                Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).await();
-
-        for (Node node : nodes.getNodes()) {
-            results.add(node.getId());
-        }
-
-        return results;
-    }
-
-    private void sendStartActivityMessage(String node) {
+    /**
+     * Runs on the transport thread
+     */
+    private void sendStartActivityMessage() {
 
         Log.e(TAG, "OPEN ACT ON WEAR");
 
 
-        double[] location = new double[2];
+        double[] location = new double[mIsProximityMode ? 3 : 2];
         location[0] = mLatLng.latitude;
         location[1] = mLatLng.longitude;
+        if (mIsProximityMode)
+            location[2] = ProximityGeofence.DEFAULT_WAKE_DISTANCE;
 
-        Wearable.MessageApi.sendMessage(
-                mGoogleApiClient, node, START_ACTIVITY_PATH, toByteArray(location))
-                .setResultCallback(new ResultCallback<SendMessageResult>() {
-                                       @Override
-                                       public void onResult(SendMessageResult sendMessageResult) {
-                                           if (!sendMessageResult.getStatus().isSuccess()) {
-                                               Log.e(TAG, "Failed to send message with status code: "
-                                                       + sendMessageResult.getStatus().getStatusCode());
-                                           }
-                                       }
-                                   }
-                );
+        mRotationArrow.resetPositionStream(); //a relaunched wear activity starts without a key frame
+        mTransport.send(PositionTransport.PATH_START_ACTIVITY, PositionCodec.toByteArray(location));
     }
 
     /**
@@ -210,15 +238,12 @@ public class MainActivity extends Activity implements DataApi.DataListener,
      */
     public void onStartWearableActivity() {
         if (mGoogleApiClient.isConnected())
-            new Thread(new Runnable() {
+            mTransportExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
-                    Collection<String> nodes = getNodes();
-                    for (String node : nodes) {
-                        sendStartActivityMessage(node);
-                    }
+                    sendStartActivityMessage();
                 }
-            }).start();
+            });
     }
 
     /**
@@ -230,7 +255,16 @@ public class MainActivity extends Activity implements DataApi.DataListener,
 
         mLatLng = getPointLocationFromIntent();
 
-        mRotationArrow = new RotationArrow(arrowImg, arrowText, mLatLng, this);
+        mRotationArrow = new RotationArrow(arrowImg, arrowText, mLatLng, this, mTransportExecutor, mNodeRegistry);
+        mRotationArrow.setOnProximityListener(new RotationArrow.OnProximityListener() {
+            @Override
+            public void onProximityChanged(boolean isDormant) {
+                if (!isDormant)
+                    onStartWearableActivity(); //the wear screen may have slept, closing the arrow there
+            }
+        });
+        SharedPreferences preferences = getSharedPreferences(PREFERENCES, MODE_PRIVATE);
+        setProximityMode(preferences.getBoolean(PREFERENCE_PROXIMITY_MODE, false));
         mRotationArrow.start();
     }
 
@@ -274,13 +308,4 @@ public class MainActivity extends Activity implements DataApi.DataListener,
         return returningPosition;
     }
 
-    public static byte[] toByteArray(double[] doubleArray) {
-        int times = Double.SIZE / Byte.SIZE;
-        byte[] bytes = new byte[doubleArray.length * times];
-        for (int i = 0; i < doubleArray.length; i++) {
-            ByteBuffer.wrap(bytes, i * times, times).putDouble(doubleArray[i]);
-        }
-        return bytes;
-    }
-
 }
@@ -6,19 +6,18 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
-import android.location.Location;
-import android.location.LocationListener;
-import android.location.LocationManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
-import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.MessageApi;
@@ -27,35 +26,50 @@ import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.NodeApi;
 import com.google.android.gms.wearable.Wearable;
 
-import java.nio.ByteBuffer;
-import java.util.Collection;
-import java.util.LinkedList;
-
 /**
  * Created by araujojordan on 18/05/15.
  */
 public class RotationArrow {
 
+    /**
+     * Told on the main thread when the proximity mode goes dormant or wakes up
+     */
+    public interface OnProximityListener {
+        void onProximityChanged(boolean isDormant);
+    }
+
     private JLocationListener jLocationListener;
     private JSensorEventListener jSensorEventListener;
 
-    private TextView textInfo; //The  text of distance (and loading text)
-    private ImageView arrowImg; //the arrow image (that rotate with setRotation method)
+    private ArrowRenderer arrowRenderer; //draws the arrow rotation and the distance text once per frame
 
-    private LatLng destinationLocation, userLocation;
+    private Navigation navigation; //user and destination positions, with the angle and distance between them
+
+    private DistanceFormatter distanceFormatter;
 
     private Activity act;
 
-    public RotationArrow(ImageView arrowImg, TextView textInfo, LatLng destinationLocation, Activity act) {
+    private TransportExecutor transportExecutor; //the thread that talks to the wear, shared with the activity
+    private NodeRegistry nodeRegistry; //the connected wear nodes, shared with the activity
+
+    private final ProximityGeofence proximityGeofence = new ProximityGeofence(); //far from the ring, sensors off
+    private boolean isProximityMode;
+    private OnProximityListener onProximityListener;
+
+    public RotationArrow(ImageView arrowImg, TextView textInfo, LatLng destinationLocation, Activity act,
+                         TransportExecutor transportExecutor, NodeRegistry nodeRegistry) {
         this.act = act;
-        this.arrowImg = arrowImg;
-        this.textInfo = textInfo;
+        this.transportExecutor = transportExecutor;
+        this.nodeRegistry = nodeRegistry;
+        arrowRenderer = new ArrowRenderer(arrowImg, textInfo);
+
+        distanceFormatter = new DistanceFormatter(act.getString(R.string.kilometer),
+                act.getString(R.string.meter), act.getString(R.string.distanceToClose), 0);
 
         jLocationListener = new JLocationListener(act);
         jSensorEventListener = new JSensorEventListener();
 
-        userLocation = new LatLng(0, 0); //Will change when GPS get user position
-        this.destinationLocation = destinationLocation;
+        navigation = new Navigation(destinationLocation);
     }
 
     public void start() {
@@ -66,88 +80,149 @@ public class RotationArrow {
     public void stop() {
         jSensorEventListener.stopUsingGiro();
         jLocationListener.stopUsingGPS();
+        arrowRenderer.stop();
     }
 
     /**
-     * Distance between 2 location on latitude and longitude.
+     * The next fix sent starts from a key frame, for a wear that connected or is being relaunched
+     */
+    public void resetPositionStream() {
+        jLocationListener.positionSender.reset();
+    }
+
+    public void setOnProximityListener(OnProximityListener onProximityListener) {
+        this.onProximityListener = onProximityListener;
+    }
+
+    /**
+     * Choose if, far from the destination, the heading sensors stop and the location is asked
+     * every few minutes, until the user nears a ring around it
      *
-     * @return an text indicating the distance in meters or in kilometers, if not initialized,
-     * it will disapear. If its < 5m it will show and message telling that is too close
-     * @author Jordan Junior
-     * @version 1.0
+     * @param wakeDistance radius of the ring, in kilometers, see {@link ProximityGeofence}
      */
-    private String getDistanceBetween2Points(LatLng p1, LatLng p2) {
-        if ((p1.latitude == 0 && p1.longitude == 0) || (p2.latitude == 0 && p2.longitude == 0)) {
-            if (arrowImg != null) {
-                arrowImg.setVisibility(View.GONE);
-            }
-            return act.getResources().getString(R.string.loading);
-        } else {
-            if (arrowImg != null) {
-                arrowImg.setVisibility(View.VISIBLE);
-            }
-        }
+    public void setProximityMode(boolean isProximityMode, double wakeDistance) {
+        boolean wasDormant = proximityGeofence.isDormant();
+        this.isProximityMode = isProximityMode;
+        proximityGeofence.setWakeDistance(wakeDistance);
+        proximityGeofence.start(SystemClock.elapsedRealtime()); //awake, the next fix decides again
+        jLocationListener.setProximityMode(isProximityMode);
+        if (wasDormant && jLocationListener.isRunning)
+            onProximityChanged();
+    }
 
-        final int R = 6371;
-        final double dLat = deg2rad(p2.latitude - p1.latitude);
-        final double dLon = deg2rad(p2.longitude - p1.longitude);
-        final double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(deg2rad(p1.latitude)) * Math.cos(deg2rad(p2.latitude)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        final double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Stop the heading sensors while dormant, the arrow is hidden, start them again on the wake
+     */
+    private void onProximityChanged() {
+        boolean isDormant = proximityGeofence.isDormant();
+        Log.v("ARAUJOJORDAN", isDormant ? "Longe do destino, sensores desligados" : "Perto do destino, sensores ligados");
+        if (isDormant)
+            jSensorEventListener.stopUsingGiro();
+        else
+            jSensorEventListener.startUsingGiro();
+        arrowRenderer.showText(getDistanceText());
+        if (onProximityListener != null)
+            onProximityListener.onProximityChanged(isDormant);
+    }
 
-        Log.e("ARAUJOJORDA", "Distance: " +R*c);
+    /**
+     * Choose where the heading of the arrow comes from. If the device doesn't have that sensor
+     * the next {@link HeadingSource} is used.
+     */
+    public void setHeadingSource(HeadingSource headingSource) {
+        jSensorEventListener.selectHeadingSource(headingSource);
+    }
 
-        return getMlOrKm(R * c);
+    /**
+     * Choose how the heading sensor rate follows the heading changes
+     */
+    public void setSamplingPolicy(SamplingPolicy policy) {
+        jSensorEventListener.setSamplingPolicy(policy);
     }
 
-    private String getMlOrKm(double d) {
-        String kil = act.getString(R.string.kilometer);
-        String met = act.getString(R.string.meter);
-        String toClose = act.getString(R.string.distanceToClose);
-
-        if (d < 1) {
-            int distance = (int) (d * 1000);
-            int CLOSE_DISTANCE = 5;
-//            if (distance < CLOSE_DISTANCE) {
-//                if (arrowImg != null) {
-//                    arrowImg.setVisibility(View.GONE);
-//                }
-//                return toClose;
-//            }
-            return distance + " " + met;
-        } else {
-            return ((int) (d)) + " " + kil; //in km
-        }
+    /**
+     * Choose how much the arrow angle is smoothed
+     *
+     * @param timeConstant how long, in seconds, the arrow takes to follow 63% of a turn
+     * @param deadband     smallest change, in degrees, that redraws the arrow
+     */
+    public void setHeadingSmoothing(float timeConstant, float deadband) {
+        jSensorEventListener.setHeadingSmoothing(timeConstant, deadband);
     }
 
     /**
-     * Simple conversion from degree to radian
+     * Choose how the positions are batched before going to the wear
      *
-     * @author Jordan Junior
-     * @version 1.0
+     * @param flushIntervalMillis longest a fix waits for its batch, 0 sends every fix alone
+     * @param maxBatchSize        fixes that make a batch be sent right away
+     */
+    public void setPositionBatching(long flushIntervalMillis, int maxBatchSize) {
+        jLocationListener.setPositionBatching(flushIntervalMillis, maxBatchSize);
+    }
+
+    /**
+     * Choose which location providers are used and how often, by default
+     * {@link ArrivalProviderPolicy}
+     */
+    public void setProviderPolicy(ProviderPolicy policy) {
+        jLocationListener.setProviderPolicy(policy);
+    }
+
+    /**
+     * Choose where the fixes come from, the LocationManager by default
+     *
+     * @param isFused    use the fused location provider of Play services
+     * @param isBatching let the fused provider deliver the fixes late and together, when the
+     *                   {@link ProviderPolicy} allows
+     */
+    public void setFusedLocation(boolean isFused, boolean isBatching) {
+        jLocationListener.setFusedLocation(isFused, isBatching);
+    }
+
+    /**
+     * Choose if the fixes are smoothed before the arrow and the wear get them
+     *
+     * @param accelerationNoise how much, in m/s^2, the velocity is expected to change, see
+     *                          {@link PositionFilter}
      */
-    private double deg2rad(double deg) {
-        return deg * (Math.PI / 180);
+    public void setPositionFiltering(boolean isFiltering, double accelerationNoise) {
+        jLocationListener.setFiltering(isFiltering, accelerationNoise);
     }
 
     /**
-     * Get the angle between the 2 points using pitagoras
+     * Choose which fixes are worth sending to the wear
      *
-     * @return the angle between the 2 points
+     * @param minIntervalMillis shortest time between two sent fixes
+     * @param arrowResolution   smallest arrow turn, in degrees, worth a fix
+     */
+    public void setForwarding(long minIntervalMillis, float arrowResolution) {
+        jLocationListener.setForwarding(minIntervalMillis, arrowResolution);
+    }
+
+    /**
+     * Choose if the wear gets every fix as messages or only the latest one as a DataItem
+     */
+    public void setSyncMode(SyncMode syncMode) {
+        jLocationListener.setSyncMode(syncMode);
+    }
+
+    /**
+     * Distance between the user and the destination.
+     *
+     * @return an text indicating the distance in meters or in kilometers, if not initialized,
+     * it will disapear.
      * @author Jordan Junior
      * @version 1.0
      */
-    private float getAngleBetween2Points(LatLng p1, LatLng p2) {
-        double deltaY = p2.latitude - p1.latitude;
-        double deltaX = p2.longitude - p1.longitude;
-        double result = (Math.atan2(deltaY, deltaX)) * (180 / Math.PI);
-        if (result < 0) {
-            Log.e("ARAUJOJORDA", "ANGLE: "+(180 + (180 + result)));
-            return (float) (180 + (180 + result));
-        }
-        Log.e("ARAUJOJORDA", "ANGLE: "+result);
-        return (float) result;
+    private String getDistanceText() {
+        if (!navigation.isKnown()) {
+            arrowRenderer.showArrow(false);
+            return act.getResources().getString(R.string.loading);
+        } else {
+            arrowRenderer.showArrow(!proximityGeofence.isDormant());
+        }
+
+        return distanceFormatter.getMlOrKm(navigation.getDistance());
     }
 
     /**
@@ -156,34 +231,65 @@ public class RotationArrow {
      * @author Jordan Junior
      * @version 1.0
      */
-    private class JLocationListener implements LocationListener, GoogleApiClient.ConnectionCallbacks,
+    private class JLocationListener implements LocationSource.Listener, GoogleApiClient.ConnectionCallbacks,
             GoogleApiClient.OnConnectionFailedListener, DataApi.DataListener, MessageApi.MessageListener,
             NodeApi.NodeListener {
 
         private final int TWO_MINUTES = 1000 * 60 * 2;
         private final Context mContext;
-        protected LocationManager locationManager;
-        private Location location;
-
-        private LinkedList<String> nodesid;
+        private LocationSource locationSource;
+        private final PositionRecord location = new PositionRecord(); //the last fix accepted, as it came
+        private String locationProvider;
+        private boolean hasLocation;
+
+        private final LocationBatch locationBatch = new LocationBatch(); //the newest fix of a batch, filtered
+        private final PositionFilter positionFilter = new PositionFilter(); //smooths the GPS noise out of the fixes
+        private final SpeedEstimator speedEstimator = new SpeedEstimator(); //for the network fixes, without a speed
+        private boolean isFiltering = true;
+        private ProviderPolicy providerPolicy = new ArrivalProviderPolicy();
+        private final ProviderStrategy providerStrategy = new ProviderStrategy(providerPolicy);
+        private final ForwardingPolicy forwardingPolicy = new ForwardingPolicy(); //skips the fixes the wear would not show
+        private PositionSender positionSender; //batches the fixes and sends them on the transport thread
+        private final Handler handler = new Handler();
+        private final Runnable flushPositions = new Runnable() {
+            @Override
+            public void run() {
+                flushPositions();
+            }
+        };
 
         private GoogleApiClient mGoogleApiClient;
+        private NodeSource nodeSource;
+        private final Runnable refreshNodes = new Runnable() {
+            @Override
+            public void run() {
+                nodeRegistry.refresh(nodeSource);
+            }
+        };
 
         private boolean isRunning;
 
         public JLocationListener(Activity act) {
             this.mContext = act;
-            locationManager = (LocationManager) mContext.getSystemService(Context.LOCATION_SERVICE);
+            locationSource = new LocationManagerSource(act);
             isRunning = false;
 
             mGoogleApiClient = new GoogleApiClient.Builder(act)
                     .addApi(Wearable.API)
+                    .addApi(LocationServices.API)
                     .addConnectionCallbacks(this)
                     .addOnConnectionFailedListener(this)
                     .build();
             mGoogleApiClient.connect();
-
-            nodesid = new LinkedList<>();
+            nodeSource = new WearableNodeSource(mGoogleApiClient);
+            positionSender = new PositionSender(new PositionBatcher(), transportExecutor,
+                    new WearablePositionTransport(mGoogleApiClient, nodeRegistry));
+            nodeRegistry.setOnConnectedListener(new NodeRegistry.OnConnectedListener() {
+                @Override
+                public void onConnected() {
+                    positionSender.reset(); //the wear has no key frame yet
+                }
+            });
         }
 
         /**
@@ -193,32 +299,28 @@ public class RotationArrow {
             if (!isRunning)
                 return;
 
-            if (locationManager != null) {
-                locationManager.removeUpdates(JLocationListener.this);
-            }
+            locationSource.stop();
             isRunning = false;
+            handler.removeCallbacks(flushPositions);
+            providerStrategy.stop(SystemClock.elapsedRealtime());
+            Log.v("ARAUJOJORDAN", "GPS ligado por " + providerStrategy.getGpsMillis() / 1000 + " s, "
+                    + providerStrategy.getChanges() + " trocas de provedor");
+            if (isProximityMode)
+                Log.v("ARAUJOJORDAN", "Modo de proximidade: " + proximityGeofence.getDormantMillis(
+                        SystemClock.elapsedRealtime()) / 1000 + " s dormindo, " + proximityGeofence.getWakes() + " despertares");
+            Log.v("ARAUJOJORDAN", "Pontos encaminhados: " + forwardingPolicy.getFixesForwarded() + ", "
+                    + forwardingPolicy.getFixesSuppressed() + " sem mudança visível");
+            PositionBatcher positionBatcher = positionSender.getBatcher();
+            synchronized (positionBatcher) {
+                Log.v("ARAUJOJORDAN", "Lotes enviados: " + positionBatcher.getBatchesSent() + " com "
+                        + positionBatcher.getFixesSent() + " pontos, " + positionBatcher.getFixesDropped() + " descartados");
+            }
+            Log.v("ARAUJOJORDAN", "Transporte: " + transportExecutor.getThreadsCreated() + " threads, fila maxima "
+                    + transportExecutor.getMaxQueueDepth() + ", " + transportExecutor.getStaleDropped() + " envios antigos descartados");
 
             if (mGoogleApiClient.isConnected()) {
                 Log.v("ARAUJOJORDAN", "GAC está ON, enviando sinal de parada...");
-                getNodes();
-
-                for (String node : nodesid) {
-                    Log.v("ARAUJOJORDAN", "Enviando para dispositivo " + node);
-                    Wearable.MessageApi.sendMessage(
-                            mGoogleApiClient, node, "/stop_sending_position",
-                            new byte[0]).setResultCallback(
-                            new ResultCallback<MessageApi.SendMessageResult>() {
-                                @Override
-                                public void onResult(MessageApi.SendMessageResult sendMessageResult) {
-                                    if (sendMessageResult.getStatus().isSuccess()) {
-                                        Log.v("ARAUJOJORDAN", "Sinal de parada enviado!");
-                                    } else
-                                        Log.v("ARAUJOJORDAN", "Falha no envio!");
-                                }
-                            }
-                    );
-                }
-
+                positionSender.sendStop();
             }
 
         }
@@ -228,135 +330,114 @@ public class RotationArrow {
             Log.v("ARAUJOJORDAN", "starting using gps");
 
             isRunning = true;
-            if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 0, 0, this);
-                Log.v("ARAUJOJORDAN", "GPS IS ON");
-            }
-            if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 0, 0, this);
-                return;
-            }
-            if (locationManager.isProviderEnabled(LocationManager.PASSIVE_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.PASSIVE_PROVIDER, 0, 0, this);
-                return;
-            }
-
-            Toast.makeText(act.getApplicationContext(), act.getResources().getString(R.string.noGpsFound), Toast.LENGTH_LONG).show();
+            positionSender.reset();
+            forwardingPolicy.reset();
+            positionFilter.reset();
+            speedEstimator.reset();
+            hasLocation = false;
+            locationBatch.reset();
+            proximityGeofence.start(SystemClock.elapsedRealtime());
+            if (!registerProviders(providerStrategy.start(SystemClock.elapsedRealtime())))
+                Toast.makeText(act.getApplicationContext(), act.getResources().getString(R.string.noGpsFound), Toast.LENGTH_LONG).show();
         }
 
         /**
-         * Function to get latitude
+         * @return false if no provider is enabled
          */
-        public double getLatitude() {
-            if (location != null) {
-                return location.getLatitude();
-            }
-            return 0.0;
+        private boolean registerProviders(ProviderPolicy.Request request) {
+            Log.v("ARAUJOJORDAN", "Provedores: " + request + ", a cada " + request.minTimeMillis + " ms");
+            return locationSource.start(request, this);
         }
 
         /**
-         * Function to get longitude
-         */
-        public double getLongitude() {
-            if (location != null) {
-                return location.getLongitude();
-            }
-            return 0.0;
-        }
-
-        /**
-         * Update the userLocation with the new location
+         * Update the user position with the new location. Of a batch every fix goes through the
+         * filter, only the newest one moves the arrow and goes to the wear.
          */
         @Override
-        public void onLocationChanged(Location newLocation) {
+        public void onLocation(PositionRecord newFix, String provider, int remaining) {
             Log.v("ARAUJOJORDAN", "Nova posicao do GPS");
-            if (isBetterLocation(newLocation, this.location)) {
-                this.location = newLocation;
-                userLocation = new LatLng(getLatitude(), getLongitude());
-                if (arrowImg != null) {
-                    textInfo.setText(getDistanceBetween2Points(userLocation, destinationLocation));
-                }
-
-                final double[] position = new double[2];
-                position[0] = newLocation.getLatitude();
-                position[1] = newLocation.getLongitude();
-
-                if (mGoogleApiClient.isConnected()) {
-                    Log.v("ARAUJOJORDAN", "GAC está ON, enviando ponto...");
-                    getNodes();
-
-                    new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            while (nodesid.isEmpty())
-                                try {
-                                    Thread.sleep(2000);
-                                    getNodes();
-                                } catch (InterruptedException e) {
-                                }
-                            sendPosition(position);
-
-                        }
-                    }).start();
+            //a fix the filter refuses, older than its last one, is dropped, not shown raw
+            if (isBetterLocation(newFix, provider) && (!isFiltering || positionFilter.update(newFix))) {
+                location.copyFrom(newFix);
+                locationProvider = provider;
+                hasLocation = true;
+                speedEstimator.onFix(newFix);
+
+                locationBatch.add(newFix);
+                if (isFiltering)
+                    positionFilter.getFiltered(locationBatch.getNewest());
+            }
+            if (!locationBatch.end(remaining))
+                return;
+            PositionRecord fix = locationBatch.getNewest();
+            navigation.setUserLocation(fix.latitude, fix.longitude);
+            arrowRenderer.showText(getDistanceText());
+            float speed = fix.hasMotion ? fix.speed : speedEstimator.getSpeed();
+            if (isProximityMode && proximityGeofence.onFix(navigation.getDistance(), speed,
+                    SystemClock.elapsedRealtime()))
+                onProximityChanged();
+            if (providerStrategy.onFix(navigation.getDistance(), speed, !nodeRegistry.isEmpty(),
+                    SystemClock.elapsedRealtime()))
+                registerProviders(providerStrategy.getRequest());
+
+            if (!forwardingPolicy.shouldForward(fix, navigation.getDistance()))
+                return;
 
-                }
+            long delay = positionSender.add(fix, SystemClock.elapsedRealtime());
+            handler.removeCallbacks(flushPositions);
+            if (delay == 0)
+                flushPositions();
+            else
+                handler.postDelayed(flushPositions, delay);
+        }
 
-            }
+        public void setPositionBatching(long flushIntervalMillis, int maxBatchSize) {
+            positionSender.setBatching(flushIntervalMillis, maxBatchSize);
         }
 
-        private void sendPosition(double[] position) {
-            for (String node : nodesid) {
-                Log.v("ARAUJOJORDAN", "Enviando para dispositivo " + node);
-                Wearable.MessageApi.sendMessage(
-                        mGoogleApiClient, node, "/gps_from_handheld",
-                        toByteArray(position)).setResultCallback(
-                        new ResultCallback<MessageApi.SendMessageResult>() {
-                            @Override
-                            public void onResult(MessageApi.SendMessageResult sendMessageResult) {
-                                if (sendMessageResult.getStatus().isSuccess()) {
-                                    Log.v("ARAUJOJORDAN", "Ponto enviado!");
-                                } else
-                                    Log.v("ARAUJOJORDAN", "Ponto NÃO enviado!");
-                            }
-                        }
-                );
-            }
+        public void setFusedLocation(boolean isFused, boolean isBatching) {
+            if (isRunning)
+                locationSource.stop();
+            locationSource = isFused ? new FusedLocationSource(act, mGoogleApiClient, isBatching)
+                    : new LocationManagerSource(act);
+            if (isRunning)
+                registerProviders(providerStrategy.getRequest());
         }
 
-        private Collection<String> getNodes() {
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    LinkedList<String> lnodes = new LinkedList<String>();
-                    NodeApi.GetConnectedNodesResult nodes =
-                            Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).await();
-                    for (Node node : nodes.getNodes())
-                        lnodes.add(node.getId());
-                    nodesid = lnodes;
-                }
-            }).start();
-            return nodesid;
+        public void setProviderPolicy(ProviderPolicy policy) {
+            providerPolicy = policy;
+            setProximityMode(isProximityMode);
         }
 
+        public void setProximityMode(boolean isProximityMode) {
+            providerStrategy.setPolicy(isProximityMode
+                    ? new GeofenceProviderPolicy(providerPolicy, proximityGeofence) : providerPolicy);
+        }
 
-        public byte[] toByteArray(double[] doubleArray) {
-            int times = Double.SIZE / Byte.SIZE;
-            byte[] bytes = new byte[doubleArray.length * times];
-            for (int i = 0; i < doubleArray.length; i++) {
-                ByteBuffer.wrap(bytes, i * times, times).putDouble(doubleArray[i]);
-            }
-            return bytes;
+        public void setFiltering(boolean isFiltering, double accelerationNoise) {
+            this.isFiltering = isFiltering;
+            positionFilter.setAccelerationNoise(accelerationNoise);
+            positionFilter.reset();
         }
 
+        public void setForwarding(long minIntervalMillis, float arrowResolution) {
+            forwardingPolicy.setThresholds(minIntervalMillis, arrowResolution);
+        }
 
-        @Override
-        public void onStatusChanged(String provider, int status, Bundle extras) {
-            Log.v("ARAUJOJORDAN", "Alterando provedor: " + provider + " " + status);
+        public void setSyncMode(SyncMode syncMode) {
+            positionSender.setSyncMode(syncMode);
         }
 
-        @Override
-        public void onProviderEnabled(String provider) {
-            Log.v("ARAUJOJORDAN", "Ativando provedor: " + provider);
+        /**
+         * Send the queued fixes to the wear as one message. If a send is still waiting for the
+         * transport thread this one is dropped, that send takes the new fixes too.
+         */
+        private void flushPositions() {
+            if (!mGoogleApiClient.isConnected())
+                return; //kept in the batcher until the next fix
+
+            Log.v("ARAUJOJORDAN", "GAC está ON, enviando pontos...");
+            positionSender.flush();
         }
 
         @Override
@@ -368,18 +449,15 @@ public class RotationArrow {
         /**
          * Determines whether one Location reading is better than the current Location fix
          *
-         * @param newLoc The new Location that you want to evaluate
-         * @param oldLoc The current Location fix, to which you want to compare the new one
+         * @param newLoc   The new Location that you want to evaluate
+         * @param provider Where the new Location came from
          */
-        protected boolean isBetterLocation(Location newLoc, Location oldLoc) {
-            if (oldLoc == null) {
+        protected boolean isBetterLocation(PositionRecord newLoc, String provider) {
+            if (!hasLocation) {
                 return true;
             }
-            if (newLoc == null) {
-                return false;
-            }
 
-            long timeDelta = newLoc.getTime() - oldLoc.getTime();
+            long timeDelta = newLoc.timeMillis - location.timeMillis;
             boolean isSignificantlyNewer = timeDelta > TWO_MINUTES;
             boolean isSignificantlyOlder = timeDelta < -TWO_MINUTES;
             boolean isNewer = timeDelta > 0;
@@ -389,12 +467,11 @@ public class RotationArrow {
             } else if (isSignificantlyOlder) {
                 return false;
             }
-            int accuracyDelta = (int) (newLoc.getAccuracy() - oldLoc.getAccuracy());
+            int accuracyDelta = (int) (newLoc.accuracy - location.accuracy);
             boolean isLessAccurate = accuracyDelta > 0;
             boolean isMoreAccurate = accuracyDelta < 0;
             boolean isSignificantlyLessAccurate = accuracyDelta > 200;
-            boolean isFromSameProvider = isSameProvider(newLoc.getProvider(),
-                    oldLoc.getProvider());
+            boolean isFromSameProvider = isSameProvider(provider, locationProvider);
 
             if (isMoreAccurate) {
                 return true;
@@ -418,6 +495,7 @@ public class RotationArrow {
             Wearable.DataApi.addListener(mGoogleApiClient, this);
             Wearable.MessageApi.addListener(mGoogleApiClient, this);
             Wearable.NodeApi.addListener(mGoogleApiClient, this);
+            transportExecutor.execute(refreshNodes);
         }
 
         @Override
@@ -437,12 +515,13 @@ public class RotationArrow {
 
         @Override
         public void onPeerConnected(Node node) {
-
+            nodeRegistry.onPeerConnected(node.getId());
+            positionSender.reset(); //also when another wear was already connected
         }
 
         @Override
         public void onPeerDisconnected(Node node) {
-
+            nodeRegistry.onPeerDisconnected(node.getId());
         }
 
         @Override
@@ -459,49 +538,95 @@ public class RotationArrow {
      */
     private class JSensorEventListener implements SensorEventListener {
 
-        private float[] mGravity;
-        private float[] mGeomagnetic;
-        private float azimut;
+        private HeadingFusion headingFusion;
+        private AdaptiveSampler adaptiveSampler;
+        private HeadingFilter headingFilter;
 
         private boolean isRunning;
+        private boolean isRegisterPending; //the sampler changed the rate too soon after the last one
+        private long registeredNanos;
+        private final long MIN_REGISTER_INTERVAL_NANOS = 1000000000L;
 
         private SensorManager mSensorManager;
-        private Sensor mSensor, aSensor;
+        private Sensor mSensor, aSensor, rSensor;
+        private HeadingSource headingSource;
 
         public JSensorEventListener() {
             mSensorManager = (SensorManager) act.getSystemService(Context.SENSOR_SERVICE);
             mSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
             aSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            headingFusion = new HeadingFusion();
+            adaptiveSampler = new AdaptiveSampler(new VelocitySamplingPolicy());
+            headingFilter = new HeadingFilter();
             isRunning = false;
+            selectHeadingSource(HeadingSource.ROTATION_VECTOR);
+        }
+
+        /**
+         * Use the preferred heading source, or the first fallback that this device has
+         */
+        public void selectHeadingSource(HeadingSource preferred) {
+            boolean wasRunning = isRunning;
+            stopUsingGiro();
+
+            for (HeadingSource source = preferred; source != null; source = source.fallback()) {
+                rSensor = getRotationVectorSensor(source);
+                if (rSensor != null || source == HeadingSource.ACCELEROMETER_MAGNETOMETER) {
+                    headingSource = source;
+                    break;
+                }
+            }
+            Log.v("ARAUJOJORDAN", "Heading source: " + headingSource);
+
+            if (wasRunning)
+                startUsingGiro();
+        }
+
+        private Sensor getRotationVectorSensor(HeadingSource source) {
+            switch (source) {
+                case ROTATION_VECTOR:
+                    return mSensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+                case GEOMAGNETIC_ROTATION_VECTOR:
+                    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT)
+                        return null;
+                    return mSensorManager.getDefaultSensor(Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR);
+                default:
+                    return null;
+            }
         }
 
         public void onAccuracyChanged(Sensor sensor, int accuracy) {
         }
 
         public void onSensorChanged(SensorEvent event) {
-            if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-                mGravity = event.values;
-            }
-            if (event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
-                mGeomagnetic = event.values;
+            switch (event.sensor.getType()) {
+                case Sensor.TYPE_ACCELEROMETER:
+                    headingFusion.onAccelerometer(event.values);
+                    break;
+                case Sensor.TYPE_MAGNETIC_FIELD:
+                    headingFusion.onMagneticField(event.values);
+                    break;
+                case Sensor.TYPE_ROTATION_VECTOR:
+                case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR:
+                    headingFusion.onRotationVector(event.values);
+                    break;
             }
 
-            if (mGravity != null && mGeomagnetic != null) {
-                float R[] = new float[9];
-                float I[] = new float[9];
-
-                if (SensorManager.getRotationMatrix(R, I, mGravity, mGeomagnetic)) {
-
-                    float orientation[] = new float[3];
-                    SensorManager.getOrientation(R, orientation);
-                    azimut = orientation[0];
-                    float newNorth = (float) (-azimut * 360 / (2 * Math.PI));
-                    float northRotation = newNorth + 30;
-                    if (arrowImg != null) {
-                        arrowImg.setRotation(northRotation - getAngleBetween2Points(userLocation,
-                                destinationLocation
-                        ));
-                    }
+            if (headingFusion.update()) {
+                float newNorth = (float) Geodesy.rad2deg(-headingFusion.getAzimuth());
+                if (adaptiveSampler.onHeading(newNorth, event.timestamp))
+                    isRegisterPending = true;
+                //registering again flushes the sensor batches, at most once in MIN_REGISTER_INTERVAL_NANOS
+                if (isRegisterPending && event.timestamp - registeredNanos >= MIN_REGISTER_INTERVAL_NANOS) {
+                    isRegisterPending = false;
+                    registeredNanos = event.timestamp;
+                    mSensorManager.unregisterListener(this);
+                    registerSensors();
+                }
+                float northRotation = newNorth + 30;
+                float rotation = navigation.getArrowRotation(northRotation);
+                if (headingFilter.filter(rotation, event.timestamp)) {
+                    arrowRenderer.showRotation(headingFilter.getAngle());
                 }
             }
         }
@@ -511,6 +636,13 @@ public class RotationArrow {
                 return;
 
             mSensorManager.unregisterListener(this);
+            headingFusion.reset();
+            adaptiveSampler.reset();
+            isRegisterPending = false;
+            registeredNanos = 0;
+            Log.v("ARAUJOJORDAN", "Arrow redraws: " + headingFilter.getPassed() + ", suppressed: "
+                    + headingFilter.getSuppressed());
+            headingFilter.reset();
             isRunning = false;
         }
 
@@ -518,10 +650,39 @@ public class RotationArrow {
             if (isRunning)
                 stopUsingGiro();
 
-            mSensorManager.registerListener(this, mSensor, SensorManager.SENSOR_DELAY_UI);
-            mSensorManager.registerListener(this, aSensor, SensorManager.SENSOR_DELAY_UI);
+            registerSensors();
             isRunning = true;
 
         }
+
+        public void setSamplingPolicy(SamplingPolicy policy) {
+            adaptiveSampler.setPolicy(policy);
+        }
+
+        public void setHeadingSmoothing(float timeConstant, float deadband) {
+            headingFilter.setTimeConstant(timeConstant);
+            headingFilter.setDeadband(deadband);
+        }
+
+        /**
+         * Register the heading sensors with the rate chosen by the adaptive sampler
+         */
+        private void registerSensors() {
+            int samplingPeriodUs = adaptiveSampler.getSamplingPeriodUs();
+            int maxReportLatencyUs = adaptiveSampler.getMaxReportLatencyUs();
+            if (rSensor != null) {
+                registerSensor(rSensor, samplingPeriodUs, maxReportLatencyUs);
+            } else {
+                registerSensor(mSensor, samplingPeriodUs, maxReportLatencyUs);
+                registerSensor(aSensor, samplingPeriodUs, maxReportLatencyUs);
+            }
+        }
+
+        private void registerSensor(Sensor sensor, int samplingPeriodUs, int maxReportLatencyUs) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+                mSensorManager.registerListener(this, sensor, samplingPeriodUs, maxReportLatencyUs);
+            else
+                mSensorManager.registerListener(this, sensor, samplingPeriodUs);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.araujo.jordan.wearrow;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeApi;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link NodeSource} from the Wearable NodeApi. It awaits the result, so only off the main
+ * thread.
+ */
+public class WearableNodeSource implements NodeSource {
+
+    private final GoogleApiClient googleApiClient;
+
+    public WearableNodeSource(GoogleApiClient googleApiClient) {
+        this.googleApiClient = googleApiClient;
+    }
+
+    @Override
+    public List<String> getConnectedNodes() {
+        List<String> ids = new ArrayList<>();
+        NodeApi.GetConnectedNodesResult nodes = Wearable.NodeApi.getConnectedNodes(googleApiClient).await();
+        for (Node node : nodes.getNodes())
+            ids.add(node.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,152 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.DistanceFormatter;
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.HeadingFusion;
+import com.araujo.jordan.wearrow.LatLng;
+import com.araujo.jordan.wearrow.Navigation;
+import com.araujo.jordan.wearrow.SensorMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done by the arrow for each sensor event and each GPS fix, replayed from the traces.
+ * legacyOnSensorChanged mirrors the first JSensorEventListener, which allocated its matrices on
+ * every event, perEventBearingOnSensorChanged the one that calculated the bearing on every event
+ * and onSensorChanged is the current one, with the bearing cached by {@link Navigation}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrowUpdateBenchmark {
+
+    private SensorTrace sensors;
+    private GpsTrace gps;
+    private int sensorIndex, gpsIndex;
+
+    private float[] mGravity;
+    private float[] mGeomagnetic;
+    private HeadingFusion headingFusion;
+    private LatLng userLocation;
+    private Navigation navigation;
+    private DistanceFormatter distanceFormatter;
+
+    @Setup
+    public void setup() {
+        sensors = Traces.sensor();
+        gps = Traces.gps();
+        userLocation = new LatLng(gps.latitude[0], gps.longitude[0]);
+        navigation = new Navigation(Traces.DESTINATION);
+        navigation.setUserLocation(userLocation.latitude, userLocation.longitude);
+        distanceFormatter = new DistanceFormatter("Kilometers", "Meters", "To close", 0);
+        headingFusion = new HeadingFusion();
+    }
+
+    @Benchmark
+    public float legacyOnSensorChanged() {
+        int i = nextSensorEvent();
+
+        if (sensors.types[i] == SensorTrace.TYPE_ACCELEROMETER)
+            mGravity = sensors.values[i];
+        if (sensors.types[i] == SensorTrace.TYPE_MAGNETIC_FIELD)
+            mGeomagnetic = sensors.values[i];
+
+        if (mGravity != null && mGeomagnetic != null) {
+            float R[] = new float[9];
+            float I[] = new float[9];
+
+            if (SensorMath.getRotationMatrix(R, I, mGravity, mGeomagnetic)) {
+                float orientation[] = new float[3];
+                SensorMath.getOrientation(R, orientation);
+                float newNorth = (float) (-orientation[0] * 360 / (2 * Math.PI));
+                float northRotation = newNorth + 30;
+                return northRotation - Geodesy.getAngleBetween2Points(userLocation, Traces.DESTINATION);
+            }
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public float perEventBearingOnSensorChanged() {
+        int i = nextSensorEvent();
+
+        if (sensors.types[i] == SensorTrace.TYPE_ACCELEROMETER)
+            headingFusion.onAccelerometer(sensors.values[i]);
+        if (sensors.types[i] == SensorTrace.TYPE_MAGNETIC_FIELD)
+            headingFusion.onMagneticField(sensors.values[i]);
+
+        if (headingFusion.update()) {
+            float newNorth = (float) Geodesy.rad2deg(-headingFusion.getAzimuth());
+            float northRotation = newNorth + 30;
+            return northRotation - Geodesy.getAngleBetween2Points(userLocation, Traces.DESTINATION);
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public float onSensorChanged() {
+        int i = nextSensorEvent();
+
+        if (sensors.types[i] == SensorTrace.TYPE_ACCELEROMETER)
+            headingFusion.onAccelerometer(sensors.values[i]);
+        if (sensors.types[i] == SensorTrace.TYPE_MAGNETIC_FIELD)
+            headingFusion.onMagneticField(sensors.values[i]);
+
+        if (headingFusion.update()) {
+            float newNorth = (float) Geodesy.rad2deg(-headingFusion.getAzimuth());
+            float northRotation = newNorth + 30;
+            return navigation.getArrowRotation(northRotation);
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public float getAngleBetween2Points() {
+        int i = nextFix();
+        return Geodesy.getAngleBetween2Points(gps.latitude[i], gps.longitude[i],
+                Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+    }
+
+    @Benchmark
+    public double getDistanceBetween2Points() {
+        int i = nextFix();
+        return Geodesy.getDistanceBetween2Points(gps.latitude[i], gps.longitude[i],
+                Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+    }
+
+    /**
+     * Distance and text for a new fix, as done by onLocationChanged before setText
+     */
+    @Benchmark
+    public String onLocationChanged() {
+        int i = nextFix();
+        return distanceFormatter.getMlOrKm(Geodesy.getDistanceBetween2Points(gps.latitude[i],
+                gps.longitude[i], Traces.DESTINATION.latitude, Traces.DESTINATION.longitude));
+    }
+
+    private int nextSensorEvent() {
+        int i = sensorIndex;
+        sensorIndex = (i + 1) % sensors.size();
+        return i;
+    }
+
+    private int nextFix() {
+        int i = gpsIndex;
+        gpsIndex = (i + 1) % gps.size();
+        return i;
+    }
+}
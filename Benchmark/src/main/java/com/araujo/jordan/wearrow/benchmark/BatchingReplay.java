@@ -0,0 +1,91 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionBatcher;
+import com.araujo.jordan.wearrow.PositionProtocol;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+/**
+ * Replays the GPS trace through the {@link PositionBatcher} on a fake transport, with a few
+ * flush intervals and batch sizes, and prints the messages per minute against how long the fixes
+ * waited to be sent. The fake transport decodes every message like the watch does and checks
+ * that it ends with the freshest fix of the batch.
+ */
+public class BatchingReplay {
+
+    private static final long[][] CONFIGS = { //flush interval in ms, max batch size
+            {0, 1}, {1000, 4}, {2000, 4}, {5000, 8}, {10000, 16}
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Position batching");
+        GpsTrace gps = Traces.gps();
+        for (long[] config : CONFIGS)
+            replay(gps, config[0], (int) config[1]);
+    }
+
+    private static void replay(GpsTrace gps, long flushIntervalMillis, int maxBatchSize) {
+        PositionBatcher batcher = new PositionBatcher(Math.max(8, maxBatchSize * 2), flushIntervalMillis, maxBatchSize);
+        FakeTransport transport = new FakeTransport(batcher.getMaxMessageLength());
+        PositionRecord fix = new PositionRecord();
+        long[] queuedAt = new long[gps.size()];
+        int firstQueued = 0;
+
+        for (int i = 0; i < gps.size(); i++) {
+            long now = gps.timeMillis[i];
+            //the flush the handler would have run before this fix
+            if (batcher.isFlushDue(now)) {
+                long flushTime = queuedAt[i - batcher.size()] + flushIntervalMillis;
+                firstQueued = transport.send(batcher, queuedAt, firstQueued, i, flushTime, gps);
+            }
+
+            fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+            fix.setMotion(gps.speed[i], gps.bearing[i]);
+            queuedAt[i] = now;
+            if (batcher.add(fix, now))
+                firstQueued = transport.send(batcher, queuedAt, firstQueued, i + 1, now, gps);
+        }
+
+        double minutes = (gps.timeMillis[gps.size() - 1] - gps.timeMillis[0]) / 60000.0;
+        System.out.printf("  every %5d ms or %2d fixes: %5.1f messages/min, %6.0f bytes/min,"
+                        + " latency mean %5.0f ms max %5d ms, %d dropped%n",
+                flushIntervalMillis, maxBatchSize, transport.messages / minutes, transport.bytes / minutes,
+                (double) transport.latencySum / batcher.getFixesSent(), transport.maxLatency,
+                batcher.getFixesDropped());
+    }
+
+    /**
+     * Counts what would go on the radio and decodes it as the watch
+     */
+    private static class FakeTransport {
+
+        private final byte[] message;
+        private final PositionRecord received = new PositionRecord();
+        private long messages, bytes, latencySum, maxLatency;
+
+        FakeTransport(int maxMessageLength) {
+            message = new byte[maxMessageLength];
+        }
+
+        /**
+         * Flush the batcher at the given time
+         *
+         * @return the first fix still queued
+         */
+        int send(PositionBatcher batcher, long[] queuedAt, int firstQueued, int end, long time, GpsTrace gps) {
+            //fixes dropped by a full buffer were never sent
+            firstQueued = Math.max(firstQueued, end - batcher.size());
+            int length = batcher.flush(message, 0);
+            messages++;
+            bytes += length;
+            for (int i = firstQueued; i < end; i++) {
+                latencySum += time - queuedAt[i];
+                maxLatency = Math.max(maxLatency, time - queuedAt[i]);
+            }
+
+            if (PositionProtocol.decodeAll(message, 0, length, received) == 0
+                    || received.timeMillis != gps.timeMillis[end - 1])
+                throw new IllegalStateException("the watch did not get the freshest fix");
+            return end;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.DistanceFormatter;
+import com.araujo.jordan.wearrow.ForwardingPolicy;
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.LatLng;
+import com.araujo.jordan.wearrow.Navigation;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+/**
+ * Replays the GPS trace through the {@link ForwardingPolicy} with a few thresholds and
+ * destinations, and prints the messages saved against the display error: at every fix the wear,
+ * showing the last forwarded fix, is compared with a wear that got every fix.
+ */
+public class ForwardingReplay {
+
+    private static final float[] ARROW_RESOLUTIONS = {1, 2, 5}; //degrees
+    private static final long[] MIN_INTERVALS = {1000, 5000}; //ms
+    private static final LatLng FAR_DESTINATION = new LatLng(37.4700, -122.0300); //about 7 km
+
+    public static void main(String[] args) {
+        System.out.println("Position forwarding");
+        GpsTrace gps = Traces.gps();
+        for (LatLng destination : new LatLng[]{Traces.DESTINATION, FAR_DESTINATION})
+            for (long minInterval : MIN_INTERVALS)
+                for (float arrowResolution : ARROW_RESOLUTIONS)
+                    replay(gps, destination, minInterval, arrowResolution);
+    }
+
+    private static void replay(GpsTrace gps, LatLng destination, long minIntervalMillis, float arrowResolution) {
+        ForwardingPolicy policy = new ForwardingPolicy(minIntervalMillis, arrowResolution);
+        Navigation every = new Navigation(destination), forwarded = new Navigation(destination);
+        DistanceFormatter everyText = new DistanceFormatter("km", "m", "", 0);
+        DistanceFormatter forwardedText = new DistanceFormatter("km", "m", "", 0);
+        PositionRecord fix = new PositionRecord();
+
+        double maxArrowError = 0, maxDistanceError = 0;
+        int textDiffers = 0;
+        for (int i = 0; i < gps.size(); i++) {
+            fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+            fix.setMotion(gps.speed[i], gps.bearing[i]);
+            every.setUserLocation(fix.latitude, fix.longitude);
+            if (policy.shouldForward(fix, every.getDistance()))
+                forwarded.setUserLocation(fix.latitude, fix.longitude);
+
+            maxArrowError = Math.max(maxArrowError,
+                    Math.abs(Geodesy.angleDifference(every.getAngle(), forwarded.getAngle())));
+            maxDistanceError = Math.max(maxDistanceError,
+                    Math.abs(every.getDistance() - forwarded.getDistance()) * 1000);
+            if (!everyText.getMlOrKm(every.getDistance()).equals(forwardedText.getMlOrKm(forwarded.getDistance())))
+                textDiffers++;
+        }
+
+        System.out.printf("  %4.1f km away, %4d ms, arrow %1.0f deg: %3d of %d fixes sent (%2.0f%% saved),"
+                        + " arrow error %4.2f deg max, distance error %5.1f m max, text differs on %2.0f%% of the fixes%n",
+                Geodesy.getDistanceBetween2Points(gps.latitude[0], gps.longitude[0],
+                        destination.latitude, destination.longitude),
+                minIntervalMillis, arrowResolution, policy.getFixesForwarded(), gps.size(),
+                100.0 * policy.getFixesSuppressed() / gps.size(), maxArrowError, maxDistanceError,
+                100.0 * textDiffers / gps.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.GeodesicSolver;
+
+import java.util.Random;
+
+/**
+ * Compares each {@link GeodesicSolver.Tier}, and the old planar angle, with Vincenty on random
+ * pairs of positions at a few distances, and prints the worst distance and bearing errors.
+ */
+public class GeodesyAccuracyReplay {
+
+    private static final double[] DISTANCES_KM = {0.1, 1, 10, 100, 1000, 5000};
+    private static final int PAIRS = 2000;
+
+    public static void main(String[] args) {
+        System.out.println("Geodesy tiers, worst error against Vincenty (distance %, bearing deg)");
+        GeodesicSolver reference = new GeodesicSolver(GeodesicSolver.Tier.VINCENTY);
+        GeodesicSolver equirectangular = new GeodesicSolver(GeodesicSolver.Tier.EQUIRECTANGULAR);
+        GeodesicSolver haversine = new GeodesicSolver(GeodesicSolver.Tier.HAVERSINE);
+        GeodesicSolver auto = new GeodesicSolver(GeodesicSolver.Tier.AUTO);
+
+        for (double km : DISTANCES_KM) {
+            Random random = new Random(km > 0 ? (long) (km * 10) : 1);
+            double[] errors = new double[8];
+            for (int p = 0; p < PAIRS; p++) {
+                double lat1 = random.nextDouble() * 140 - 70;
+                double lon1 = random.nextDouble() * 360 - 180;
+                double direction = random.nextDouble() * 2 * Math.PI;
+                double dLat = Geodesy.rad2deg(km / Geodesy.EARTH_RADIUS_KM) * Math.cos(direction);
+                double lat2 = Math.max(-89, Math.min(89, lat1 + dLat));
+                double lon2 = lon1 + Geodesy.rad2deg(km / Geodesy.EARTH_RADIUS_KM) * Math.sin(direction)
+                        / Math.cos(Geodesy.deg2rad(lat1));
+
+                reference.solve(lat1, lon1, lat2, lon2);
+                error(errors, 0, equirectangular, reference, lat1, lon1, lat2, lon2);
+                error(errors, 2, haversine, reference, lat1, lon1, lat2, lon2);
+                error(errors, 4, auto, reference, lat1, lon1, lat2, lon2);
+                double planar = 90 - Geodesy.getAngleBetween2Points(lat1, lon1, lat2, lon2);
+                errors[7] = Math.max(errors[7], Math.abs(Geodesy.angleDifference(planar, reference.getBearing())));
+            }
+            System.out.printf("  %6.1f km: equirectangular %.4f%% %.3f, haversine %.4f%% %.3f, auto %.4f%% %.3f,"
+                            + " old planar angle %.3f%n", km, errors[0], errors[1], errors[2], errors[3],
+                    errors[4], errors[5], errors[7]);
+        }
+    }
+
+    private static void error(double[] errors, int index, GeodesicSolver solver, GeodesicSolver reference,
+                              double lat1, double lon1, double lat2, double lon2) {
+        solver.solve(lat1, lon1, lat2, lon2);
+        errors[index] = Math.max(errors[index],
+                100 * Math.abs(solver.getDistance() - reference.getDistance()) / reference.getDistance());
+        errors[index + 1] = Math.max(errors[index + 1],
+                Math.abs(Geodesy.angleDifference(solver.getBearing(), reference.getBearing())));
+    }
+}
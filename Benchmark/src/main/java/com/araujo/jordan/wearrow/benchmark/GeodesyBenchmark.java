@@ -0,0 +1,52 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.GeodesicSolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speed of each {@link GeodesicSolver.Tier} from the GPS trace fixes to the destination.
+ * GeodesyAccuracyReplay prints how accurate each one is.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeodesyBenchmark {
+
+    @Param({"EQUIRECTANGULAR", "HAVERSINE", "VINCENTY", "AUTO"})
+    public GeodesicSolver.Tier tier;
+
+    private GpsTrace gps;
+    private int index;
+    private GeodesicSolver solver;
+
+    @Setup
+    public void setup() {
+        gps = Traces.gps();
+        solver = new GeodesicSolver(tier);
+    }
+
+    @Benchmark
+    public double solve() {
+        int i = index;
+        index = (i + 1) % gps.size();
+        solver.solve(gps.latitude[i], gps.longitude[i],
+                Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+        return solver.getDistance() + solver.getBearing();
+    }
+}
@@ -0,0 +1,53 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionRecord;
+
+/**
+ * A replayable list of GPS fixes, in the order they reached onLocationChanged.
+ */
+public class GpsTrace {
+
+    public final long[] timeMillis;
+    public final double[] latitude, longitude;
+    public final float[] accuracy, speed, bearing;
+
+    /**
+     * Where the user really was at each fix, null for the recorded traces
+     */
+    public final double[] trueLatitude, trueLongitude;
+
+    public GpsTrace(long[] timeMillis, double[] latitude, double[] longitude, float[] accuracy,
+                    float[] speed, float[] bearing) {
+        this(timeMillis, latitude, longitude, accuracy, speed, bearing, null, null);
+    }
+
+    public GpsTrace(long[] timeMillis, double[] latitude, double[] longitude, float[] accuracy,
+                    float[] speed, float[] bearing, double[] trueLatitude, double[] trueLongitude) {
+        this.timeMillis = timeMillis;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.speed = speed;
+        this.bearing = bearing;
+        this.trueLatitude = trueLatitude;
+        this.trueLongitude = trueLongitude;
+    }
+
+    public int size() {
+        return timeMillis.length;
+    }
+
+    /**
+     * @return a record of each fix, with its speed and bearing, as a TraceLocationSource replays
+     * them
+     */
+    public PositionRecord[] toFixes() {
+        PositionRecord[] fixes = new PositionRecord[size()];
+        for (int i = 0; i < fixes.length; i++) {
+            fixes[i] = new PositionRecord();
+            fixes[i].set(latitude[i], longitude[i], timeMillis[i], accuracy[i]);
+            fixes[i].setMotion(speed[i], bearing[i]);
+        }
+        return fixes;
+    }
+}
@@ -0,0 +1,61 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.HeadingFilter;
+import com.araujo.jordan.wearrow.HeadingFusion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link HeadingFilter} stage for one heading from the traces.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadingFilterBenchmark {
+
+    private float[] headings;
+    private long[] times;
+    private int index;
+    private long timeOffset;
+    private HeadingFilter headingFilter;
+
+    @Setup
+    public void setup() {
+        SensorTrace trace = Traces.rotationVector();
+        headings = new float[trace.size()];
+        times = trace.timeNanos;
+        HeadingFusion fusion = new HeadingFusion();
+        for (int i = 0; i < trace.size(); i++) {
+            fusion.onRotationVector(trace.values[i]);
+            fusion.update();
+            headings[i] = (float) Geodesy.rad2deg(fusion.getAzimuth());
+        }
+        headingFilter = new HeadingFilter();
+    }
+
+    @Benchmark
+    public boolean filter() {
+        int i = index;
+        index++;
+        if (index == headings.length) {
+            index = 0;
+            timeOffset += times[times.length - 1] + 1;
+        }
+        return headingFilter.filter(headings[i], times[i] + timeOffset);
+    }
+}
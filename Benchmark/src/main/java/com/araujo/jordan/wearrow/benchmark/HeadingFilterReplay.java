@@ -0,0 +1,47 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.HeadingFilter;
+import com.araujo.jordan.wearrow.HeadingFusion;
+
+/**
+ * Replays the heading traces through the {@link HeadingFilter} and prints how many arrow redraws
+ * it avoided and how far the shown arrow was from the raw heading.
+ */
+public class HeadingFilterReplay {
+
+    public static void main(String[] args) {
+        System.out.println("Heading filter");
+        replay("accelerometer+magnetometer", Traces.sensor());
+        replay("rotation vector", Traces.rotationVector());
+        replay("resting", Traces.restingRotationVector());
+    }
+
+    private static void replay(String name, SensorTrace trace) {
+        HeadingFusion fusion = new HeadingFusion();
+        HeadingFilter filter = new HeadingFilter();
+        int headings = 0;
+        double errorSum = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            switch (trace.types[i]) {
+                case SensorTrace.TYPE_ACCELEROMETER:
+                    fusion.onAccelerometer(trace.values[i]);
+                    break;
+                case SensorTrace.TYPE_MAGNETIC_FIELD:
+                    fusion.onMagneticField(trace.values[i]);
+                    break;
+                default:
+                    fusion.onRotationVector(trace.values[i]);
+            }
+            if (fusion.update()) {
+                float heading = (float) Geodesy.rad2deg(fusion.getAzimuth());
+                filter.filter(heading, trace.timeNanos[i]);
+                errorSum += Math.abs(Geodesy.angleDifference(filter.getAngle(), heading));
+                headings++;
+            }
+        }
+        System.out.printf("  %s: %d headings, %d redraws, %d suppressed (%.0f%%), mean shown error %.2f deg%n",
+                name, headings, filter.getPassed(), filter.getSuppressed(),
+                100.0 * filter.getSuppressed() / headings, errorSum / headings);
+    }
+}
@@ -0,0 +1,64 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.HeadingFusion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one heading sample for each {@link com.araujo.jordan.wearrow.HeadingSource}.
+ * The accelerometer and magnetometer pair takes two callbacks, and two matrix updates, per sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadingSourceBenchmark {
+
+    private SensorTrace sensors, rotationVectors;
+    private int sensorIndex, rotationVectorIndex;
+    private HeadingFusion accelerometerMagnetometer, rotationVector;
+
+    @Setup
+    public void setup() {
+        sensors = Traces.sensor();
+        rotationVectors = Traces.rotationVector();
+        accelerometerMagnetometer = new HeadingFusion();
+        rotationVector = new HeadingFusion();
+    }
+
+    @Benchmark
+    public float accelerometerMagnetometer() {
+        for (int event = 0; event < 2; event++) {
+            int i = sensorIndex;
+            sensorIndex = (i + 1) % sensors.size();
+            if (sensors.types[i] == SensorTrace.TYPE_ACCELEROMETER)
+                accelerometerMagnetometer.onAccelerometer(sensors.values[i]);
+            else
+                accelerometerMagnetometer.onMagneticField(sensors.values[i]);
+            accelerometerMagnetometer.update();
+        }
+        return accelerometerMagnetometer.getAzimuth();
+    }
+
+    @Benchmark
+    public float rotationVector() {
+        int i = rotationVectorIndex;
+        rotationVectorIndex = (i + 1) % rotationVectors.size();
+        rotationVector.onRotationVector(rotationVectors.values[i]);
+        rotationVector.update();
+        return rotationVector.getAzimuth();
+    }
+}
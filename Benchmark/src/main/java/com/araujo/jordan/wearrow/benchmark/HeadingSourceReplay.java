@@ -0,0 +1,49 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.HeadingFusion;
+
+/**
+ * Replays the same walk through both heading sources and prints how far apart the headings are
+ * and how many sensor callbacks each one needed.
+ */
+public class HeadingSourceReplay {
+
+    public static void main(String[] args) {
+        SensorTrace sensors = Traces.sensor();
+        SensorTrace rotationVectors = Traces.rotationVector();
+        HeadingFusion accelerometerMagnetometer = new HeadingFusion();
+        HeadingFusion rotationVector = new HeadingFusion();
+
+        int samples = 0;
+        double sum = 0, max = 0;
+        int s = 0;
+        for (int r = 0; r < rotationVectors.size() && s < sensors.size(); r++) {
+            //one heading sample is a whole accelerometer and magnetometer pair
+            long sampleEnd = r + 1 < rotationVectors.size() ? rotationVectors.timeNanos[r + 1] : Long.MAX_VALUE;
+            while (s < sensors.size() && sensors.timeNanos[s] < sampleEnd) {
+                if (sensors.types[s] == SensorTrace.TYPE_ACCELEROMETER)
+                    accelerometerMagnetometer.onAccelerometer(sensors.values[s]);
+                else
+                    accelerometerMagnetometer.onMagneticField(sensors.values[s]);
+                s++;
+            }
+            rotationVector.onRotationVector(rotationVectors.values[r]);
+
+            if (accelerometerMagnetometer.update() && rotationVector.update()) {
+                double difference = Math.abs(Geodesy.angleDifference(
+                        Geodesy.rad2deg(accelerometerMagnetometer.getAzimuth()),
+                        Geodesy.rad2deg(rotationVector.getAzimuth())));
+                sum += difference;
+                max = Math.max(max, difference);
+                samples++;
+            }
+        }
+
+        System.out.println("Heading sources");
+        System.out.printf("  callbacks: accelerometer+magnetometer %d, rotation vector %d%n",
+                sensors.size(), rotationVectors.size());
+        System.out.printf("  heading difference over %d samples: mean %.2f deg, max %.2f deg%n",
+                samples, sum / samples, max);
+    }
+}
@@ -0,0 +1,81 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.ArrivalProviderPolicy;
+import com.araujo.jordan.wearrow.GeodesicSolver;
+import com.araujo.jordan.wearrow.LocationSource;
+import com.araujo.jordan.wearrow.PositionRecord;
+import com.araujo.jordan.wearrow.ProviderStrategy;
+import com.araujo.jordan.wearrow.SpeedEstimator;
+import com.araujo.jordan.wearrow.TraceLocationSource;
+
+/**
+ * Replays generated trips through a {@link TraceLocationSource} driven by the
+ * {@link ProviderStrategy}, as the handheld listener does, with and without batching, with
+ * and without a wear, and prints how many times the handheld was woken up for the fixes and how late the newest fix of
+ * a wakeup was. Exits with an error if a fix in the last {@link #FINAL_APPROACH_KM} came late.
+ */
+public class LocationSourceReplay {
+
+    private static final double FINAL_APPROACH_KM = 0.2;
+
+    private static final Object[][] TRIPS = {
+            {"walk 2 km", new double[][]{{2, 1.4, 0}}},
+            {"drive 20 km, walk 300 m", new double[][]{{20, 15, 0}, {0, 0, 60}, {0.3, 1.4, 0}}},
+            {"bus 8 km with stops, walk 500 m", new double[][]{{2, 8, 0}, {0, 0, 120}, {3, 8, 0}, {0, 0, 120},
+                    {3, 8, 0}, {0.5, 1.4, 0}}},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Location source batching");
+        for (Object[] trip : TRIPS) {
+            GpsTrace trace = Traces.tripGps((double[][]) trip[1]);
+            for (boolean watchConnected : new boolean[]{true, false})
+                for (boolean isBatching : new boolean[]{false, true})
+                    replay((String) trip[0], trace, watchConnected, isBatching);
+        }
+    }
+
+    private static void replay(String name, GpsTrace trace, final boolean watchConnected, boolean isBatching) {
+        final TraceLocationSource source = new TraceLocationSource(trace.toFixes(), isBatching);
+        final ProviderStrategy strategy = new ProviderStrategy(new ArrivalProviderPolicy());
+        final GeodesicSolver geodesicSolver = new GeodesicSolver();
+        final SpeedEstimator speedEstimator = new SpeedEstimator(); //the network fixes have no speed
+        final long[] now = new long[1];
+        final long[] latency = new long[2]; //max, max in the final approach
+
+        LocationSource.Listener listener = new LocationSource.Listener() {
+            @Override
+            public void onLocation(PositionRecord fix, String provider, int remaining) {
+                speedEstimator.onFix(fix);
+                if (remaining > 0)
+                    return;
+                geodesicSolver.solve(fix.latitude, fix.longitude, Traces.DESTINATION.latitude,
+                        Traces.DESTINATION.longitude);
+                double distance = geodesicSolver.getDistance();
+                long late = now[0] - fix.timeMillis;
+                latency[0] = Math.max(latency[0], late);
+                if (distance < FINAL_APPROACH_KM)
+                    latency[1] = Math.max(latency[1], late);
+                if (strategy.onFix(distance, speedEstimator.getSpeed(), watchConnected, now[0]))
+                    source.start(strategy.getRequest(), this);
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {
+            }
+        };
+
+        source.start(strategy.start(0), listener);
+        for (int i = 0; i < trace.size(); i++) {
+            now[0] = trace.timeMillis[i];
+            source.advanceTo(now[0]);
+        }
+        source.stop();
+
+        if (latency[1] > 0)
+            throw new IllegalStateException(name + ": a fix of the final approach came " + latency[1] + " ms late");
+        System.out.printf("  %-32s %-7s %-11s: %4d wakeups for %4d fixes, newest fix up to %3d s late%n", name,
+                watchConnected ? "wear" : "no wear", isBatching ? "batching" : "no batching",
+                source.getDeliveries(), source.getFixesDelivered(), latency[0] / 1000);
+    }
+}
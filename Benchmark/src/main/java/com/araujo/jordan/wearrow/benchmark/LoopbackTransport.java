@@ -0,0 +1,190 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionTransport;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PositionTransport} inside the JVM, for running the handheld to watch pipeline off the
+ * devices. Messages go through a link with a fixed latency, a loss rate and a bandwidth, and are
+ * delivered to the receiver on the loopback thread, like the MessageApi callbacks.
+ * <p/>
+ * Published states model the DataApi: they are never lost, a newer state replaces one still
+ * waiting for the link, and the state published while disconnected is delivered on reconnect.
+ */
+public class LoopbackTransport implements PositionTransport {
+
+    private final long latencyNanos;
+    private final double lossRate;
+    private final long bytesPerSecond; //0 for no limit
+    private final Random random;
+
+    private final ScheduledExecutorService delivery = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "wearrow-loopback");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private volatile Receiver receiver;
+    private volatile boolean connected = true;
+
+    private long linkFreeNanos;
+    private int messagesSent, messagesLost;
+    private long bytesSent;
+
+    private String pendingPath; //the published state not delivered yet
+    private byte[] pendingState;
+    private boolean deliveryScheduled;
+    private int publishes, statesDelivered, statesCollapsed;
+
+    public LoopbackTransport() {
+        this(0, 0, 0, 1);
+    }
+
+    /**
+     * @param latencyMillis  time from the end of the send to the delivery
+     * @param lossRate       part of the messages lost, from 0 to 1
+     * @param bytesPerSecond link bandwidth, messages wait for the ones before, 0 for no limit
+     */
+    public LoopbackTransport(double latencyMillis, double lossRate, long bytesPerSecond, long seed) {
+        this.latencyNanos = (long) (latencyMillis * 1e6);
+        this.lossRate = lossRate;
+        this.bytesPerSecond = bytesPerSecond;
+        this.random = new Random(seed);
+    }
+
+    public synchronized void setConnected(boolean connected) {
+        this.connected = connected;
+        if (connected && pendingState != null && !deliveryScheduled)
+            scheduleState();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public synchronized int send(final String path, byte[] data) {
+        if (!connected)
+            return 0;
+        messagesSent++;
+        bytesSent += data.length;
+
+        long now = System.nanoTime();
+        long transmitNanos = bytesPerSecond > 0 ? data.length * 1000000000L / bytesPerSecond : 0;
+        linkFreeNanos = Math.max(now, linkFreeNanos) + transmitNanos;
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            messagesLost++;
+            return 1;
+        }
+
+        final byte[] copy = data.clone(); //the sender may reuse its array
+        Runnable deliver = new Runnable() {
+            @Override
+            public void run() {
+                Receiver receiver = LoopbackTransport.this.receiver;
+                if (receiver != null)
+                    receiver.onMessage(path, copy);
+            }
+        };
+        long delay = linkFreeNanos + latencyNanos - now;
+        if (delay <= 0)
+            delivery.execute(deliver);
+        else
+            delivery.schedule(deliver, delay, TimeUnit.NANOSECONDS);
+        return 1;
+    }
+
+    @Override
+    public synchronized void publish(String path, byte[] data) {
+        publishes++;
+        if (pendingState != null)
+            statesCollapsed++;
+        pendingPath = path;
+        pendingState = data.clone();
+        if (connected && !deliveryScheduled)
+            scheduleState();
+    }
+
+    /**
+     * The state goes over the link when it is free, whatever is pending then is delivered
+     */
+    private void scheduleState() {
+        deliveryScheduled = true;
+        long now = System.nanoTime();
+        long transmitNanos = bytesPerSecond > 0 ? pendingState.length * 1000000000L / bytesPerSecond : 0;
+        linkFreeNanos = Math.max(now, linkFreeNanos) + transmitNanos;
+        messagesSent++;
+        bytesSent += pendingState.length;
+        delivery.schedule(deliverState, linkFreeNanos + latencyNanos - now, TimeUnit.NANOSECONDS);
+    }
+
+    private final Runnable deliverState = new Runnable() {
+        @Override
+        public void run() {
+            String path;
+            byte[] state;
+            synchronized (LoopbackTransport.this) {
+                deliveryScheduled = false;
+                if (!connected)
+                    return; //kept until the reconnect
+                path = pendingPath;
+                state = pendingState;
+                pendingState = null;
+                statesDelivered++;
+            }
+            Receiver receiver = LoopbackTransport.this.receiver;
+            if (receiver != null)
+                receiver.onMessage(path, state);
+        }
+    };
+
+    @Override
+    public void setReceiver(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    public void shutdown() {
+        delivery.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delivery.awaitTermination(timeout, unit);
+    }
+
+    public synchronized int getMessagesSent() {
+        return messagesSent;
+    }
+
+    public synchronized int getMessagesLost() {
+        return messagesLost;
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized int getPublishes() {
+        return publishes;
+    }
+
+    public synchronized int getStatesDelivered() {
+        return statesDelivered;
+    }
+
+    /**
+     * @return how many published states were replaced before being delivered
+     */
+    public synchronized int getStatesCollapsed() {
+        return statesCollapsed;
+    }
+}
@@ -0,0 +1,69 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.NodeRegistry;
+import com.araujo.jordan.wearrow.NodeSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays the GPS trace sends with a watch that disconnects for a minute, on a fake node source
+ * that takes {@link #QUERY_MILLIS} per query. Prints the queries and the time the transport
+ * thread spent waiting on them, asking on every send as before and with the {@link NodeRegistry}.
+ * NodeRegistryTest checks the nodes the registry keeps.
+ */
+public class NodeRegistryReplay {
+
+    private static final long QUERY_MILLIS = 30;
+    private static final long DISCONNECTED_FROM = 200000, DISCONNECTED_TO = 260000; //trace ms
+    private static final String WATCH = "watch";
+
+    public static void main(String[] args) {
+        System.out.println("Node registry");
+        replay(Traces.gps());
+    }
+
+    private static void replay(GpsTrace gps) {
+        FakeNodeSource source = new FakeNodeSource();
+        source.connected.add(WATCH);
+
+        int queriesPerSend = 0;
+        for (int i = 0; i < gps.size(); i++) {
+            source.getConnectedNodes();
+            queriesPerSend++;
+        }
+
+        NodeRegistry registry = new NodeRegistry();
+        registry.refresh(source); //on connect
+        boolean connected = true;
+        long start = gps.timeMillis[0];
+        for (int i = 0; i < gps.size(); i++) {
+            long t = gps.timeMillis[i] - start;
+            boolean shouldBeConnected = t < DISCONNECTED_FROM || t >= DISCONNECTED_TO;
+            if (connected != shouldBeConnected) {
+                connected = shouldBeConnected;
+                if (connected)
+                    registry.onPeerConnected(WATCH);
+                else
+                    registry.onPeerDisconnected(WATCH);
+            }
+        }
+        System.out.printf("  %d sends: query per send %d queries, %d ms waiting;"
+                        + " registry %d queries, %d ms waiting%n", gps.size(), queriesPerSend,
+                queriesPerSend * QUERY_MILLIS, registry.getQueries(), registry.getQueries() * QUERY_MILLIS);
+    }
+
+    /**
+     * Answers with the nodes connected now. The time a real query takes is counted by the
+     * replay, not slept.
+     */
+    private static class FakeNodeSource implements NodeSource {
+
+        final List<String> connected = new ArrayList<>();
+
+        @Override
+        public List<String> getConnectedNodes() {
+            return new ArrayList<>(connected);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionCodec;
+import com.araujo.jordan.wearrow.PositionEncoder;
+import com.araujo.jordan.wearrow.PositionProtocol;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The legacy two doubles payload against the {@link PositionProtocol} frames, for the GPS trace
+ * fixes. PositionProtocolReplay prints the sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionCodecBenchmark {
+
+    private GpsTrace gps;
+    private int index;
+
+    private byte[][] legacyPayloads, frames;
+    private final byte[] frame = new byte[PositionProtocol.MAX_FRAME_BYTES];
+    private final PositionEncoder encoder = new PositionEncoder();
+    private final PositionRecord fix = new PositionRecord();
+    private final PositionRecord decoded = new PositionRecord();
+
+    @Setup
+    public void setup() {
+        gps = Traces.gps();
+        legacyPayloads = new byte[gps.size()][];
+        frames = new byte[gps.size()][];
+        PositionEncoder setupEncoder = new PositionEncoder();
+        for (int i = 0; i < gps.size(); i++) {
+            legacyPayloads[i] = PositionCodec.toByteArray(new double[]{gps.latitude[i], gps.longitude[i]});
+            frames[i] = setupEncoder.encode(fill(i));
+        }
+    }
+
+    private PositionRecord fill(int i) {
+        fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+        fix.setMotion(gps.speed[i], gps.bearing[i]);
+        return fix;
+    }
+
+    private int next() {
+        int i = index;
+        index = (i + 1) % gps.size();
+        return i;
+    }
+
+    @Benchmark
+    public byte[] legacyEncode() {
+        int i = next();
+        double[] position = new double[2];
+        position[0] = gps.latitude[i];
+        position[1] = gps.longitude[i];
+        return PositionCodec.toByteArray(position);
+    }
+
+    @Benchmark
+    public int encode() {
+        return encoder.encode(fill(next()), frame, 0);
+    }
+
+    @Benchmark
+    public double legacyDecode() {
+        double[] doubles = PositionCodec.toDoubleArray(legacyPayloads[next()]);
+        return doubles[0] + doubles[1];
+    }
+
+    /**
+     * Decodes the frames in order, since the delta frames need the one before
+     */
+    @Benchmark
+    public double decode() {
+        byte[] data = frames[next()];
+        PositionProtocol.decode(data, 0, data.length, decoded);
+        return decoded.latitude + decoded.longitude;
+    }
+}
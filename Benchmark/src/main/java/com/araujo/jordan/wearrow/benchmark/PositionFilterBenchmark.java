@@ -0,0 +1,53 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionFilter;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link PositionFilter} update per GPS trace fix, and reading the filtered fix back as the
+ * handheld does. Run with -prof gc to see it doesn't allocate. PositionFilterReplay prints how
+ * much it smooths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionFilterBenchmark {
+
+    private GpsTrace gps;
+    private int index;
+    private long timeMillis;
+    private final PositionFilter filter = new PositionFilter();
+    private final PositionRecord fix = new PositionRecord(), filtered = new PositionRecord();
+
+    @Setup
+    public void setup() {
+        gps = Traces.gps();
+    }
+
+    @Benchmark
+    public double update() {
+        int i = index;
+        index = (i + 1) % gps.size();
+        timeMillis += 1000;
+        fix.set(gps.latitude[i], gps.longitude[i], timeMillis, gps.accuracy[i]);
+        filter.update(fix);
+        filter.getFiltered(filtered);
+        return filtered.latitude + filtered.longitude + filtered.bearing;
+    }
+}
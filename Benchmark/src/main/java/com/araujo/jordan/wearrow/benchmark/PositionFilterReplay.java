@@ -0,0 +1,99 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.DistanceFormatter;
+import com.araujo.jordan.wearrow.GeodesicSolver;
+import com.araujo.jordan.wearrow.PositionFilter;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import java.util.Arrays;
+
+/**
+ * Replays the GPS traces through the {@link PositionFilter} with a few acceleration noises and
+ * compares the raw and the filtered fixes: the position error against the true walk, the speed
+ * error, how many fixes have a course while the user stands still, how often the distance text
+ * changes and how far the shown position jumps between fixes. A recorded trace, given by the wearrow.gpsTrace property, has no true positions, only
+ * the last two are printed for it.
+ */
+public class PositionFilterReplay {
+
+    private static final double[] ACCELERATION_NOISES = {0.2, 0.5, 1, 2}; //m/s^2
+    private static final double STILL_SPEED = 0.1; //m/s
+
+    public static void main(String[] args) {
+        System.out.println("Position filter");
+        replayAll("walk", Traces.gps());
+        replayAll("stop and go", Traces.stopAndGoGps());
+    }
+
+    private static void replayAll(String name, GpsTrace gps) {
+        replay(name, gps, 0);
+        for (double accelerationNoise : ACCELERATION_NOISES)
+            replay(name, gps, accelerationNoise);
+    }
+
+    /**
+     * @param accelerationNoise 0 for the raw fixes
+     */
+    private static void replay(String name, GpsTrace gps, double accelerationNoise) {
+        PositionFilter filter = new PositionFilter(accelerationNoise);
+        GeodesicSolver solver = new GeodesicSolver();
+        DistanceFormatter formatter = new DistanceFormatter("km", "m", "", 0);
+        PositionRecord fix = new PositionRecord(), shown = new PositionRecord();
+        boolean hasTruth = gps.trueLatitude != null;
+
+        double[] errors = new double[gps.size()];
+        double speedErrorSum = 0, jumpSum = 0, lastLat = 0, lastLon = 0;
+        String lastText = null;
+        int textChanges = 0, stillWithCourse = 0;
+        for (int i = 0; i < gps.size(); i++) {
+            fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+            if (accelerationNoise > 0) {
+                filter.update(fix);
+                filter.getFiltered(shown);
+            } else {
+                shown.copyFrom(fix);
+                shown.setMotion(gps.speed[i], gps.bearing[i]);
+            }
+
+            if (hasTruth) {
+                solver.solve(shown.latitude, shown.longitude, gps.trueLatitude[i], gps.trueLongitude[i]);
+                errors[i] = solver.getDistance() * 1000;
+                if (i > 0) {
+                    solver.solve(gps.trueLatitude[i - 1], gps.trueLongitude[i - 1],
+                            gps.trueLatitude[i], gps.trueLongitude[i]);
+                    double trueSpeed = solver.getDistance() * 1000000 / (gps.timeMillis[i] - gps.timeMillis[i - 1]);
+                    speedErrorSum += Math.abs((shown.hasMotion ? shown.speed : 0) - trueSpeed);
+                    if (trueSpeed < STILL_SPEED && shown.hasMotion)
+                        stillWithCourse++;
+                }
+            }
+            if (i > 0) {
+                solver.solve(lastLat, lastLon, shown.latitude, shown.longitude);
+                jumpSum += solver.getDistance() * 1000;
+            }
+            lastLat = shown.latitude;
+            lastLon = shown.longitude;
+
+            solver.solve(shown.latitude, shown.longitude, Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+            String text = formatter.getMlOrKm(solver.getDistance());
+            if (!text.equals(lastText))
+                textChanges++;
+            lastText = text;
+        }
+
+        String filterName = accelerationNoise > 0 ? String.format("filter %.1f m/s2", accelerationNoise) : "raw";
+        if (hasTruth) {
+            double mean = 0;
+            for (double error : errors)
+                mean += error;
+            mean /= errors.length;
+            Arrays.sort(errors);
+            System.out.printf("  %-11s %-16s: error %4.1f m mean %4.1f m p95, speed error %4.2f m/s mean,"
+                            + " %3d still fixes with a course, %3d text changes, %4.2f m moved per fix%n",
+                    name, filterName, mean, errors[(int) (0.95 * errors.length)],
+                    speedErrorSum / (gps.size() - 1), stillWithCourse, textChanges, jumpSum / (gps.size() - 1));
+        } else
+            System.out.printf("  %-11s %-16s: %3d text changes, %4.2f m moved per fix%n", name, filterName,
+                    textChanges, jumpSum / (gps.size() - 1));
+    }
+}
@@ -0,0 +1,67 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionMailbox;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands positions from a message thread to a looper thread through the {@link PositionMailbox},
+ * the looper being a single thread executor that gets a post whenever offer asks for one, like
+ * the watch Handler. The looper is given a few costs per position. Prints how many were shown
+ * and coalesced. The message thread offers as fast as it can, far faster than the watch gets
+ * positions, so nearly all of them coalesce. PositionMailboxTest checks the order and the
+ * coalescing.
+ */
+public class PositionMailboxReplay {
+
+    private static final int POSITIONS = 1000000;
+    private static final long[] LOOPER_WORK_NANOS = {0, 2000, 50000};
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("Position mailbox");
+        for (long work : LOOPER_WORK_NANOS)
+            replay(work);
+    }
+
+    private static void replay(final long looperWorkNanos) throws InterruptedException {
+        final PositionMailbox mailbox = new PositionMailbox();
+        final ExecutorService looper = Executors.newSingleThreadExecutor();
+        final int[] shown = new int[1], emptyPolls = new int[1];
+        Runnable showPosition = new Runnable() {
+            @Override
+            public void run() {
+                PositionRecord position = mailbox.poll();
+                if (position == null) {
+                    emptyPolls[0]++;
+                    return;
+                }
+                shown[0]++;
+                long until = System.nanoTime() + looperWorkNanos;
+                while (System.nanoTime() < until)
+                    Thread.yield();
+            }
+        };
+
+        PositionRecord received = new PositionRecord();
+        int posts = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < POSITIONS; i++) {
+            received.set(i, -i, i, i % 100);
+            if (mailbox.offer(received)) {
+                looper.execute(showPosition);
+                posts++;
+            }
+        }
+        long producerNanos = System.nanoTime() - start;
+        looper.shutdown();
+        if (!looper.awaitTermination(30, TimeUnit.SECONDS))
+            throw new IllegalStateException("looper did not finish");
+
+        System.out.printf("  looper %5.1f us per position: %7d shown, %7d coalesced, %7d posts (%d empty),"
+                        + " offer %4.1f ns%n", looperWorkNanos / 1e3, shown[0], mailbox.getCoalesced(), posts,
+                emptyPolls[0], (double) producerNanos / POSITIONS);
+    }
+}
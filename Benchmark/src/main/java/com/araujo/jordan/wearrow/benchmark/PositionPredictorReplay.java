@@ -0,0 +1,117 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.GeodesicSolver;
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.PositionPredictor;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Replays the stop and go walk on the watch, getting one fix in a few with a link latency, and
+ * compares the position shown at every frame against the true one: holding the last fix, the
+ * {@link PositionPredictor} with the fix motion only, and with the step detector and the watch
+ * heading too. The steps come from the true walk, with a step length the predictor has to
+ * learn, the heading is the true course with the wrist noise. The prediction is asked at every
+ * heading event, like the watch does. Prints the position error in meters, the arrow error in
+ * degrees and how many times per second the predicted position was told to the navigation.
+ */
+public class PositionPredictorReplay {
+
+    private static final int[] FIX_EVERY = {1, 5, 10, 30};
+    private static final long LATENCY_MILLIS = 300;
+    private static final long TICK_MILLIS = 20; //steps and heading
+    private static final int FRAME_TICKS = 5; //the error is measured every 100 ms
+    private static final double TRUE_STEP_LENGTH = 0.75; //meters
+    private static final double HEADING_NOISE = 15; //degrees
+
+    private enum Mode {HOLD, MOTION, STEPS}
+
+    public static void main(String[] args) {
+        System.out.printf("Position prediction, stop and go walk, %d ms latency%n", LATENCY_MILLIS);
+        GpsTrace gps = Traces.stopAndGoGps();
+        for (int every : FIX_EVERY)
+            for (Mode mode : Mode.values())
+                replay(gps, every, mode);
+    }
+
+    private static void replay(GpsTrace gps, int every, Mode mode) {
+        PositionPredictor predictor = new PositionPredictor();
+        predictor.setStepDetector(mode == Mode.STEPS);
+        GeodesicSolver solver = new GeodesicSolver();
+        Random random = new Random(7);
+        PositionRecord fix = new PositionRecord();
+        double[] truth = new double[2];
+
+        int frames = (int) ((gps.size() - 1) * 1000 / (TICK_MILLIS * FRAME_TICKS));
+        double[] errors = new double[frames];
+        double arrowErrorSum = 0;
+        int frame = 0, nextFix = 0, told = 0;
+        boolean hasFix = false;
+        double shownLat = 0, shownLon = 0, walked = 0, lastLat = gps.trueLatitude[0], lastLon = gps.trueLongitude[0];
+
+        for (long t = 0; frame < frames; t += TICK_MILLIS) {
+            long nanos = t * 1000000L;
+            while (nextFix < gps.size() && gps.timeMillis[nextFix] + LATENCY_MILLIS <= t) {
+                int i = nextFix;
+                fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+                fix.setMotion(gps.speed[i], gps.bearing[i]);
+                predictor.onFix(fix, nanos);
+                shownLat = fix.latitude;
+                shownLon = fix.longitude;
+                hasFix = true;
+                nextFix += every;
+            }
+
+            trueAt(gps, t, truth);
+            solver.solve(lastLat, lastLon, truth[0], truth[1]);
+            walked += solver.getDistance() * 1000;
+            if (walked > 0) {
+                predictor.onHeading((float) (solver.getBearing() + random.nextGaussian() * HEADING_NOISE), nanos);
+                if (walked >= TRUE_STEP_LENGTH) {
+                    walked -= TRUE_STEP_LENGTH;
+                    predictor.onStep(nanos);
+                }
+            }
+            lastLat = truth[0];
+            lastLon = truth[1];
+            if (mode != Mode.HOLD && predictor.predict(nanos)) {
+                shownLat = predictor.getLatitude();
+                shownLon = predictor.getLongitude();
+                told++;
+            }
+
+            if (t % (TICK_MILLIS * FRAME_TICKS) != 0 || !hasFix)
+                continue;
+            double lat = shownLat, lon = shownLon;
+            solver.solve(lat, lon, truth[0], truth[1]);
+            errors[frame++] = solver.getDistance() * 1000;
+
+            solver.solve(lat, lon, Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+            double shownBearing = solver.getBearing();
+            solver.solve(truth[0], truth[1], Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+            arrowErrorSum += Math.abs(Geodesy.angleDifference(shownBearing, solver.getBearing()));
+        }
+
+        double mean = 0;
+        for (double error : errors)
+            mean += error;
+        mean /= frames;
+        Arrays.sort(errors);
+        System.out.printf("  a fix every %2d s, %-6s: error %5.1f m mean %5.1f m p95 %5.1f m max,"
+                        + " arrow %4.2f deg mean, step length %.2f m, %4.1f predictions told/s%n", every, mode, mean,
+                errors[(int) (0.95 * frames)], errors[frames - 1], arrowErrorSum / frames,
+                predictor.getStepLength(), told / (gps.size() - 1.0));
+    }
+
+    /**
+     * The true position at the time, between the true positions of the fixes
+     */
+    private static void trueAt(GpsTrace gps, long timeMillis, double[] out) {
+        int i = (int) Math.min(timeMillis / 1000, gps.size() - 2);
+        double f = Math.min(1, (timeMillis - gps.timeMillis[i]) / 1000.0);
+        out[0] = gps.trueLatitude[i] + f * (gps.trueLatitude[i + 1] - gps.trueLatitude[i]);
+        out[1] = gps.trueLongitude[i] + f * (gps.trueLongitude[i + 1] - gps.trueLongitude[i]);
+    }
+}
@@ -0,0 +1,46 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.PositionEncoder;
+import com.araujo.jordan.wearrow.PositionProtocol;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+/**
+ * Sends the GPS trace through the {@link PositionProtocol} encoder and decoder and prints the
+ * payload sizes and the rounding error. Exits with an error when a fix doesn't decode. The
+ * golden bytes are checked by PositionProtocolTest.
+ */
+public class PositionProtocolReplay {
+
+    public static void main(String[] args) {
+        System.out.println("Position protocol");
+        replay(Traces.gps());
+    }
+
+    private static void replay(GpsTrace gps) {
+        PositionEncoder encoder = new PositionEncoder();
+        PositionRecord fix = new PositionRecord();
+        PositionRecord decoded = new PositionRecord();
+        byte[] frame = new byte[PositionProtocol.MAX_FRAME_BYTES];
+        long bytes = 0;
+        double worstMeters = 0;
+        for (int i = 0; i < gps.size(); i++) {
+            fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+            fix.setMotion(gps.speed[i], gps.bearing[i]);
+            int length = encoder.encode(fix, frame, 0);
+            bytes += length;
+            check("trace fix " + i, PositionProtocol.decode(frame, 0, length, decoded)
+                    && decoded.timeMillis == gps.timeMillis[i]);
+            worstMeters = Math.max(worstMeters, 1000 * Geodesy.getDistanceBetween2Points(
+                    gps.latitude[i], gps.longitude[i], decoded.latitude, decoded.longitude));
+        }
+        System.out.printf("  trace: %d fixes, %.1f bytes per fix (legacy %d without time, accuracy or motion),"
+                + " worst rounding %.3f m%n", gps.size(), (double) bytes / gps.size(),
+                PositionProtocol.LEGACY_BYTES, worstMeters);
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok)
+            throw new IllegalStateException(name + " failed");
+    }
+}
@@ -0,0 +1,82 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.ArrivalProviderPolicy;
+import com.araujo.jordan.wearrow.ProviderPolicy;
+import com.araujo.jordan.wearrow.ProviderStrategy;
+
+/**
+ * Simulates a few trips, second by second, with the {@link ProviderStrategy} getting a fix at
+ * the rate of its current request, and prints the GPS-on time and the fixes per trip against
+ * registering the GPS every second for the whole trip, as before. Also checks that, from the
+ * first fix in the last {@link #FINAL_APPROACH_KM}, the GPS gives a fix every second. Exits
+ * with an error when it doesn't.
+ */
+public class ProviderStrategyReplay {
+
+    private static final double FINAL_APPROACH_KM = 0.2;
+
+    /**
+     * A trip as legs of distance in km, speed in m/s and, for a stop, seconds stopped
+     */
+    private static final Object[][] TRIPS = {
+            {"walk 2 km", new double[][]{{2, 1.4, 0}}},
+            {"walk 1 km, 10 min stop halfway", new double[][]{{0.5, 1.4, 0}, {0, 0, 600}, {0.5, 1.4, 0}}},
+            {"drive 20 km, walk 300 m", new double[][]{{20, 15, 0}, {0, 0, 60}, {0.3, 1.4, 0}}},
+            {"bus 8 km with stops, walk 500 m", new double[][]{{2, 8, 0}, {0, 0, 120}, {3, 8, 0}, {0, 0, 120},
+                    {3, 8, 0}, {0.5, 1.4, 0}}},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Location provider strategy");
+        for (Object[] trip : TRIPS)
+            for (boolean watchConnected : new boolean[]{true, false})
+                replay((String) trip[0], (double[][]) trip[1], watchConnected);
+    }
+
+    private static void replay(String name, double[][] legs, boolean watchConnected) {
+        double total = 0;
+        for (double[] leg : legs)
+            total += leg[0];
+
+        ProviderStrategy strategy = new ProviderStrategy(new ArrivalProviderPolicy());
+        ProviderPolicy.Request request = strategy.start(0);
+        long nextFix = 0;
+        int fixes = 0, slowApproachSeconds = 0;
+        boolean approached = false;
+        long seconds = 0;
+        double left = total;
+        for (double[] leg : legs) {
+            double legLeft = leg[0], speed = leg[1];
+            long stopSeconds = (long) leg[2];
+            while (legLeft > 1e-9 || stopSeconds > 0) {
+                long now = seconds * 1000;
+                if (now >= nextFix) {
+                    fixes++;
+                    if (strategy.onFix(left, (float) speed, watchConnected, now))
+                        request = strategy.getRequest();
+                    nextFix = now + Math.max(request.minTimeMillis, 1000);
+                    approached |= left < FINAL_APPROACH_KM;
+                }
+                if (approached && (!request.gps || request.minTimeMillis > 1000))
+                    slowApproachSeconds++;
+
+                seconds++;
+                if (stopSeconds > 0)
+                    stopSeconds--;
+                else {
+                    double moved = Math.min(legLeft, speed / 1000);
+                    legLeft -= moved;
+                    left -= moved;
+                }
+            }
+        }
+        strategy.stop(seconds * 1000);
+
+        if (slowApproachSeconds > 0)
+            throw new IllegalStateException(name + ": " + slowApproachSeconds + " s of the final approach without 1 s GPS");
+        System.out.printf("  %-32s %-9s: %5.1f min trip, GPS on %5.1f min (%3.0f%%), %4d fixes instead of %4d,"
+                        + " %d request changes%n", name, watchConnected ? "wear" : "no wear", seconds / 60.0,
+                strategy.getGpsMillis() / 60000.0, 100.0 * strategy.getGpsMillis() / (seconds * 1000), fixes,
+                seconds, strategy.getChanges());
+    }
+}
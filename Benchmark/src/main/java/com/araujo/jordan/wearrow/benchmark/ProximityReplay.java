@@ -0,0 +1,92 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.ArrivalProviderPolicy;
+import com.araujo.jordan.wearrow.GeodesicSolver;
+import com.araujo.jordan.wearrow.GeofenceProviderPolicy;
+import com.araujo.jordan.wearrow.LocationSource;
+import com.araujo.jordan.wearrow.PositionRecord;
+import com.araujo.jordan.wearrow.ProviderPolicy;
+import com.araujo.jordan.wearrow.ProviderStrategy;
+import com.araujo.jordan.wearrow.ProximityGeofence;
+import com.araujo.jordan.wearrow.SpeedEstimator;
+import com.araujo.jordan.wearrow.TraceLocationSource;
+
+/**
+ * Replays generated trips through a {@link TraceLocationSource} and the
+ * {@link ProviderStrategy}, with and without the {@link ProximityGeofence}, and prints how long
+ * the heading sensors and the GPS were on. The sensors are on while the geofence is not
+ * dormant. Exits with an error if the user was inside the ring while it was dormant.
+ */
+public class ProximityReplay {
+
+    private static final Object[][] TRIPS = {
+            {"walk 2 km", new double[][]{{2, 1.4, 0}}},
+            {"drive 20 km, walk 300 m", new double[][]{{20, 15, 0}, {0, 0, 60}, {0.3, 1.4, 0}}},
+            {"bus 8 km with stops, walk 500 m", new double[][]{{2, 8, 0}, {0, 0, 120}, {3, 8, 0}, {0, 0, 120},
+                    {3, 8, 0}, {0.5, 1.4, 0}}},
+            {"train 60 km, walk 1 km", new double[][]{{60, 25, 0}, {0, 0, 180}, {1, 1.4, 0}}},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Proximity geofence");
+        for (Object[] trip : TRIPS) {
+            GpsTrace trace = Traces.tripGps((double[][]) trip[1]);
+            for (boolean isProximityMode : new boolean[]{false, true})
+                replay((String) trip[0], trace, isProximityMode);
+        }
+    }
+
+    private static void replay(String name, GpsTrace trace, final boolean isProximityMode) {
+        final TraceLocationSource source = new TraceLocationSource(trace.toFixes(), false);
+        final ProximityGeofence geofence = new ProximityGeofence();
+        ProviderPolicy policy = new ArrivalProviderPolicy();
+        final ProviderStrategy strategy = new ProviderStrategy(isProximityMode
+                ? new GeofenceProviderPolicy(policy, geofence) : policy);
+        final GeodesicSolver geodesicSolver = new GeodesicSolver();
+        final SpeedEstimator speedEstimator = new SpeedEstimator(); //the network fixes have no speed
+        final long[] now = new long[1];
+
+        LocationSource.Listener listener = new LocationSource.Listener() {
+            @Override
+            public void onLocation(PositionRecord fix, String provider, int remaining) {
+                speedEstimator.onFix(fix);
+                if (remaining > 0)
+                    return;
+                geodesicSolver.solve(fix.latitude, fix.longitude, Traces.DESTINATION.latitude,
+                        Traces.DESTINATION.longitude);
+                double distance = geodesicSolver.getDistance();
+                if (isProximityMode)
+                    geofence.onFix(distance, speedEstimator.getSpeed(), now[0]);
+                if (strategy.onFix(distance, speedEstimator.getSpeed(), true, now[0]))
+                    source.start(strategy.getRequest(), this);
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {
+            }
+        };
+
+        geofence.start(0);
+        source.start(strategy.start(0), listener);
+        int dormantInside = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            now[0] = trace.timeMillis[i];
+            source.advanceTo(now[0]);
+            geodesicSolver.solve(trace.trueLatitude[i], trace.trueLongitude[i], Traces.DESTINATION.latitude,
+                    Traces.DESTINATION.longitude);
+            if (geofence.isDormant() && geodesicSolver.getDistance() < geofence.getWakeDistance())
+                dormantInside++;
+        }
+        long end = trace.timeMillis[trace.size() - 1] + 1000;
+        source.stop();
+        strategy.stop(end);
+
+        if (dormantInside > 0)
+            throw new IllegalStateException(name + ": dormant for " + dormantInside + " s inside the ring");
+        long sensorMillis = end - geofence.getDormantMillis(end);
+        System.out.printf("  %-32s %-10s: %5.1f min trip, sensors on %5.1f min (%3.0f%%), GPS on %5.1f min"
+                        + " (%3.0f%%), %4d fixes%n", name, isProximityMode ? "proximity" : "always on", end / 60000.0,
+                sensorMillis / 60000.0, 100.0 * sensorMillis / end, strategy.getGpsMillis() / 60000.0,
+                100.0 * strategy.getGpsMillis() / end, source.getFixesDelivered());
+    }
+}
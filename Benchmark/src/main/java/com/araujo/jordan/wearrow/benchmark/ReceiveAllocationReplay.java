@@ -0,0 +1,63 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionCodec;
+import com.araujo.jordan.wearrow.PositionEncoder;
+import com.araujo.jordan.wearrow.PositionProtocol;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Decodes the GPS trace messages many times, as the watch receives them, and counts the bytes
+ * allocated by this thread, against the legacy toDoubleArray. PositionReceiveTest checks that
+ * the decode doesn't allocate. Needs a JVM with {@code com.sun.management.ThreadMXBean}, like
+ * HotSpot.
+ */
+public class ReceiveAllocationReplay {
+
+    private static final int ROUNDS = 200;
+
+    static volatile double sink; //keeps the decoded values alive
+
+    public static void main(String[] args) {
+        System.out.println("Watch receive allocations");
+        GpsTrace gps = Traces.gps();
+        byte[][] messages = new byte[gps.size()][];
+        byte[][] legacyMessages = new byte[gps.size()][];
+        PositionEncoder encoder = new PositionEncoder();
+        PositionRecord fix = new PositionRecord();
+        for (int i = 0; i < gps.size(); i++) {
+            fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+            fix.setMotion(gps.speed[i], gps.bearing[i]);
+            messages[i] = encoder.encode(fix);
+            legacyMessages[i] = PositionCodec.toByteArray(new double[]{gps.latitude[i], gps.longitude[i]});
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        PositionRecord received = new PositionRecord();
+
+        //warm up first, so the interpreter and the compiler don't count
+        for (int round = 0; round < ROUNDS; round++)
+            for (byte[] message : messages)
+                PositionProtocol.decode(message, 0, message.length, received);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int round = 0; round < ROUNDS; round++)
+            for (byte[] message : messages)
+                if (PositionProtocol.decode(message, 0, message.length, received))
+                    sink += received.latitude;
+        long decodeBytes = threads.getThreadAllocatedBytes(thread) - before;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int round = 0; round < ROUNDS; round++)
+            for (byte[] message : legacyMessages)
+                sink += PositionCodec.toDoubleArray(message)[0];
+        long legacyBytes = threads.getThreadAllocatedBytes(thread) - before;
+
+        int decoded = ROUNDS * messages.length;
+        System.out.printf("  decode: %.2f B per message, toDoubleArray: %.2f B per message%n",
+                (double) decodeBytes / decoded, (double) legacyBytes / decoded);
+    }
+}
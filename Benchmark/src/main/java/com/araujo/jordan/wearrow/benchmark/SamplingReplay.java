@@ -0,0 +1,50 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.AdaptiveSampler;
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.HeadingFusion;
+import com.araujo.jordan.wearrow.VelocitySamplingPolicy;
+
+/**
+ * Replays the heading traces with the sensor rate fixed at SENSOR_DELAY_UI and with the
+ * {@link AdaptiveSampler}, and prints the samples and CPU wakeups per minute of each one.
+ * A batch delivered after maxReportLatencyUs counts as a single wakeup.
+ */
+public class SamplingReplay {
+
+    public static void main(String[] args) {
+        System.out.println("Adaptive sampling");
+        replay("walking", Traces.rotationVector());
+        replay("resting", Traces.restingRotationVector());
+    }
+
+    private static void replay(String name, SensorTrace trace) {
+        double minutes = (trace.timeNanos[trace.size() - 1] - trace.timeNanos[0]) / 60e9;
+        long fixedSamples = (trace.timeNanos[trace.size() - 1] - trace.timeNanos[0])
+                / (VelocitySamplingPolicy.PERIOD_UI_US * 1000L);
+
+        AdaptiveSampler sampler = new AdaptiveSampler(new VelocitySamplingPolicy());
+        HeadingFusion fusion = new HeadingFusion();
+        long samples = 0, wakeups = 0;
+        long lastWakeup = 0;
+        int event = 0;
+        for (long t = trace.timeNanos[0]; t <= trace.timeNanos[trace.size() - 1];
+             t += sampler.getSamplingPeriodUs() * 1000L) {
+            while (event + 1 < trace.size() && trace.timeNanos[event + 1] <= t)
+                event++;
+            fusion.onRotationVector(trace.values[event]);
+            fusion.update();
+            samples++;
+
+            if (samples == 1 || t - lastWakeup >= sampler.getMaxReportLatencyUs() * 1000L) {
+                wakeups++;
+                lastWakeup = t;
+            }
+            sampler.onHeading((float) Geodesy.rad2deg(fusion.getAzimuth()), t);
+        }
+
+        System.out.printf("  %s: fixed UI rate %.0f wakeups/min, adaptive %.0f samples/min %.0f wakeups/min,"
+                        + " %d rate changes%n", name, fixedSamples / minutes, samples / minutes,
+                wakeups / minutes, sampler.getRateChanges());
+    }
+}
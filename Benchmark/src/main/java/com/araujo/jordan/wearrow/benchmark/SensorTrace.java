@@ -0,0 +1,26 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+/**
+ * A replayable list of sensor events, in the order they reached onSensorChanged.
+ */
+public class SensorTrace {
+
+    public static final int TYPE_ACCELEROMETER = 1; //same values as android.hardware.Sensor
+    public static final int TYPE_MAGNETIC_FIELD = 2;
+    public static final int TYPE_ROTATION_VECTOR = 11;
+    public static final int TYPE_GEOMAGNETIC_ROTATION_VECTOR = 20;
+
+    public final long[] timeNanos;
+    public final int[] types;
+    public final float[][] values;
+
+    public SensorTrace(long[] timeNanos, int[] types, float[][] values) {
+        this.timeNanos = timeNanos;
+        this.types = types;
+        this.values = values;
+    }
+
+    public int size() {
+        return types.length;
+    }
+}
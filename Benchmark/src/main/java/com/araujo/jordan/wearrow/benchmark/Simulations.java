@@ -0,0 +1,29 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+/**
+ * Runs every trace replay, see the simulate task of this module
+ */
+public class Simulations {
+
+    public static void main(String[] args) throws InterruptedException {
+        HeadingSourceReplay.main(args);
+        SamplingReplay.main(args);
+        HeadingFilterReplay.main(args);
+        GeodesyAccuracyReplay.main(args);
+        TrigonometryAccuracyReplay.main(args);
+        PositionProtocolReplay.main(args);
+        ReceiveAllocationReplay.main(args);
+        BatchingReplay.main(args);
+        TransportExecutorReplay.main(args);
+        NodeRegistryReplay.main(args);
+        TransportPipelineReplay.main(args);
+        SyncModeReplay.main(args);
+        ForwardingReplay.main(args);
+        PositionMailboxReplay.main(args);
+        PositionPredictorReplay.main(args);
+        PositionFilterReplay.main(args);
+        ProviderStrategyReplay.main(args);
+        LocationSourceReplay.main(args);
+        ProximityReplay.main(args);
+    }
+}
@@ -0,0 +1,113 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionBatcher;
+import com.araujo.jordan.wearrow.PositionRecord;
+import com.araujo.jordan.wearrow.PositionSender;
+import com.araujo.jordan.wearrow.PositionTransport;
+import com.araujo.jordan.wearrow.SyncMode;
+import com.araujo.jordan.wearrow.TransportExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the GPS trace in both {@link SyncMode}s on a lossy {@link LoopbackTransport} that drops
+ * the watch for a minute of the trace, {@link #SPEEDUP} times faster than real time. Prints the
+ * messages over the link, the fixes the watch decoded, the backlog it got in the first message
+ * after the reconnect, the published states replaced before delivery and how old the watch position was while connected, in trace seconds,
+ * sampled at every fix.
+ */
+public class SyncModeReplay {
+
+    private static final int SPEEDUP = 100;
+    private static final int FIXES = 300;
+    private static final int DISCONNECT_FROM = 100, DISCONNECT_TO = 160; //fix indexes
+
+    private static final double[][] LINKS = { //latency ms, loss, the latency is 0.2 s of trace
+            {2, 0}, {2, 0.05}
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("Sync modes, %d fixes %d times faster than the trace, disconnected from fix %d to %d%n",
+                FIXES, SPEEDUP, DISCONNECT_FROM, DISCONNECT_TO);
+        GpsTrace gps = Traces.gps();
+        for (double[] link : LINKS)
+            for (SyncMode syncMode : SyncMode.values())
+                replay(gps, link, syncMode);
+    }
+
+    private static void replay(GpsTrace gps, double[] link, SyncMode syncMode) throws InterruptedException {
+        TransportExecutor executor = new TransportExecutor();
+        final LoopbackTransport transport = new LoopbackTransport(link[0], link[1], 0, 1);
+        final WatchReceiver receiver = new WatchReceiver();
+        final boolean[] reconnected = new boolean[1];
+        final int[] backlog = {-1};
+        transport.setReceiver(new PositionTransport.Receiver() {
+            @Override
+            public void onMessage(String path, byte[] data) {
+                int before = receiver.getFixesDecoded();
+                receiver.onMessage(path, data);
+                synchronized (reconnected) {
+                    if (reconnected[0] && backlog[0] < 0)
+                        backlog[0] = receiver.getFixesDecoded() - before;
+                }
+            }
+        });
+        PositionBatcher batcher = new PositionBatcher(8, 2000 / SPEEDUP, 4);
+        PositionSender sender = new PositionSender(batcher, executor, transport);
+        sender.setSyncMode(syncMode);
+        PositionRecord fix = new PositionRecord();
+
+        long ageSum = 0, maxAge = 0;
+        int ages = 0;
+        long start = System.nanoTime();
+        long flushAt = -1;
+        for (int i = 0; i < FIXES; i++) {
+            long fixNanos = start + i * 1000000000L / SPEEDUP;
+            while (System.nanoTime() < fixNanos) {
+                if (flushAt >= 0 && System.nanoTime() >= flushAt) {
+                    sender.flush();
+                    flushAt = -1;
+                }
+                Thread.sleep(0, 200000);
+            }
+
+            if (i == DISCONNECT_FROM)
+                transport.setConnected(false);
+            else if (i == DISCONNECT_TO) {
+                synchronized (reconnected) {
+                    reconnected[0] = true;
+                }
+                transport.setConnected(true);
+            }
+            long last = receiver.getLastTimeMillis();
+            if (last != Long.MIN_VALUE && (i < DISCONNECT_FROM || i > DISCONNECT_TO)) {
+                long age = i * 1000L - last;
+                ageSum += age;
+                maxAge = Math.max(maxAge, age);
+                ages++;
+            }
+
+            int g = i % gps.size();
+            fix.set(gps.latitude[g], gps.longitude[g], i * 1000L, gps.accuracy[g]);
+            fix.setMotion(gps.speed[g], gps.bearing[g]);
+            long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            long delay = sender.add(fix, now);
+            if (delay == 0) {
+                sender.flush();
+                flushAt = -1;
+            } else
+                flushAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        Thread.sleep(500);
+        transport.shutdown();
+        transport.awaitTermination(5, TimeUnit.SECONDS);
+
+        System.out.printf("  %2.0f%% loss %-9s: %3d messages over the link, %3d fixes decoded, %2d fixes in the"
+                        + " first message after the reconnect, %2d states collapsed, watch position %4.1f s old on average %4.1f s"
+                        + " at most while connected%n",
+                link[1] * 100, syncMode, transport.getMessagesSent(), receiver.getFixesDecoded(),
+                backlog[0], transport.getStatesCollapsed(), ageSum / 1000.0 / ages, maxAge / 1000.0);
+    }
+}
@@ -0,0 +1,280 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.LatLng;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sensor and GPS traces used by the benchmarks and simulations.
+ * <p/>
+ * Recorded traces are read from csv files given by the system properties
+ * {@code wearrow.sensorTrace} (timeNanos,type,x,y,z), {@code wearrow.rotationVectorTrace}
+ * (timeNanos,type,x,y,z,w) and {@code wearrow.gpsTrace}
+ * (timeMillis,latitude,longitude,accuracy,speed,bearing). Without them a walk is generated,
+ * always with the same seed, so runs stay comparable. The generated sensor traces have the same
+ * headings, one as accelerometer and magnetometer events, the other as rotation vector events.
+ */
+public final class Traces {
+
+    public static final LatLng DESTINATION = new LatLng(37.4300, -122.0750);
+
+    private static final LatLng START = new LatLng(37.4220, -122.0841);
+    private static final int DURATION_SECONDS = 600;
+    private static final long SENSOR_PERIOD_NANOS = 60000000L; //SENSOR_DELAY_UI
+    private static final double WALK_SPEED = 1.4; //m/s
+    private static final double GPS_NOISE = 4; //m
+    private static final double GPS_SPEED_NOISE = 0.2, GPS_BEARING_NOISE = 8; //m/s, degrees
+    private static final int STOP_SECONDS = 30;
+    private static final float HORIZONTAL_FIELD = 22f, VERTICAL_FIELD = 40f; //uT
+    private static final long SEED = 42;
+
+    private Traces() {
+    }
+
+    public static SensorTrace sensor() {
+        String file = System.getProperty("wearrow.sensorTrace");
+        if (file != null)
+            return readSensor(file);
+        return generateSensor(false, false);
+    }
+
+    public static SensorTrace rotationVector() {
+        String file = System.getProperty("wearrow.rotationVectorTrace");
+        if (file != null)
+            return readSensor(file);
+        return generateSensor(true, false);
+    }
+
+    /**
+     * A watch left on a table, the heading only moves with the sensor noise
+     */
+    public static SensorTrace restingRotationVector() {
+        return generateSensor(true, true);
+    }
+
+    public static GpsTrace gps() {
+        String file = System.getProperty("wearrow.gpsTrace");
+        if (file != null)
+            return readGps(file);
+        return generateGps();
+    }
+
+    /**
+     * Bearing of the generated walk, a leg every 2 minutes turning at the corners
+     */
+    private static double routeBearing(double seconds) {
+        final double[] legs = {45, 45, 135, 45, 0};
+        return legs[Math.min(legs.length - 1, (int) (seconds / 120))];
+    }
+
+    private static SensorTrace generateSensor(boolean rotationVector, boolean resting) {
+        Random random = new Random(SEED);
+        int samples = (int) (DURATION_SECONDS * 1000000000L / SENSOR_PERIOD_NANOS);
+        int eventsPerSample = rotationVector ? 1 : 2;
+        long[] time = new long[samples * eventsPerSample];
+        int[] types = new int[samples * eventsPerSample];
+        float[][] values = new float[samples * eventsPerSample][];
+
+        for (int i = 0; i < samples; i++) {
+            long t = i * SENSOR_PERIOD_NANOS;
+            double seconds = t / 1e9;
+            double heading = resting
+                    ? Geodesy.deg2rad(routeBearing(0) + random.nextGaussian() * 0.2)
+                    : Geodesy.deg2rad(routeBearing(seconds)
+                    + 10 * Math.sin(2 * Math.PI * seconds / 1.1) //arm swing while walking
+                    + random.nextGaussian() * 2);
+            float[] gravity = {
+                    (float) (random.nextGaussian() * 0.3),
+                    (float) (random.nextGaussian() * 0.3),
+                    (float) (9.81 + random.nextGaussian() * 0.3)};
+            float[] geomagnetic = {
+                    (float) (-HORIZONTAL_FIELD * Math.sin(heading) + random.nextGaussian()),
+                    (float) (HORIZONTAL_FIELD * Math.cos(heading) + random.nextGaussian()),
+                    (float) (-VERTICAL_FIELD + random.nextGaussian())};
+
+            if (rotationVector) {
+                //device flat, turned around the z axis
+                time[i] = t;
+                types[i] = SensorTrace.TYPE_ROTATION_VECTOR;
+                values[i] = new float[]{0, 0, (float) -Math.sin(heading / 2),
+                        (float) Math.cos(heading / 2)};
+            } else {
+                time[2 * i] = t;
+                types[2 * i] = SensorTrace.TYPE_ACCELEROMETER;
+                values[2 * i] = gravity;
+                time[2 * i + 1] = t + SENSOR_PERIOD_NANOS / 2;
+                types[2 * i + 1] = SensorTrace.TYPE_MAGNETIC_FIELD;
+                values[2 * i + 1] = geomagnetic;
+            }
+        }
+        return new SensorTrace(time, types, values);
+    }
+
+    /**
+     * The generated walk with a stop of {@link #STOP_SECONDS} at every corner, and noise on the
+     * speed and course too, with the true positions. Always generated.
+     */
+    public static GpsTrace stopAndGoGps() {
+        Random random = new Random(SEED);
+        int fixes = DURATION_SECONDS;
+        long[] time = new long[fixes];
+        double[] lat = new double[fixes], lon = new double[fixes];
+        double[] trueLat = new double[fixes], trueLon = new double[fixes];
+        float[] accuracy = new float[fixes], speed = new float[fixes], bearing = new float[fixes];
+
+        double latitude = START.latitude, longitude = START.longitude;
+        for (int i = 0; i < fixes; i++) {
+            boolean stopped = i % 120 >= 120 - STOP_SECONDS;
+            double trueSpeed = stopped ? 0 : WALK_SPEED;
+            double b = Geodesy.deg2rad(routeBearing(i));
+            latitude += trueSpeed * Math.cos(b) / Geodesy.METERS_PER_DEGREE;
+            longitude += trueSpeed * Math.sin(b) / (Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(latitude)));
+            trueLat[i] = latitude;
+            trueLon[i] = longitude;
+
+            time[i] = i * 1000L;
+            lat[i] = latitude + random.nextGaussian() * GPS_NOISE / Geodesy.METERS_PER_DEGREE;
+            lon[i] = longitude + random.nextGaussian() * GPS_NOISE
+                    / (Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(latitude)));
+            accuracy[i] = (float) (GPS_NOISE + Math.abs(random.nextGaussian()) * 3);
+            speed[i] = (float) Math.abs(trueSpeed + random.nextGaussian() * GPS_SPEED_NOISE);
+            bearing[i] = (float) (stopped ? random.nextDouble() * 360
+                    : (routeBearing(i) + random.nextGaussian() * GPS_BEARING_NOISE + 360) % 360);
+        }
+        return new GpsTrace(time, lat, lon, accuracy, speed, bearing, trueLat, trueLon);
+    }
+
+    /**
+     * A trip straight north to {@link #DESTINATION}, a fix every second, with the true
+     * positions. Always generated.
+     *
+     * @param legs each a distance in km, a speed in m/s and, for a stop, the seconds stopped
+     */
+    public static GpsTrace tripGps(double[][] legs) {
+        Random random = new Random(SEED);
+        double total = 0;
+        int fixes = 0;
+        for (double[] leg : legs) {
+            total += leg[0];
+            fixes += leg[1] > 0 ? (int) Math.ceil(leg[0] * 1000 / leg[1]) : 0;
+            fixes += (int) leg[2];
+        }
+        long[] time = new long[fixes];
+        double[] lat = new double[fixes], lon = new double[fixes];
+        double[] trueLat = new double[fixes], trueLon = new double[fixes];
+        float[] accuracy = new float[fixes], speed = new float[fixes], bearing = new float[fixes];
+
+        double metersPerDegreeLongitude = Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(DESTINATION.latitude));
+        double left = total * 1000; //meters
+        int i = 0;
+        for (double[] leg : legs) {
+            double legLeft = leg[0] * 1000;
+            int stopSeconds = (int) leg[2];
+            while (i < fixes && (legLeft > 1e-6 || stopSeconds > 0)) {
+                double trueSpeed = 0;
+                if (stopSeconds > 0)
+                    stopSeconds--;
+                else {
+                    double moved = Math.min(legLeft, leg[1]);
+                    legLeft -= moved;
+                    left -= moved;
+                    trueSpeed = leg[1];
+                }
+                trueLat[i] = DESTINATION.latitude - left / Geodesy.METERS_PER_DEGREE;
+                trueLon[i] = DESTINATION.longitude;
+
+                time[i] = i * 1000L;
+                lat[i] = trueLat[i] + random.nextGaussian() * GPS_NOISE / Geodesy.METERS_PER_DEGREE;
+                lon[i] = trueLon[i] + random.nextGaussian() * GPS_NOISE / metersPerDegreeLongitude;
+                accuracy[i] = (float) (GPS_NOISE + Math.abs(random.nextGaussian()) * 3);
+                speed[i] = (float) Math.abs(trueSpeed + random.nextGaussian() * GPS_SPEED_NOISE);
+                bearing[i] = (float) (trueSpeed == 0 ? random.nextDouble() * 360
+                        : (random.nextGaussian() * GPS_BEARING_NOISE + 360) % 360);
+                i++;
+            }
+        }
+        return new GpsTrace(time, lat, lon, accuracy, speed, bearing, trueLat, trueLon);
+    }
+
+    private static GpsTrace generateGps() {
+        Random random = new Random(SEED);
+        int fixes = DURATION_SECONDS;
+        long[] time = new long[fixes];
+        double[] lat = new double[fixes], lon = new double[fixes];
+        float[] accuracy = new float[fixes], speed = new float[fixes], bearing = new float[fixes];
+        double[] trueLatitude = new double[fixes], trueLongitude = new double[fixes];
+
+        double trueLat = START.latitude, trueLon = START.longitude;
+        for (int i = 0; i < fixes; i++) {
+            double b = Geodesy.deg2rad(routeBearing(i));
+            trueLat += WALK_SPEED * Math.cos(b) / Geodesy.METERS_PER_DEGREE;
+            trueLon += WALK_SPEED * Math.sin(b) / (Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(trueLat)));
+            trueLatitude[i] = trueLat;
+            trueLongitude[i] = trueLon;
+
+            time[i] = i * 1000L;
+            lat[i] = trueLat + random.nextGaussian() * GPS_NOISE / Geodesy.METERS_PER_DEGREE;
+            lon[i] = trueLon + random.nextGaussian() * GPS_NOISE
+                    / (Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(trueLat)));
+            accuracy[i] = (float) (GPS_NOISE + Math.abs(random.nextGaussian()) * 3);
+            speed[i] = (float) WALK_SPEED;
+            bearing[i] = (float) routeBearing(i);
+        }
+        return new GpsTrace(time, lat, lon, accuracy, speed, bearing, trueLatitude, trueLongitude);
+    }
+
+    private static SensorTrace readSensor(String file) {
+        List<String[]> rows = readCsv(file);
+        long[] time = new long[rows.size()];
+        int[] types = new int[rows.size()];
+        float[][] values = new float[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            time[i] = Long.parseLong(row[0]);
+            types[i] = Integer.parseInt(row[1]);
+            values[i] = new float[row.length - 2];
+            for (int v = 0; v < values[i].length; v++)
+                values[i][v] = Float.parseFloat(row[v + 2]);
+        }
+        return new SensorTrace(time, types, values);
+    }
+
+    private static GpsTrace readGps(String file) {
+        List<String[]> rows = readCsv(file);
+        int size = rows.size();
+        long[] time = new long[size];
+        double[] lat = new double[size], lon = new double[size];
+        float[] accuracy = new float[size], speed = new float[size], bearing = new float[size];
+        for (int i = 0; i < size; i++) {
+            String[] row = rows.get(i);
+            time[i] = Long.parseLong(row[0]);
+            lat[i] = Double.parseDouble(row[1]);
+            lon[i] = Double.parseDouble(row[2]);
+            accuracy[i] = Float.parseFloat(row[3]);
+            speed[i] = Float.parseFloat(row[4]);
+            bearing[i] = Float.parseFloat(row[5]);
+        }
+        return new GpsTrace(time, lat, lon, accuracy, speed, bearing);
+    }
+
+    private static List<String[]> readCsv(String file) {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    rows.add(line.split(","));
+            }
+        } catch (IOException error) {
+            throw new IllegalArgumentException("Can't read trace " + file, error);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,92 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.TransportExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A burst of fixes on a slow link, sent the old way, with a thread for the node query and one
+ * for the send of every fix, and through the {@link TransportExecutor}. Prints the threads each
+ * one created, the peak of live threads and how many sends reached the link.
+ */
+public class TransportExecutorReplay {
+
+    private static final int FIXES = 200;
+    private static final long FIX_INTERVAL_MILLIS = 5;
+    private static final long NODE_QUERY_MILLIS = 20; //the await on getConnectedNodes
+    private static final long SEND_MILLIS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("Transport threads, %d fixes every %d ms, node query %d ms, send %d ms%n",
+                FIXES, FIX_INTERVAL_MILLIS, NODE_QUERY_MILLIS, SEND_MILLIS);
+        executor();
+        threadPerFix();
+    }
+
+    private static void threadPerFix() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int before = threads.getThreadCount();
+        final AtomicInteger sends = new AtomicInteger();
+        int created = 0;
+        Thread[] senders = new Thread[FIXES];
+        for (int i = 0; i < FIXES; i++) {
+            new Thread(new Runnable() { //getNodes
+                @Override
+                public void run() {
+                    sleep(NODE_QUERY_MILLIS);
+                }
+            }).start();
+            senders[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    sleep(SEND_MILLIS);
+                    sends.incrementAndGet();
+                }
+            });
+            senders[i].start();
+            created += 2;
+            sleep(FIX_INTERVAL_MILLIS);
+        }
+        for (Thread sender : senders)
+            sender.join();
+        System.out.printf("  thread per fix: %d threads created, peak %d more live, %d sends%n",
+                created, threads.getPeakThreadCount() - before, sends.get());
+    }
+
+    private static void executor() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int before = threads.getThreadCount();
+        final AtomicInteger sends = new AtomicInteger();
+        TransportExecutor executor = new TransportExecutor();
+        Runnable send = new Runnable() {
+            @Override
+            public void run() {
+                sleep(NODE_QUERY_MILLIS);
+                sleep(SEND_MILLIS);
+                sends.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < FIXES; i++) {
+            executor.submitLatest(send);
+            sleep(FIX_INTERVAL_MILLIS);
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.printf("  transport executor: %d threads created, peak %d more live, %d sends,"
+                        + " %d stale dropped, max queue depth %d%n", executor.getThreadsCreated(),
+                threads.getPeakThreadCount() - before, sends.get(), executor.getStaleDropped(), executor.getMaxQueueDepth());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
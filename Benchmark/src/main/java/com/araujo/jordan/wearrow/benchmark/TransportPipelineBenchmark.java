@@ -0,0 +1,95 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionBatcher;
+import com.araujo.jordan.wearrow.PositionRecord;
+import com.araujo.jordan.wearrow.PositionSender;
+import com.araujo.jordan.wearrow.SyncMode;
+import com.araujo.jordan.wearrow.TransportExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The handheld to watch pipeline on a {@link LoopbackTransport} with no latency: batcher,
+ * transport thread, encoder, link thread and decoder. fixToWatch is the latency of one fix
+ * until the watch decoded it, fixes the rate the handheld side takes fixes in, coalescing
+ * the sends it can't keep up with, in both {@link SyncMode}s. TransportPipelineReplay adds
+ * latency, loss and bandwidth, SyncModeReplay a disconnection.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportPipelineBenchmark {
+
+    @Param({"MESSAGE", "DATA_ITEM"})
+    public SyncMode syncMode;
+
+    private GpsTrace gps;
+    private int index;
+    private long timeMillis;
+
+    private final PositionRecord fix = new PositionRecord();
+    private TransportExecutor executor;
+    private LoopbackTransport transport;
+    private PositionSender sender;
+    private WatchReceiver receiver;
+
+    @Setup
+    public void setup() {
+        gps = Traces.gps();
+        executor = new TransportExecutor();
+        transport = new LoopbackTransport();
+        receiver = new WatchReceiver();
+        transport.setReceiver(receiver);
+        sender = new PositionSender(new PositionBatcher(8, 0, 1), executor, transport);
+        sender.setSyncMode(syncMode);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        transport.shutdown();
+    }
+
+    private void addFix() {
+        int i = index;
+        index = (i + 1) % gps.size();
+        timeMillis += 1000;
+        fix.set(gps.latitude[i], gps.longitude[i], timeMillis, gps.accuracy[i]);
+        fix.setMotion(gps.speed[i], gps.bearing[i]);
+        if (sender.add(fix, timeMillis) == 0)
+            sender.flush();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long fixToWatch() {
+        addFix();
+        while (receiver.getLastTimeMillis() != timeMillis)
+            Thread.yield();
+        return receiver.getLastReceivedNanos();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long fixes() {
+        addFix();
+        return timeMillis;
+    }
+}
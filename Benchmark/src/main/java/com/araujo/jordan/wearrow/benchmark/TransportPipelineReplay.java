@@ -0,0 +1,110 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionBatcher;
+import com.araujo.jordan.wearrow.PositionRecord;
+import com.araujo.jordan.wearrow.PositionSender;
+import com.araujo.jordan.wearrow.TransportExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the GPS trace through the whole pipeline on a {@link LoopbackTransport} with a few
+ * links, in real time but {@link #SPEEDUP} times faster, and prints what reached the watch and
+ * how late. A lost key frame also makes the watch reject the delta frames relative to it, so the
+ * fixes decoded count both.
+ */
+public class TransportPipelineReplay {
+
+    private static final int SPEEDUP = 100; //a 1 Hz trace sends a fix every 10 ms
+    private static final int FIXES = 300;
+
+    private static final double[][] LINKS = { //latency ms, loss, bytes per second
+            {0, 0, 0}, {20, 0, 0}, {20, 0.05, 0}, {20, 0, 2000}
+    };
+    private static final long[][] BATCHING = { //flush interval in trace ms, max batch size
+            {0, 1}, {2000, 4}
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("Transport pipeline, %d fixes %d times faster than the trace%n", FIXES, SPEEDUP);
+        GpsTrace gps = Traces.gps();
+        for (double[] link : LINKS)
+            for (long[] batching : BATCHING)
+                replay(gps, link, batching[0], (int) batching[1]);
+    }
+
+    private static void replay(GpsTrace gps, double[] link, long flushIntervalMillis, int maxBatchSize)
+            throws InterruptedException {
+        TransportExecutor executor = new TransportExecutor();
+        LoopbackTransport transport = new LoopbackTransport(link[0], link[1], (long) link[2], 1);
+        final WatchReceiver receiver = new WatchReceiver();
+        final long[] addedNanos = new long[FIXES];
+        final long[] latencies = new long[FIXES];
+        final int[] latencyCount = new int[1];
+        transport.setReceiver(new com.araujo.jordan.wearrow.PositionTransport.Receiver() {
+            @Override
+            public void onMessage(String path, byte[] data) {
+                long before = receiver.getLastTimeMillis();
+                receiver.onMessage(path, data);
+                long time = receiver.getLastTimeMillis();
+                if (time != before)
+                    latencies[latencyCount[0]++] = receiver.getLastReceivedNanos() - addedNanos[(int) (time / 1000)];
+            }
+        });
+        PositionBatcher batcher = new PositionBatcher(Math.max(8, maxBatchSize * 2),
+                flushIntervalMillis / SPEEDUP, maxBatchSize);
+        PositionSender sender = new PositionSender(batcher, executor, transport);
+        PositionRecord fix = new PositionRecord();
+
+        long start = System.nanoTime();
+        long flushAt = -1;
+        for (int i = 0; i < FIXES; i++) {
+            long fixNanos = start + i * 1000000000L / SPEEDUP;
+            //the handler flush due before this fix
+            while (System.nanoTime() < fixNanos) {
+                if (flushAt >= 0 && System.nanoTime() >= flushAt) {
+                    sender.flush();
+                    flushAt = -1;
+                }
+                Thread.sleep(0, 200000);
+            }
+
+            int g = i % gps.size();
+            fix.set(gps.latitude[g], gps.longitude[g], i * 1000L, gps.accuracy[g]);
+            fix.setMotion(gps.speed[g], gps.bearing[g]);
+            addedNanos[i] = System.nanoTime();
+            long delay = sender.add(fix, TimeUnit.NANOSECONDS.toMillis(addedNanos[i]));
+            if (delay == 0) {
+                sender.flush();
+                flushAt = -1;
+            } else
+                flushAt = addedNanos[i] + TimeUnit.MILLISECONDS.toNanos(delay);
+        }
+        if (flushAt >= 0) {
+            Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(flushAt - System.nanoTime())));
+            sender.flush();
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        Thread.sleep(500 + (long) link[0]); //the link drains
+        transport.shutdown();
+        transport.awaitTermination(5, TimeUnit.SECONDS);
+
+        long[] sorted = Arrays.copyOf(latencies, latencyCount[0]);
+        Arrays.sort(sorted);
+        double minutes = FIXES / 60.0; //of trace time
+        System.out.printf("  %4.0f ms %2.0f%% loss %5s B/s, every %4d ms or %d fixes: %5.1f messages/min,"
+                        + " %3d of %d fixes decoded, freshest fix after %5.1f ms median %5.1f ms p95 (x%d in the trace)%n",
+                link[0], link[1] * 100, link[2] > 0 ? String.valueOf((long) link[2]) : "inf",
+                flushIntervalMillis, maxBatchSize, transport.getMessagesSent() / minutes,
+                receiver.getFixesDecoded(), FIXES, percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.95) / 1e6,
+                SPEEDUP);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return Double.NaN;
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}
@@ -0,0 +1,30 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.Geodesy;
+import com.araujo.jordan.wearrow.GeodesicSolver;
+import com.araujo.jordan.wearrow.TableTrigonometry;
+
+/**
+ * Prints what the {@link TableTrigonometry} error means for the arrow: the worst bearing and
+ * distance differences against {@link Math} on the trace fixes. Its bound against {@link Math}
+ * is asserted by TableTrigonometryTest in :Core.
+ */
+public class TrigonometryAccuracyReplay {
+
+    public static void main(String[] args) {
+        System.out.println("Table trigonometry, worst error against Math");
+        GpsTrace gps = Traces.gps();
+        GeodesicSolver exact = new GeodesicSolver(GeodesicSolver.Tier.HAVERSINE);
+        GeodesicSolver fast = new GeodesicSolver(GeodesicSolver.Tier.HAVERSINE);
+        fast.setTrigonometry(TableTrigonometry.INSTANCE);
+        double bearingError = 0, distanceError = 0;
+        for (int i = 0; i < gps.size(); i++) {
+            exact.solve(gps.latitude[i], gps.longitude[i], Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+            fast.solve(gps.latitude[i], gps.longitude[i], Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+            bearingError = Math.max(bearingError,
+                    Math.abs(Geodesy.angleDifference(fast.getBearing(), exact.getBearing())));
+            distanceError = Math.max(distanceError, Math.abs(fast.getDistance() - exact.getDistance()) * 1000);
+        }
+        System.out.printf("  trace: bearing %.5f deg, distance %.3f m%n", bearingError, distanceError);
+    }
+}
@@ -0,0 +1,104 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.GeodesicSolver;
+import com.araujo.jordan.wearrow.HeadingFusion;
+import com.araujo.jordan.wearrow.MathTrigonometry;
+import com.araujo.jordan.wearrow.TableTrigonometry;
+import com.araujo.jordan.wearrow.Trigonometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MathTrigonometry} against {@link TableTrigonometry}, alone and in the heading and
+ * bearing paths of the watch. TrigonometryAccuracyReplay prints how far apart they are.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrigonometryBenchmark {
+
+    private static final int INPUTS = 1024; //power of 2
+
+    @Param({"MATH", "TABLE"})
+    public String backend;
+
+    private Trigonometry trigonometry;
+    private final double[] angles = new double[INPUTS];
+    private final double[] xs = new double[INPUTS];
+    private int index;
+
+    private SensorTrace rotationVectors;
+    private GpsTrace gps;
+    private int rotationVectorIndex, gpsIndex;
+    private HeadingFusion headingFusion;
+    private GeodesicSolver solver;
+
+    @Setup
+    public void setup() {
+        trigonometry = "TABLE".equals(backend) ? TableTrigonometry.INSTANCE : MathTrigonometry.INSTANCE;
+        Random random = new Random(42);
+        for (int i = 0; i < INPUTS; i++) {
+            angles[i] = (random.nextDouble() * 2 - 1) * Math.PI;
+            xs[i] = random.nextDouble() * 2 - 1;
+        }
+
+        rotationVectors = Traces.rotationVector();
+        gps = Traces.gps();
+        headingFusion = new HeadingFusion();
+        headingFusion.setTrigonometry(trigonometry);
+        solver = new GeodesicSolver(GeodesicSolver.Tier.HAVERSINE);
+        solver.setTrigonometry(trigonometry);
+    }
+
+    @Benchmark
+    public double sin() {
+        index = (index + 1) & (INPUTS - 1);
+        return trigonometry.sin(angles[index]);
+    }
+
+    @Benchmark
+    public double cos() {
+        index = (index + 1) & (INPUTS - 1);
+        return trigonometry.cos(angles[index]);
+    }
+
+    @Benchmark
+    public double atan2() {
+        int i = index = (index + 1) & (INPUTS - 1);
+        return trigonometry.atan2(angles[i], xs[i]);
+    }
+
+    @Benchmark
+    public float heading() {
+        int i = rotationVectorIndex;
+        rotationVectorIndex = (i + 1) % rotationVectors.size();
+        headingFusion.onRotationVector(rotationVectors.values[i]);
+        headingFusion.update();
+        return headingFusion.getAzimuth();
+    }
+
+    @Benchmark
+    public double haversine() {
+        int i = gpsIndex;
+        gpsIndex = (i + 1) % gps.size();
+        solver.solve(gps.latitude[i], gps.longitude[i],
+                Traces.DESTINATION.latitude, Traces.DESTINATION.longitude);
+        return solver.getDistance() + solver.getBearing();
+    }
+}
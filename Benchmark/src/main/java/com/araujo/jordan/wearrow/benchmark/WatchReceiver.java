@@ -0,0 +1,52 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.PositionProtocol;
+import com.araujo.jordan.wearrow.PositionRecord;
+import com.araujo.jordan.wearrow.PositionTransport;
+
+/**
+ * What the watch does with the position messages, without the arrow: decode the batch into one
+ * record and keep the freshest fix.
+ */
+public class WatchReceiver implements PositionTransport.Receiver {
+
+    private final PositionRecord received = new PositionRecord();
+    private volatile long lastTimeMillis = Long.MIN_VALUE;
+    private volatile long lastReceivedNanos;
+    private int messages, fixesDecoded;
+
+    @Override
+    public void onMessage(String path, byte[] data) {
+        if (!PositionTransport.PATH_POSITIONS.equals(path))
+            return;
+        messages++;
+        int decoded = PositionProtocol.decodeAll(data, 0, data.length, received);
+        fixesDecoded += decoded;
+        if (decoded > 0) {
+            lastReceivedNanos = System.nanoTime();
+            lastTimeMillis = received.timeMillis;
+        }
+    }
+
+    /**
+     * @return the time of the freshest fix decoded, Long.MIN_VALUE before the first
+     */
+    public long getLastTimeMillis() {
+        return lastTimeMillis;
+    }
+
+    /**
+     * @return when the freshest fix was decoded, on System.nanoTime
+     */
+    public long getLastReceivedNanos() {
+        return lastReceivedNanos;
+    }
+
+    public int getMessages() {
+        return messages;
+    }
+
+    public int getFixesDecoded() {
+        return fixesDecoded;
+    }
+}
@@ -0,0 +1,93 @@
+package com.araujo.jordan.wearrow.benchmark;
+
+import com.araujo.jordan.wearrow.LatLng;
+import com.araujo.jordan.wearrow.PositionCodec;
+import com.araujo.jordan.wearrow.PositionEncoder;
+import com.araujo.jordan.wearrow.PositionProtocol;
+import com.araujo.jordan.wearrow.PositionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the watch does with a /gps_from_handheld message before the arrow sees it: the old
+ * toDoubleArray and copy into a LatLng, against the decode straight into a PositionRecord.
+ * Run with the gc profiler, the decode must stay at 0 B/op; ReceiveAllocationReplay checks it
+ * too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WearReceiveBenchmark {
+
+    private GpsTrace gps;
+    private int index;
+    private byte[][] legacyMessages, messages;
+
+    private LatLng localLatLng;
+    private final PositionRecord receivedPosition = new PositionRecord();
+
+    @Setup
+    public void setup() {
+        gps = Traces.gps();
+        legacyMessages = new byte[gps.size()][];
+        messages = new byte[gps.size()][];
+        PositionEncoder encoder = new PositionEncoder();
+        PositionRecord fix = new PositionRecord();
+        for (int i = 0; i < gps.size(); i++) {
+            legacyMessages[i] = PositionCodec.toByteArray(new double[]{gps.latitude[i], gps.longitude[i]});
+            fix.set(gps.latitude[i], gps.longitude[i], gps.timeMillis[i], gps.accuracy[i]);
+            fix.setMotion(gps.speed[i], gps.bearing[i]);
+            messages[i] = encoder.encode(fix);
+        }
+    }
+
+    private int next() {
+        int i = index;
+        index = (i + 1) % gps.size();
+        return i;
+    }
+
+    @Benchmark
+    public boolean legacyReceive() {
+        double[] doubles = PositionCodec.toDoubleArray(legacyMessages[next()]);
+        if (localLatLng == null)
+            localLatLng = new LatLng(doubles[0], doubles[1]);
+        else {
+            localLatLng.latitude = doubles[0];
+            localLatLng.longitude = doubles[1];
+        }
+        return localLatLng.latitude != Traces.DESTINATION.latitude
+                || localLatLng.longitude != Traces.DESTINATION.longitude;
+    }
+
+    @Benchmark
+    public boolean receive() {
+        byte[] data = messages[next()];
+        return PositionProtocol.decode(data, 0, data.length, receivedPosition)
+                && (receivedPosition.latitude != Traces.DESTINATION.latitude
+                || receivedPosition.longitude != Traces.DESTINATION.longitude);
+    }
+
+    /**
+     * A legacy payload from a handheld that was not updated, on the new decoder
+     */
+    @Benchmark
+    public boolean receiveLegacyPayload() {
+        byte[] data = legacyMessages[next()];
+        return PositionProtocol.decode(data, 0, data.length, receivedPosition);
+    }
+}
@@ -0,0 +1,111 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Follows the angular velocity of the heading and tells when the heading sensors should be
+ * registered again with another rate, as decided by a {@link SamplingPolicy}.
+ * <p/>
+ * The velocity is measured over short windows, so single noisy samples don't count. It jumps up
+ * with the first fast window and decays slowly, so the rate only goes down after the heading has
+ * been stable for a while. The rate only goes up when two windows in a row are fast, so a snap of
+ * the heading, like turning a corner, doesn't switch to the fast rate for the whole decay.
+ */
+public class AdaptiveSampler {
+
+    public static final int INITIAL_PERIOD_US = VelocitySamplingPolicy.PERIOD_UI_US;
+
+    private static final double VELOCITY_DECAY_SECONDS = 1;
+    private static final long VELOCITY_WINDOW_NANOS = 250000000L;
+    private static final long MIN_SLOW_DOWN_NANOS = 2000000000L;
+
+    private SamplingPolicy policy;
+
+    private int samplingPeriodUs, maxReportLatencyUs;
+    private float angularVelocity, heldVelocity; //the peak, decaying, and the one of the last two windows
+    private float windowHeading, windowVelocity;
+    private long windowStart, lastChange;
+    private boolean hasHeading;
+    private int rateChanges;
+
+    public AdaptiveSampler(SamplingPolicy policy) {
+        this.policy = policy;
+        reset();
+    }
+
+    public void setPolicy(SamplingPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * A new heading sample
+     *
+     * @param heading   the heading, in degrees
+     * @param timeNanos the event timestamp
+     * @return true if the sensors must be registered again with the new rate
+     */
+    public boolean onHeading(float heading, long timeNanos) {
+        if (!hasHeading) {
+            hasHeading = true;
+            windowHeading = heading;
+            windowStart = timeNanos;
+            lastChange = timeNanos;
+        } else if (timeNanos - windowStart >= VELOCITY_WINDOW_NANOS) {
+            double seconds = (timeNanos - windowStart) / 1e9;
+            float velocity = (float) (Math.abs(Geodesy.angleDifference(heading, windowHeading)) / seconds);
+            angularVelocity = (float) Math.max(velocity,
+                    angularVelocity * Math.exp(-seconds / VELOCITY_DECAY_SECONDS));
+            heldVelocity = Math.min(velocity, windowVelocity);
+            windowHeading = heading;
+            windowVelocity = velocity;
+            windowStart = timeNanos;
+        }
+
+        int period = policy.getSamplingPeriodUs(angularVelocity);
+        if (period == samplingPeriodUs)
+            return false;
+        if (period > samplingPeriodUs && timeNanos - lastChange < MIN_SLOW_DOWN_NANOS)
+            return false;
+        if (period < samplingPeriodUs) {
+            period = Math.max(period, policy.getSamplingPeriodUs(heldVelocity));
+            if (period == samplingPeriodUs)
+                return false;
+        }
+
+        samplingPeriodUs = period;
+        maxReportLatencyUs = policy.getMaxReportLatencyUs(period);
+        lastChange = timeNanos;
+        rateChanges++;
+        return true;
+    }
+
+    public int getSamplingPeriodUs() {
+        return samplingPeriodUs;
+    }
+
+    public int getMaxReportLatencyUs() {
+        return maxReportLatencyUs;
+    }
+
+    /**
+     * @return the angular velocity, in degrees per second
+     */
+    public float getAngularVelocity() {
+        return angularVelocity;
+    }
+
+    /**
+     * @return how many times the rate was changed since the last reset
+     */
+    public int getRateChanges() {
+        return rateChanges;
+    }
+
+    public void reset() {
+        samplingPeriodUs = INITIAL_PERIOD_US;
+        maxReportLatencyUs = 0;
+        angularVelocity = 0;
+        heldVelocity = 0;
+        windowVelocity = 0;
+        hasHeading = false;
+        rateChanges = 0;
+    }
+}
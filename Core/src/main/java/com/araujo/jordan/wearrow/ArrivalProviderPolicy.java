@@ -0,0 +1,98 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Default {@link ProviderPolicy}: the providers follow the distance and the time left to the
+ * destination at the current speed. Far from it the network provider is enough: its tens of
+ * meters barely move the arrow and the distance is shown in kilometers. It is coarse and slow,
+ * with the fixes other apps ask for. Closer, or some minutes away, the GPS is used every few
+ * seconds, the wear predicting the position in between. Near it, every second. A user standing
+ * still away from it only needs the network, until a fix shows a speed again. Without a wear
+ * only the handheld screen shows the arrow, looked at now and then, so the approach rate is
+ * halved.
+ * <p/>
+ * The fixes may be batched, far away up to 5 minutes late, standing still or approaching
+ * without a wear less, only while the near ring is still out of reach when they arrive: after
+ * the wait and one update interval, at the speed of the last fix, or walking when standing
+ * still, the user is still farther than the near distance and time. The network fixes have no
+ * speed, the caller estimates it with a {@link SpeedEstimator}. A speed not known at all is
+ * taken as walking for the tier, but as {@link PositionRecord#VEHICLE_SPEED} for how late its
+ * fixes may come, so a driver never waits minutes for them.
+ * <p/>
+ * Only a {@link LocationSource} that can batch, the fused one, tells the batched tiers apart:
+ * the LocationManager delivers every fix at once.
+ */
+public class ArrivalProviderPolicy implements ProviderPolicy {
+
+    public static final Request FIRST = new Request("first", true, true, false, 1000, 0);
+    public static final Request NEAR = new Request("near", true, false, false, 1000, 0);
+    public static final Request APPROACH = new Request("approach", true, false, false, 10000, 10);
+    public static final Request APPROACH_NO_WEAR = new Request("approach, no wear", true, false, false, 20000, 20);
+    public static final Request APPROACH_NO_WEAR_BATCHED =
+            new Request("approach, no wear, batched", true, false, false, 20000, 20, 60000);
+    public static final Request STILL = new Request("still", false, true, true, 30000, 20);
+    public static final Request STILL_BATCHED = new Request("still, batched", false, true, true, 30000, 20, 2 * 60000);
+    public static final Request FAR = new Request("far", false, true, true, 60000, 100);
+    public static final Request FAR_BATCHED = new Request("far, batched", false, true, true, 60000, 100, 5 * 60000);
+
+    private static final float STILL_SPEED = 0.3f; //m/s
+
+    private final double nearDistance, approachDistance; //km
+    private final double nearSeconds, approachSeconds;
+
+    public ArrivalProviderPolicy() {
+        this(0.2, 2 * 60, 1.5, 8 * 60);
+    }
+
+    /**
+     * Closer than the distance or sooner than the time to the destination
+     *
+     * @param nearDistance     in kilometers, the GPS is used every second
+     * @param nearSeconds      the GPS is used every second
+     * @param approachDistance in kilometers, the GPS is used every few seconds, farther only the
+     *                         network
+     * @param approachSeconds  the GPS is used every few seconds, later only the network
+     */
+    public ArrivalProviderPolicy(double nearDistance, double nearSeconds, double approachDistance,
+                                 double approachSeconds) {
+        this.nearDistance = nearDistance;
+        this.nearSeconds = nearSeconds;
+        this.approachDistance = approachDistance;
+        this.approachSeconds = approachSeconds;
+    }
+
+    /**
+     * Both GPS and network, whichever answers first
+     */
+    @Override
+    public Request getFirstRequest() {
+        return FIRST;
+    }
+
+    @Override
+    public Request getRequest(double destinationDistance, float speed, boolean watchConnected) {
+        float approachSpeed = speed < 0 ? PositionRecord.UNKNOWN_SPEED : speed;
+        float lateSpeed = speed < 0 ? PositionRecord.VEHICLE_SPEED : speed; //for the batched fixes
+        double seconds = destinationDistance * 1000 / Math.max(approachSpeed, 0.1f);
+        if (destinationDistance < nearDistance || seconds < nearSeconds)
+            return NEAR;
+        if (speed >= 0 && speed < STILL_SPEED)
+            return canWait(STILL_BATCHED, destinationDistance, PositionRecord.UNKNOWN_SPEED) ? STILL_BATCHED : STILL;
+        if (destinationDistance < approachDistance || seconds < approachSeconds) {
+            if (watchConnected)
+                return APPROACH;
+            return canWait(APPROACH_NO_WEAR_BATCHED, destinationDistance, lateSpeed)
+                    ? APPROACH_NO_WEAR_BATCHED : APPROACH_NO_WEAR;
+        }
+        return canWait(FAR_BATCHED, destinationDistance, lateSpeed) ? FAR_BATCHED : FAR;
+    }
+
+    /**
+     * @return true if, at the speed, the user is still out of the near ring when the fixes of
+     * the request arrive
+     */
+    private boolean canWait(Request request, double destinationDistance, float speed) {
+        double lateSeconds = (request.maxWaitMillis + request.minTimeMillis) / 1000.0;
+        double distanceLeft = destinationDistance * 1000 - speed * lateSeconds; //meters
+        return distanceLeft >= nearDistance * 1000 && distanceLeft / speed >= nearSeconds;
+    }
+}
@@ -0,0 +1,117 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * The latest arrow rotation, distance text and arrow visibility waiting for the next frame.
+ * <p/>
+ * Updates that arrive before the frame replace each other, so the view is touched at most once
+ * per frame, and a frame is only requested when something differs from what is on the screen.
+ */
+public class ArrowFrame {
+
+    /**
+     * What a frame is drawn on
+     */
+    public interface View {
+        void setRotation(float rotation);
+
+        void setText(String text);
+
+        void setArrowVisible(boolean visible);
+    }
+
+    private float rotation, shownRotation;
+    private String text, shownText;
+    private boolean arrowVisible, shownArrowVisible;
+    private boolean rotationChanged, textChanged, visibilityChanged;
+    private boolean frameRequested;
+
+    private int framesDrawn, updatesCoalesced;
+
+    public ArrowFrame() {
+        arrowVisible = shownArrowVisible = true;
+    }
+
+    /**
+     * @return true if a new frame must be requested
+     */
+    public boolean setRotation(float rotation) {
+        if (rotationChanged)
+            updatesCoalesced++;
+        this.rotation = rotation;
+        rotationChanged = rotation != shownRotation;
+        return requestFrame();
+    }
+
+    /**
+     * @return true if a new frame must be requested
+     */
+    public boolean setText(String text) {
+        if (textChanged)
+            updatesCoalesced++;
+        this.text = text;
+        textChanged = text != null && !text.equals(shownText);
+        return requestFrame();
+    }
+
+    /**
+     * @return true if a new frame must be requested
+     */
+    public boolean setArrowVisible(boolean arrowVisible) {
+        if (visibilityChanged)
+            updatesCoalesced++;
+        this.arrowVisible = arrowVisible;
+        visibilityChanged = arrowVisible != shownArrowVisible;
+        return requestFrame();
+    }
+
+    private boolean requestFrame() {
+        if (frameRequested || !(rotationChanged || textChanged || visibilityChanged))
+            return false;
+        frameRequested = true;
+        return true;
+    }
+
+    /**
+     * Apply what changed since the last frame to the view
+     */
+    public void draw(View view) {
+        frameRequested = false;
+        if (!(rotationChanged || textChanged || visibilityChanged))
+            return;
+
+        if (visibilityChanged) {
+            view.setArrowVisible(arrowVisible);
+            shownArrowVisible = arrowVisible;
+            visibilityChanged = false;
+        }
+        if (rotationChanged) {
+            view.setRotation(rotation);
+            shownRotation = rotation;
+            rotationChanged = false;
+        }
+        if (textChanged) {
+            view.setText(text);
+            shownText = text;
+            textChanged = false;
+        }
+        framesDrawn++;
+    }
+
+    /**
+     * Forget a requested frame that will not come, like when the renderer stops
+     */
+    public void cancelFrame() {
+        frameRequested = false;
+    }
+
+    public int getFramesDrawn() {
+        return framesDrawn;
+    }
+
+    /**
+     * @return how many updates were replaced by a newer one before being drawn
+     */
+    public int getUpdatesCoalesced() {
+        return updatesCoalesced;
+    }
+}
@@ -0,0 +1,48 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Turns a distance in kilometers into the text shown under the arrow.
+ * The last text is kept, so a fix that doesn't change the shown value doesn't build a new
+ * String.
+ */
+public class DistanceFormatter {
+
+    private final String kilometer, meter, tooClose;
+    private final int closeDistance; //in meters, 0 never shows the "too close" message
+
+    private boolean lastInKm;
+    private int lastValue = -1;
+    private String lastText;
+
+    public DistanceFormatter(String kilometer, String meter, String tooClose, int closeDistance) {
+        this.kilometer = kilometer;
+        this.meter = meter;
+        this.tooClose = tooClose;
+        this.closeDistance = closeDistance;
+    }
+
+    /**
+     * @return true if the distance is under the "too close" limit
+     */
+    public boolean isTooClose(double d) {
+        return d < 1 && (int) (d * 1000) < closeDistance;
+    }
+
+    /**
+     * @return an text indicating the distance in meters or in kilometers. If its under the
+     * close distance it will return the "too close" message
+     */
+    public String getMlOrKm(double d) {
+        if (isTooClose(d))
+            return tooClose;
+
+        boolean inKm = d >= 1;
+        int value = inKm ? (int) d : (int) (d * 1000);
+        if (value != lastValue || inKm != lastInKm || lastText == null) {
+            lastValue = value;
+            lastInKm = inKm;
+            lastText = value + " " + (inKm ? kilometer : meter);
+        }
+        return lastText;
+    }
+}
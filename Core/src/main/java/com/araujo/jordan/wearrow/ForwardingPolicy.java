@@ -0,0 +1,117 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Decides which handheld fixes are worth sending to the wear, by how much they would change
+ * what the wear shows.
+ * <p/>
+ * A fix is forwarded when the distance text of the wear, as {@link DistanceFormatter} writes it,
+ * would change, or when the user moved enough to turn the arrow by its resolution: a move of d
+ * meters turns it by at most d / D radians, D being the distance to the destination. A course
+ * change is forwarded when, at the current speed, it would move the user that far before the
+ * next interval. Fixes closer than the minimum interval to the last forwarded one are never
+ * sent.
+ */
+public class ForwardingPolicy {
+
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+    public static final float DEFAULT_ARROW_RESOLUTION = HeadingFilter.DEFAULT_DEADBAND; //degrees
+
+
+    private final GeodesicSolver geodesicSolver = new GeodesicSolver(GeodesicSolver.Tier.EQUIRECTANGULAR);
+
+    private long minIntervalMillis;
+    private double arrowResolution; //radians
+
+    private final PositionRecord forwarded = new PositionRecord();
+    private double forwardedDistance; //to the destination, in kilometers
+    private boolean hasForwarded;
+    private int fixesForwarded, fixesSuppressed;
+
+    public ForwardingPolicy() {
+        this(DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_ARROW_RESOLUTION);
+    }
+
+    /**
+     * @param minIntervalMillis shortest time between two forwarded fixes, on the fix time
+     * @param arrowResolution   smallest arrow turn, in degrees, worth a fix
+     */
+    public ForwardingPolicy(long minIntervalMillis, float arrowResolution) {
+        setThresholds(minIntervalMillis, arrowResolution);
+    }
+
+    public void setThresholds(long minIntervalMillis, float arrowResolution) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.arrowResolution = Geodesy.deg2rad(arrowResolution);
+    }
+
+    /**
+     * @param fix                 the new fix
+     * @param destinationDistance distance from the fix to the destination, in kilometers
+     * @return true if the fix must be sent, it is then kept as the one the wear shows
+     */
+    public boolean shouldForward(PositionRecord fix, double destinationDistance) {
+        if (hasForwarded && !isSignificant(fix, destinationDistance)) {
+            fixesSuppressed++;
+            return false;
+        }
+        forwarded.copyFrom(fix);
+        forwardedDistance = destinationDistance;
+        hasForwarded = true;
+        fixesForwarded++;
+        return true;
+    }
+
+    private boolean isSignificant(PositionRecord fix, double destinationDistance) {
+        long elapsed = fix.timeMillis - forwarded.timeMillis;
+        if (elapsed < minIntervalMillis)
+            return false;
+        if (!isSameText(destinationDistance, forwardedDistance))
+            return true;
+
+        double minDistance = getMinDistance(destinationDistance);
+        geodesicSolver.solve(forwarded.latitude, forwarded.longitude, fix.latitude, fix.longitude);
+        if (geodesicSolver.getDistance() * 1000 >= minDistance)
+            return true;
+
+        if (!fix.hasMotion || !forwarded.hasMotion || fix.speed < PositionRecord.MIN_COURSE_SPEED)
+            return false;
+        double turn = Geodesy.deg2rad(Math.abs(Geodesy.angleDifference(fix.bearing, forwarded.bearing)));
+        double drift = fix.speed * Math.sin(Math.min(turn, Math.PI / 2)) * minIntervalMillis / 1000.0;
+        return drift >= minDistance;
+    }
+
+    /**
+     * @param destinationDistance in kilometers
+     * @return the smallest move, in meters, that turns the arrow by its resolution
+     */
+    public double getMinDistance(double destinationDistance) {
+        return destinationDistance * 1000 * Math.tan(arrowResolution);
+    }
+
+    /**
+     * @return true if both distances, in kilometers, are written the same, kilometers from 1 km
+     * and meters under it, truncated
+     */
+    private static boolean isSameText(double a, double b) {
+        if ((a >= 1) != (b >= 1))
+            return false;
+        return a >= 1 ? (int) a == (int) b : (int) (a * 1000) == (int) (b * 1000);
+    }
+
+    public int getFixesForwarded() {
+        return fixesForwarded;
+    }
+
+    /**
+     * @return how many fixes were not sent since the last reset
+     */
+    public int getFixesSuppressed() {
+        return fixesSuppressed;
+    }
+
+    public void reset() {
+        hasForwarded = false;
+        fixesForwarded = 0;
+        fixesSuppressed = 0;
+    }
+}
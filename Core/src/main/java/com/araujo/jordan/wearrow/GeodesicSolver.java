@@ -0,0 +1,205 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Distance and initial bearing between two positions, with the precision chosen by distance.
+ * <p/>
+ * Short distances use the equirectangular approximation (one cos and one sqrt), mid distances
+ * the haversine formula and the great-circle initial bearing, long distances Vincenty's formula
+ * on the WGS84 ellipsoid. The results are kept in this object, so solving never allocates.
+ * <p/>
+ * The equirectangular and haversine tiers take their sin, cos and atan2 from a
+ * {@link Trigonometry}; Vincenty always uses {@link Math}, its iteration needs the precision.
+ */
+public class GeodesicSolver {
+
+    public enum Tier {
+        EQUIRECTANGULAR, HAVERSINE, VINCENTY,
+
+        /**
+         * Pick the tier by the distance, see {@link #EQUIRECTANGULAR_MAX_KM} and
+         * {@link #HAVERSINE_MAX_KM}
+         */
+        AUTO
+    }
+
+    public static final double EQUIRECTANGULAR_MAX_KM = 10;
+    public static final double HAVERSINE_MAX_KM = 500;
+    /**
+     * Closer to the poles the meridians converge too fast for the equirectangular approximation
+     */
+    public static final double EQUIRECTANGULAR_MAX_LATITUDE = 80;
+
+    private static final double WGS84_A = 6378137;
+    private static final double WGS84_F = 1 / 298.257223563;
+    private static final double WGS84_B = WGS84_A * (1 - WGS84_F);
+    private static final int VINCENTY_ITERATIONS = 100;
+    private static final double VINCENTY_PRECISION = 1e-12;
+
+    private Tier tier;
+    private Tier usedTier;
+    private Trigonometry trigonometry = MathTrigonometry.INSTANCE;
+    private double distance, bearing;
+
+    public GeodesicSolver() {
+        this(Tier.AUTO);
+    }
+
+    public GeodesicSolver(Tier tier) {
+        this.tier = tier;
+    }
+
+    public void setTier(Tier tier) {
+        this.tier = tier;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    public void setTrigonometry(Trigonometry trigonometry) {
+        this.trigonometry = trigonometry;
+    }
+
+    public Trigonometry getTrigonometry() {
+        return trigonometry;
+    }
+
+    /**
+     * Calculate the distance and initial bearing from the first to the second position
+     */
+    public void solve(double lat1, double lon1, double lat2, double lon2) {
+        switch (tier) {
+            case EQUIRECTANGULAR:
+                equirectangular(lat1, lon1, lat2, lon2);
+                break;
+            case HAVERSINE:
+                haversine(lat1, lon1, lat2, lon2);
+                break;
+            case VINCENTY:
+                vincenty(lat1, lon1, lat2, lon2);
+                break;
+            default:
+                equirectangular(lat1, lon1, lat2, lon2);
+                if (distance <= EQUIRECTANGULAR_MAX_KM
+                        && Math.abs(lat1) < EQUIRECTANGULAR_MAX_LATITUDE
+                        && Math.abs(lat2) < EQUIRECTANGULAR_MAX_LATITUDE)
+                    break;
+                if (distance <= HAVERSINE_MAX_KM)
+                    haversine(lat1, lon1, lat2, lon2);
+                else
+                    vincenty(lat1, lon1, lat2, lon2);
+        }
+    }
+
+    /**
+     * @return the distance of the last solve, in kilometers
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the initial bearing of the last solve, in degrees clockwise from the north, from 0
+     * to 360
+     */
+    public double getBearing() {
+        return bearing;
+    }
+
+    /**
+     * @return the tier used by the last solve
+     */
+    public Tier getUsedTier() {
+        return usedTier;
+    }
+
+    private void equirectangular(double lat1, double lon1, double lat2, double lon2) {
+        double x = Geodesy.deg2rad(longitudeDifference(lon1, lon2))
+                * trigonometry.cos(Geodesy.deg2rad((lat1 + lat2) / 2));
+        double y = Geodesy.deg2rad(lat2 - lat1);
+        distance = Geodesy.EARTH_RADIUS_KM * Math.sqrt(x * x + y * y);
+        bearing = toBearing(trigonometry.atan2(x, y));
+        usedTier = Tier.EQUIRECTANGULAR;
+    }
+
+    private void haversine(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Geodesy.deg2rad(lat1), phi2 = Geodesy.deg2rad(lat2);
+        double dLambda = Geodesy.deg2rad(longitudeDifference(lon1, lon2));
+        double cosPhi1 = trigonometry.cos(phi1), cosPhi2 = trigonometry.cos(phi2);
+        double sinPhi1 = trigonometry.sin(phi1), sinPhi2 = trigonometry.sin(phi2);
+        double cosDLambda = trigonometry.cos(dLambda), sinDLambda = trigonometry.sin(dLambda);
+
+        double sinHalfDPhi = trigonometry.sin((phi2 - phi1) / 2);
+        double sinHalfDLambda = trigonometry.sin(dLambda / 2);
+        double a = sinHalfDPhi * sinHalfDPhi + cosPhi1 * cosPhi2 * sinHalfDLambda * sinHalfDLambda;
+        distance = Geodesy.EARTH_RADIUS_KM * 2 * trigonometry.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        bearing = toBearing(trigonometry.atan2(sinDLambda * cosPhi2,
+                cosPhi1 * sinPhi2 - sinPhi1 * cosPhi2 * cosDLambda));
+        usedTier = Tier.HAVERSINE;
+    }
+
+    /**
+     * Vincenty's inverse formula. Nearly antipodal points, where it doesn't converge, fall back
+     * to haversine.
+     */
+    private void vincenty(double lat1, double lon1, double lat2, double lon2) {
+        double L = Geodesy.deg2rad(longitudeDifference(lon1, lon2));
+        double U1 = Math.atan((1 - WGS84_F) * Math.tan(Geodesy.deg2rad(lat1)));
+        double U2 = Math.atan((1 - WGS84_F) * Math.tan(Geodesy.deg2rad(lat2)));
+        double sinU1 = Math.sin(U1), cosU1 = Math.cos(U1);
+        double sinU2 = Math.sin(U2), cosU2 = Math.cos(U2);
+
+        double lambda = L, lambdaBefore;
+        double sinLambda, cosLambda, sinSigma, cosSigma, sigma, cosSqAlpha, cos2SigmaM;
+        int iterations = 0;
+        do {
+            sinLambda = Math.sin(lambda);
+            cosLambda = Math.cos(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            if (sinSigma == 0) { //same point
+                distance = 0;
+                bearing = 0;
+                usedTier = Tier.VINCENTY;
+                return;
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            cos2SigmaM = cosSqAlpha != 0 ? cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha : 0; //equatorial line
+            double C = WGS84_F / 16 * cosSqAlpha * (4 + WGS84_F * (4 - 3 * cosSqAlpha));
+            lambdaBefore = lambda;
+            lambda = L + (1 - C) * WGS84_F * sinAlpha
+                    * (sigma + C * sinSigma * (cos2SigmaM + C * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+        } while (Math.abs(lambda - lambdaBefore) > VINCENTY_PRECISION && ++iterations < VINCENTY_ITERATIONS);
+
+        if (iterations >= VINCENTY_ITERATIONS) {
+            haversine(lat1, lon1, lat2, lon2);
+            return;
+        }
+
+        double uSq = cosSqAlpha * (WGS84_A * WGS84_A - WGS84_B * WGS84_B) / (WGS84_B * WGS84_B);
+        double A = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double B = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        double deltaSigma = B * sinSigma * (cos2SigmaM + B / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+                - B / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+
+        distance = WGS84_B * A * (sigma - deltaSigma) / 1000;
+        bearing = toBearing(Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda));
+        usedTier = Tier.VINCENTY;
+    }
+
+    /**
+     * @return the longitude difference going the short way around, from -180 to 180 degrees
+     */
+    private static double longitudeDifference(double lon1, double lon2) {
+        return Geodesy.angleDifference(lon2, lon1);
+    }
+
+    private static double toBearing(double radians) {
+        double degrees = Geodesy.rad2deg(radians);
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+}
@@ -0,0 +1,87 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Distance and angle math shared by the handheld and the wear arrow.
+ * Everything here works on primitives and never allocates.
+ */
+public final class Geodesy {
+
+    public static final double EARTH_RADIUS_KM = 6371;
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS_KM * 1000 * (Math.PI / 180); //along a meridian
+
+    private static final double DEG_TO_RAD = Math.PI / 180;
+    private static final double RAD_TO_DEG = 180 / Math.PI;
+
+    private Geodesy() {
+    }
+
+    /**
+     * Simple conversion from degree to radian
+     */
+    public static double deg2rad(double deg) {
+        return deg * DEG_TO_RAD;
+    }
+
+    /**
+     * Simple conversion from radian to degree
+     */
+    public static double rad2deg(double rad) {
+        return rad * RAD_TO_DEG;
+    }
+
+    /**
+     * Smallest signed difference from angle b to angle a
+     *
+     * @return a value between -180 and 180 degrees
+     */
+    public static double angleDifference(double a, double b) {
+        double difference = (a - b) % 360;
+        if (difference >= 180)
+            difference -= 360;
+        else if (difference < -180)
+            difference += 360;
+        return difference;
+    }
+
+    /**
+     * A (0, 0) position means that the GPS has not answered yet
+     */
+    public static boolean isUnknown(LatLng p) {
+        return p.latitude == 0 && p.longitude == 0;
+    }
+
+    /**
+     * Distance between 2 location on latitude and longitude, using haversine.
+     *
+     * @return the distance in kilometers
+     */
+    public static double getDistanceBetween2Points(LatLng p1, LatLng p2) {
+        return getDistanceBetween2Points(p1.latitude, p1.longitude, p2.latitude, p2.longitude);
+    }
+
+    public static double getDistanceBetween2Points(double lat1, double lon1, double lat2, double lon2) {
+        final double sinHalfDLat = Math.sin(deg2rad(lat2 - lat1) / 2);
+        final double sinHalfDLon = Math.sin(deg2rad(lon2 - lon1) / 2);
+        final double a = sinHalfDLat * sinHalfDLat +
+                Math.cos(deg2rad(lat1)) * Math.cos(deg2rad(lat2)) * sinHalfDLon * sinHalfDLon;
+        final double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Get the angle between the 2 points using pitagoras. Only right for short distances away
+     * from the poles, {@link GeodesicSolver} gives the great-circle bearing.
+     *
+     * @return the angle between the 2 points, in degrees from 0 to 360 counterclockwise from the east
+     */
+    public static float getAngleBetween2Points(LatLng p1, LatLng p2) {
+        return getAngleBetween2Points(p1.latitude, p1.longitude, p2.latitude, p2.longitude);
+    }
+
+    public static float getAngleBetween2Points(double lat1, double lon1, double lat2, double lon2) {
+        double result = Math.atan2(lat2 - lat1, lon2 - lon1) * RAD_TO_DEG;
+        if (result < 0)
+            result += 360;
+        return (float) result;
+    }
+}
@@ -0,0 +1,33 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * {@link ProviderPolicy} for the proximity mode: while the {@link ProximityGeofence} is dormant
+ * only the network is asked, at its dormant interval, otherwise the wrapped policy decides.
+ */
+public class GeofenceProviderPolicy implements ProviderPolicy {
+
+    private final ProviderPolicy policy;
+    private final ProximityGeofence geofence;
+    private final Request dormant;
+
+    public GeofenceProviderPolicy(ProviderPolicy policy, ProximityGeofence geofence) {
+        this.policy = policy;
+        this.geofence = geofence;
+        dormant = new Request("dormant", false, true, true, geofence.getDormantIntervalMillis(), 100);
+    }
+
+    @Override
+    public Request getFirstRequest() {
+        return policy.getFirstRequest();
+    }
+
+    /**
+     * The fix must have gone to the geofence first
+     */
+    @Override
+    public Request getRequest(double destinationDistance, float speed, boolean watchConnected) {
+        if (geofence.isDormant())
+            return dormant;
+        return policy.getRequest(destinationDistance, speed, watchConnected);
+    }
+}
@@ -0,0 +1,107 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Smooths the arrow angle between the sensor fusion and the view.
+ * <p/>
+ * The angle is smoothed with an exponential filter that goes the short way around the circle
+ * (359 to 1 is a 2 degrees change), and changes under the deadband never reach the view, so the
+ * sensor jitter doesn't redraw the arrow on every event.
+ */
+public class HeadingFilter {
+
+    public static final float DEFAULT_TIME_CONSTANT = 0.15f; //seconds
+    public static final float DEFAULT_DEADBAND = 1f; //degrees
+
+    private float timeConstant, deadband;
+
+    private double smoothed;
+    private float shown;
+    private long lastTime;
+    private boolean hasValue;
+    private int passed, suppressed;
+
+    public HeadingFilter() {
+        this(DEFAULT_TIME_CONSTANT, DEFAULT_DEADBAND);
+    }
+
+    /**
+     * @param timeConstant how long, in seconds, the filter takes to follow 63% of a change, 0 to
+     *                     not smooth
+     * @param deadband     smallest change, in degrees, that reaches the view
+     */
+    public HeadingFilter(float timeConstant, float deadband) {
+        this.timeConstant = timeConstant;
+        this.deadband = deadband;
+    }
+
+    public void setTimeConstant(float timeConstant) {
+        this.timeConstant = timeConstant;
+    }
+
+    public void setDeadband(float deadband) {
+        this.deadband = deadband;
+    }
+
+    /**
+     * A new angle from the sensors
+     *
+     * @param angle     the angle, in degrees
+     * @param timeNanos the event timestamp
+     * @return true if the view must be updated with {@link #getAngle()}
+     */
+    public boolean filter(float angle, long timeNanos) {
+        if (!hasValue) {
+            hasValue = true;
+            smoothed = normalize(angle);
+            lastTime = timeNanos;
+            shown = (float) smoothed;
+            passed++;
+            return true;
+        }
+
+        double seconds = (timeNanos - lastTime) / 1e9;
+        lastTime = timeNanos;
+        double alpha = timeConstant <= 0 || seconds <= 0 ? 1 : 1 - Math.exp(-seconds / timeConstant);
+        smoothed = normalize(smoothed + alpha * Geodesy.angleDifference(angle, smoothed));
+
+        if (Math.abs(Geodesy.angleDifference(smoothed, shown)) < deadband) {
+            suppressed++;
+            return false;
+        }
+        shown = (float) smoothed;
+        passed++;
+        return true;
+    }
+
+    /**
+     * @return the last angle that passed the filter, in degrees from 0 to 360
+     */
+    public float getAngle() {
+        return shown;
+    }
+
+    /**
+     * @return how many angles reached the view since the last reset
+     */
+    public int getPassed() {
+        return passed;
+    }
+
+    /**
+     * @return how many redraws were avoided since the last reset
+     */
+    public int getSuppressed() {
+        return suppressed;
+    }
+
+    public void reset() {
+        hasValue = false;
+        passed = 0;
+        suppressed = 0;
+    }
+
+    private static double normalize(double angle) {
+        angle %= 360;
+        return angle < 0 ? angle + 360 : angle;
+    }
+}
@@ -0,0 +1,80 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Fuses accelerometer and magnetometer readings, or takes a rotation vector, into the azimuth of
+ * the device.
+ * <p/>
+ * The sensor values are copied into arrays owned by this class, since Android recycles the
+ * {@code SensorEvent.values} array, and the rotation buffer is allocated once, so an event never
+ * allocates.
+ */
+public class HeadingFusion {
+
+    private final float[] gravity = new float[3];
+    private final float[] geomagnetic = new float[3];
+    private final float[] rotationVector = new float[4];
+    private final float[] rotation = new float[9];
+
+    private Trigonometry trigonometry = MathTrigonometry.INSTANCE;
+
+    private boolean hasGravity, hasGeomagnetic;
+    private int rotationVectorLength;
+    private float azimuth;
+
+    /**
+     * @param trigonometry the backend for the azimuth, {@link TableTrigonometry} on slow watches
+     */
+    public void setTrigonometry(Trigonometry trigonometry) {
+        this.trigonometry = trigonometry;
+    }
+
+    public void onAccelerometer(float[] values) {
+        System.arraycopy(values, 0, gravity, 0, 3);
+        hasGravity = true;
+    }
+
+    public void onMagneticField(float[] values) {
+        System.arraycopy(values, 0, geomagnetic, 0, 3);
+        hasGeomagnetic = true;
+    }
+
+    /**
+     * A reading from {@code TYPE_ROTATION_VECTOR} or {@code TYPE_GEOMAGNETIC_ROTATION_VECTOR}.
+     * Once one arrives the accelerometer and magnetometer readings are ignored.
+     */
+    public void onRotationVector(float[] values) {
+        rotationVectorLength = Math.min(values.length, rotationVector.length);
+        System.arraycopy(values, 0, rotationVector, 0, rotationVectorLength);
+    }
+
+    /**
+     * Recalculate the azimuth with the last readings
+     *
+     * @return false if there is not enough readings yet or the rotation could not be calculated
+     */
+    public boolean update() {
+        if (rotationVectorLength > 0) {
+            SensorMath.getRotationMatrixFromVector(rotation, rotationVector, rotationVectorLength);
+        } else if (!hasGravity || !hasGeomagnetic) {
+            return false;
+        } else if (!SensorMath.getRotationMatrix(rotation, null, gravity, geomagnetic)) {
+            return false;
+        }
+
+        azimuth = SensorMath.getAzimuth(rotation, trigonometry);
+        return true;
+    }
+
+    /**
+     * @return the last azimuth, in radians
+     */
+    public float getAzimuth() {
+        return azimuth;
+    }
+
+    public void reset() {
+        hasGravity = false;
+        hasGeomagnetic = false;
+        rotationVectorLength = 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Where the heading of the arrow comes from. The fused rotation vectors need one sensor
+ * callback per heading, the accelerometer and magnetometer pair needs two.
+ * When a device doesn't have the selected sensor the next one of this list is used.
+ */
+public enum HeadingSource {
+
+    /**
+     * {@code TYPE_ROTATION_VECTOR}, fused by the device from gyroscope, accelerometer and magnetometer
+     */
+    ROTATION_VECTOR,
+
+    /**
+     * {@code TYPE_GEOMAGNETIC_ROTATION_VECTOR}, fused without the gyroscope (API 19)
+     */
+    GEOMAGNETIC_ROTATION_VECTOR,
+
+    /**
+     * {@code TYPE_ACCELEROMETER} and {@code TYPE_MAGNETIC_FIELD}, fused by {@link HeadingFusion}
+     */
+    ACCELEROMETER_MAGNETOMETER;
+
+    /**
+     * @return the source to try when this one is not on the device, null for the last one
+     */
+    public HeadingSource fallback() {
+        HeadingSource[] sources = values();
+        return ordinal() + 1 < sources.length ? sources[ordinal() + 1] : null;
+    }
+}
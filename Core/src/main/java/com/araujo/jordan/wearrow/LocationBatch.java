@@ -0,0 +1,43 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * The newest fix of a {@link LocationSource} batch. The listener adds every fix it takes, and
+ * shows and sends only the one kept when the last fix of the batch arrives, so a batch of a few
+ * minutes moves the arrow once.
+ */
+public class LocationBatch {
+
+    private final PositionRecord newest = new PositionRecord();
+    private boolean isPending; //a fix was added, the arrow doesn't have it yet
+
+    /**
+     * Keep a copy of the fix, in place of the one kept before
+     */
+    public void add(PositionRecord fix) {
+        newest.copyFrom(fix);
+        isPending = true;
+    }
+
+    /**
+     * @param remaining as given with the fix, see {@link LocationSource.Listener#onLocation}
+     * @return true if the batch ended and a fix was added since the last end, see
+     * {@link #getNewest()}
+     */
+    public boolean end(int remaining) {
+        if (remaining > 0 || !isPending)
+            return false;
+        isPending = false;
+        return true;
+    }
+
+    /**
+     * @return the fix kept, overwritten by the next {@link #add(PositionRecord)}
+     */
+    public PositionRecord getNewest() {
+        return newest;
+    }
+
+    public void reset() {
+        isPending = false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Where the handheld fixes come from, so the location pipeline doesn't depend on the provider
+ * API: the LocationManager or the fused location provider on the devices, a replayed trace in
+ * the benchmarks.
+ */
+public interface LocationSource {
+
+    /**
+     * Gets the fixes, on the thread that started the source
+     */
+    interface Listener {
+
+        /**
+         * A fix. A batch comes as one call per fix, oldest first.
+         *
+         * @param fix       valid only during the call
+         * @param provider  where it came from, like "gps" or "fused"
+         * @param remaining how many fixes of the same batch still follow, 0 for the last one
+         */
+        void onLocation(PositionRecord fix, String provider, int remaining);
+
+        /**
+         * The user turned a provider of the request off
+         */
+        void onProviderDisabled(String provider);
+    }
+
+    /**
+     * Start or change the updates to the request. A source that can't batch ignores its
+     * {@link ProviderPolicy.Request#maxWaitMillis}.
+     *
+     * @return false if the device has none of the providers enabled
+     */
+    boolean start(ProviderPolicy.Request request, Listener listener);
+
+    /**
+     * Remove the updates
+     */
+    void stop();
+}
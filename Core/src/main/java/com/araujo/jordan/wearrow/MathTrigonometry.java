@@ -0,0 +1,27 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * {@link Trigonometry} backed by {@link Math}, the default.
+ */
+public final class MathTrigonometry implements Trigonometry {
+
+    public static final MathTrigonometry INSTANCE = new MathTrigonometry();
+
+    private MathTrigonometry() {
+    }
+
+    @Override
+    public double sin(double angle) {
+        return Math.sin(angle);
+    }
+
+    @Override
+    public double cos(double angle) {
+        return Math.cos(angle);
+    }
+
+    @Override
+    public double atan2(double y, double x) {
+        return Math.atan2(y, x);
+    }
+}
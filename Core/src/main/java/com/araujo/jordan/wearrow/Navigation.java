@@ -0,0 +1,106 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * The user and destination positions, with the angle and distance between them.
+ * <p/>
+ * Both only change with a new fix or a new destination, so they are calculated there and the
+ * sensor events only subtract the heading from the stored angle. They are calculated by a
+ * {@link GeodesicSolver}, with the precision picked by the distance unless a tier is chosen.
+ */
+public class Navigation {
+
+    private final LatLng userLocation = new LatLng(0, 0); //Will change when GPS get user position
+    private final LatLng destinationLocation = new LatLng(0, 0);
+
+    private final GeodesicSolver geodesicSolver = new GeodesicSolver();
+
+    private float angle;
+    private double distance, bearing;
+
+    public Navigation(LatLng destinationLocation) {
+        setDestination(destinationLocation.latitude, destinationLocation.longitude);
+    }
+
+    public void setUserLocation(double latitude, double longitude) {
+        userLocation.latitude = latitude;
+        userLocation.longitude = longitude;
+        update();
+    }
+
+    public void setDestination(double latitude, double longitude) {
+        destinationLocation.latitude = latitude;
+        destinationLocation.longitude = longitude;
+        update();
+    }
+
+    public void setGeodesyTier(GeodesicSolver.Tier tier) {
+        geodesicSolver.setTier(tier);
+        update();
+    }
+
+    /**
+     * @param trigonometry the backend for the bearing and distance, {@link TableTrigonometry} on
+     *                     slow watches
+     */
+    public void setTrigonometry(Trigonometry trigonometry) {
+        geodesicSolver.setTrigonometry(trigonometry);
+        update();
+    }
+
+    private void update() {
+        geodesicSolver.solve(userLocation.latitude, userLocation.longitude,
+                destinationLocation.latitude, destinationLocation.longitude);
+        distance = geodesicSolver.getDistance();
+        bearing = geodesicSolver.getBearing();
+
+        //the arrow angle goes counterclockwise from the east
+        double result = 90 - bearing;
+        angle = (float) (result < 0 ? result + 360 : result);
+    }
+
+    /**
+     * @return false while the user or the destination position is not known
+     */
+    public boolean isKnown() {
+        return !Geodesy.isUnknown(userLocation) && !Geodesy.isUnknown(destinationLocation);
+    }
+
+    /**
+     * @return the angle between the user and the destination, in degrees counterclockwise from
+     * the east
+     */
+    public float getAngle() {
+        return angle;
+    }
+
+    /**
+     * @return the initial bearing from the user to the destination, in degrees clockwise from
+     * the north
+     */
+    public double getBearing() {
+        return bearing;
+    }
+
+    /**
+     * @return the distance between the user and the destination, in kilometers
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @param northRotation the rotation that makes the arrow point to the north, in degrees
+     * @return the rotation that makes the arrow point to the destination, in degrees
+     */
+    public float getArrowRotation(float northRotation) {
+        return northRotation - angle;
+    }
+
+    public LatLng getUserLocation() {
+        return userLocation;
+    }
+
+    public LatLng getDestination() {
+        return destinationLocation;
+    }
+}
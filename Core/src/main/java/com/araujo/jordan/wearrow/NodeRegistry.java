@@ -0,0 +1,107 @@
+package com.araujo.jordan.wearrow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The connected wear nodes, asked to a {@link NodeSource} once when the api client connects and
+ * kept current by the peer callbacks after that.
+ * <p/>
+ * The nodes are kept as an immutable list swapped atomically, so reading them never blocks nor
+ * queries, and a list read once stays the same while it is used.
+ */
+public class NodeRegistry {
+
+    private final AtomicReference<List<String>> nodes =
+            new AtomicReference<>(Collections.<String>emptyList());
+    private final AtomicInteger changes = new AtomicInteger(); //a refresh doesn't undo a newer callback
+    private final AtomicInteger queries = new AtomicInteger();
+    private volatile OnConnectedListener onConnectedListener;
+
+    /**
+     * Told when the first node connects, a receiver that can't have the stream state
+     */
+    public interface OnConnectedListener {
+        void onConnected();
+    }
+
+    public void setOnConnectedListener(OnConnectedListener onConnectedListener) {
+        this.onConnectedListener = onConnectedListener;
+    }
+
+    /**
+     * Replace the nodes with the ones connected now. It blocks as long as the source does, and
+     * asks it again when a peer callback came during the query.
+     */
+    public void refresh(NodeSource source) {
+        while (true) {
+            int changesBefore = changes.get();
+            queries.incrementAndGet();
+            List<String> connected = Collections.unmodifiableList(new ArrayList<>(source.getConnectedNodes()));
+            List<String> current = nodes.get();
+            //a callback that came during the query may be newer than its result
+            if (changes.get() == changesBefore && nodes.compareAndSet(current, connected)) {
+                if (current.isEmpty() && !connected.isEmpty())
+                    notifyConnected();
+                return;
+            }
+        }
+    }
+
+    public void onPeerConnected(String id) {
+        changes.incrementAndGet();
+        while (true) {
+            List<String> current = nodes.get();
+            if (current.contains(id))
+                return;
+            List<String> updated = new ArrayList<>(current.size() + 1);
+            updated.addAll(current);
+            updated.add(id);
+            if (nodes.compareAndSet(current, Collections.unmodifiableList(updated))) {
+                if (current.isEmpty())
+                    notifyConnected();
+                return;
+            }
+        }
+    }
+
+    public void onPeerDisconnected(String id) {
+        changes.incrementAndGet();
+        while (true) {
+            List<String> current = nodes.get();
+            if (!current.contains(id))
+                return;
+            List<String> updated = new ArrayList<>(current);
+            updated.remove(id);
+            if (nodes.compareAndSet(current, Collections.unmodifiableList(updated)))
+                return;
+        }
+    }
+
+    private void notifyConnected() {
+        OnConnectedListener listener = onConnectedListener;
+        if (listener != null)
+            listener.onConnected();
+    }
+
+    /**
+     * @return the ids of the connected nodes, an immutable list
+     */
+    public List<String> getNodes() {
+        return nodes.get();
+    }
+
+    public boolean isEmpty() {
+        return nodes.get().isEmpty();
+    }
+
+    /**
+     * @return how many times the source was asked
+     */
+    public int getQueries() {
+        return queries.get();
+    }
+}
@@ -0,0 +1,14 @@
+package com.araujo.jordan.wearrow;
+
+import java.util.List;
+
+/**
+ * Where the connected wear nodes come from
+ */
+public interface NodeSource {
+
+    /**
+     * @return the ids of the nodes connected now. It may block, so never on the main thread.
+     */
+    List<String> getConnectedNodes();
+}
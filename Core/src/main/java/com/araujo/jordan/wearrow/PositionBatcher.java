@@ -0,0 +1,191 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Holds the handheld fixes in a bounded ring buffer and sends them as one message, so the radio
+ * wakes up once per batch instead of once per fix.
+ * <p/>
+ * A batch is due when it has {@link #getMaxBatchSize()} fixes or when its oldest fix waited
+ * {@link #getFlushIntervalMillis()}. When the buffer is full the oldest fix is dropped, the
+ * watch only draws the freshest one. The batch is the {@link PositionProtocol} frames of its
+ * fixes back to back, decoded with {@link PositionProtocol#decodeAll}.
+ */
+public class PositionBatcher {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 4;
+
+    private final PositionRecord[] ring;
+    private final PositionEncoder encoder = new PositionEncoder();
+    private final byte[] buffer;
+
+    private long flushIntervalMillis;
+    private int maxBatchSize;
+
+    private int head, size;
+    private long oldestQueuedMillis;
+
+    private int batchesSent, fixesSent, fixesDropped;
+
+    public PositionBatcher() {
+        this(DEFAULT_MAX_BATCH_SIZE * 2, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param capacity            most fixes kept while waiting for a flush
+     * @param flushIntervalMillis longest a fix waits for its batch, 0 sends every fix alone
+     * @param maxBatchSize        fixes that make a batch due, up to the capacity
+     */
+    public PositionBatcher(int capacity, long flushIntervalMillis, int maxBatchSize) {
+        ring = new PositionRecord[capacity];
+        for (int i = 0; i < capacity; i++)
+            ring[i] = new PositionRecord();
+        buffer = new byte[(capacity + 1) * PositionProtocol.MAX_FRAME_BYTES]; //and the key frame repeat
+        setBatching(flushIntervalMillis, maxBatchSize);
+    }
+
+    public void setBatching(long flushIntervalMillis, int maxBatchSize) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, ring.length));
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Queue a copy of the fix
+     *
+     * @param nowMillis the time the fix arrived, on the clock given to the other methods
+     * @return true if the batch is due now
+     */
+    public boolean add(PositionRecord fix, long nowMillis) {
+        if (size == ring.length) {
+            head = (head + 1) % ring.length;
+            size--;
+            fixesDropped++;
+        }
+        if (size == 0)
+            oldestQueuedMillis = nowMillis;
+        ring[(head + size) % ring.length].copyFrom(fix);
+        size++;
+        return isFlushDue(nowMillis);
+    }
+
+    public boolean isFlushDue(long nowMillis) {
+        return size > 0 && (size >= maxBatchSize || nowMillis - oldestQueuedMillis >= flushIntervalMillis);
+    }
+
+    /**
+     * @return how long until the queued fixes are due, -1 if there is none
+     */
+    public long getFlushDelay(long nowMillis) {
+        if (size == 0)
+            return -1;
+        return isFlushDue(nowMillis) ? 0 : oldestQueuedMillis + flushIntervalMillis - nowMillis;
+    }
+
+    /**
+     * Write the queued fixes as one message, after the repeat of the last key frame when it is
+     * due, and empty the queue
+     *
+     * @return the message length, 0 if there was nothing queued
+     */
+    public int flush(byte[] out, int offset) {
+        if (size == 0)
+            return 0;
+        int length = encoder.repeatKeyFrame(out, offset);
+        for (int i = 0; i < size; i++)
+            length += encoder.encode(ring[(head + i) % ring.length], out, offset + length);
+        batchesSent++;
+        fixesSent += size;
+        head = (head + size) % ring.length;
+        size = 0;
+        return length;
+    }
+
+    /**
+     * Write only the freshest queued fix, as a key frame, and empty the queue
+     *
+     * @return the message length, 0 if there was nothing queued
+     */
+    public int flushLatest(byte[] out, int offset) {
+        if (size == 0)
+            return 0;
+        encoder.reset();
+        int length = encoder.encode(ring[(head + size - 1) % ring.length], out, offset);
+        batchesSent++;
+        fixesSent++;
+        head = (head + size) % ring.length;
+        size = 0;
+        return length;
+    }
+
+    /**
+     * Same as {@link #flushLatest(byte[], int)}, in an array of the message length
+     *
+     * @return the message, null if there was nothing queued
+     */
+    public byte[] flushLatest() {
+        int length = flushLatest(buffer, 0);
+        if (length == 0)
+            return null;
+        byte[] message = new byte[length];
+        System.arraycopy(buffer, 0, message, 0, length);
+        return message;
+    }
+
+    /**
+     * Same as {@link #flush(byte[], int)}, in an array of the message length, as the message
+     * APIs take it
+     *
+     * @return the message, null if there was nothing queued
+     */
+    public byte[] flush() {
+        int length = flush(buffer, 0);
+        if (length == 0)
+            return null;
+        byte[] message = new byte[length];
+        System.arraycopy(buffer, 0, message, 0, length);
+        return message;
+    }
+
+    /**
+     * @return the biggest message {@link #flush(byte[], int)} writes
+     */
+    public int getMaxMessageLength() {
+        return buffer.length;
+    }
+
+    /**
+     * Drop the queued fixes and start the next message with a key frame, like when a new
+     * receiver connects
+     */
+    public void reset() {
+        head = 0;
+        size = 0;
+        encoder.reset();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getBatchesSent() {
+        return batchesSent;
+    }
+
+    public int getFixesSent() {
+        return fixesSent;
+    }
+
+    /**
+     * @return how many fixes were dropped because the buffer was full
+     */
+    public int getFixesDropped() {
+        return fixesDropped;
+    }
+}
@@ -0,0 +1,75 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Byte codec for the positions sent from the handheld to the wear. Numbers are written
+ * big-endian, same as {@link java.nio.ByteBuffer}, so both sides stay compatible.
+ * {@link PositionProtocol} builds its frames with it.
+ */
+public final class PositionCodec {
+
+    public static final int DOUBLE_BYTES = Double.SIZE / Byte.SIZE;
+
+    private PositionCodec() {
+    }
+
+    public static byte[] toByteArray(double[] doubleArray) {
+        byte[] bytes = new byte[doubleArray.length * DOUBLE_BYTES];
+        for (int i = 0; i < doubleArray.length; i++)
+            putDouble(bytes, i * DOUBLE_BYTES, doubleArray[i]);
+        return bytes;
+    }
+
+    public static double[] toDoubleArray(byte[] byteArray) {
+        double[] doubles = new double[byteArray.length / DOUBLE_BYTES];
+        for (int i = 0; i < doubles.length; i++)
+            doubles[i] = getDouble(byteArray, i * DOUBLE_BYTES);
+        return doubles;
+    }
+
+    public static void putDouble(byte[] bytes, int offset, double value) {
+        putLong(bytes, offset, Double.doubleToRawLongBits(value));
+    }
+
+    public static double getDouble(byte[] bytes, int offset) {
+        return Double.longBitsToDouble(getLong(bytes, offset));
+    }
+
+    public static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    public static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        return value;
+    }
+
+    public static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    public static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    public static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    public static short getShort(byte[] bytes, int offset) {
+        return (short) ((bytes[offset] << 8) | (bytes[offset + 1] & 0xff));
+    }
+
+    public static int getUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+}
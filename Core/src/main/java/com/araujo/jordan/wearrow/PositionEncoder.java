@@ -0,0 +1,123 @@
+package com.araujo.jordan.wearrow;
+
+import java.util.Arrays;
+
+/**
+ * Writes the fixes of one stream in the {@link PositionProtocol} format.
+ * <p/>
+ * A fix close enough to the last key frame is sent as a delta frame relative to it, half the
+ * size of a key frame. A key frame is still sent every {@link #KEY_FRAME_INTERVAL} fixes, so a
+ * receiver that lost one, or just connected, catches up. The key frame is also repeated at the
+ * start of the next message, see {@link #repeatKeyFrame(byte[], int)}, so the deltas after it
+ * are only lost when both messages are.
+ */
+public class PositionEncoder {
+
+    public static final int KEY_FRAME_INTERVAL = 16;
+
+    private final byte[] buffer = new byte[PositionProtocol.MAX_FRAME_BYTES];
+    private final byte[] keyFrame = new byte[PositionProtocol.MAX_FRAME_BYTES];
+    private int keyFrameLength;
+    private boolean isKeyFrameRepeatDue;
+
+    private int keyLatitudeE7, keyLongitudeE7;
+    private long keyTimeMillis;
+    private int keySequence = -1;
+    private int sinceKeyFrame;
+    private boolean hasKeyFrame;
+
+    /**
+     * Write the fix as the next frame of the stream
+     *
+     * @return the frame length, at most {@link PositionProtocol#MAX_FRAME_BYTES}
+     */
+    public int encode(PositionRecord fix, byte[] out, int offset) {
+        int newLatitudeE7 = PositionProtocol.toE7(fix.latitude);
+        int newLongitudeE7 = PositionProtocol.toE7(fix.longitude);
+        long dLatitude = (long) newLatitudeE7 - keyLatitudeE7;
+        long dLongitude = (long) newLongitudeE7 - keyLongitudeE7;
+        long dTime = fix.timeMillis - keyTimeMillis;
+
+        boolean delta = hasKeyFrame && sinceKeyFrame < KEY_FRAME_INTERVAL
+                && dLatitude >= Short.MIN_VALUE && dLatitude <= Short.MAX_VALUE
+                && dLongitude >= Short.MIN_VALUE && dLongitude <= Short.MAX_VALUE
+                && dTime >= 0 && dTime <= 0xffff;
+
+        if (!delta) {
+            keySequence = (keySequence + 1) & 0xff;
+            keyLatitudeE7 = newLatitudeE7;
+            keyLongitudeE7 = newLongitudeE7;
+            keyTimeMillis = fix.timeMillis;
+        }
+        out[offset] = (byte) (PositionProtocol.MAGIC | (PositionProtocol.VERSION << 2)
+                | (delta ? PositionProtocol.FLAG_DELTA : 0) | (fix.hasMotion ? PositionProtocol.FLAG_MOTION : 0));
+        out[offset + 1] = (byte) keySequence;
+        int i = offset + 2;
+        if (delta) {
+            PositionCodec.putShort(out, i, (int) dLatitude);
+            PositionCodec.putShort(out, i + 2, (int) dLongitude);
+            PositionCodec.putShort(out, i + 4, (int) dTime);
+            i += 6;
+            sinceKeyFrame++;
+        } else {
+            PositionCodec.putInt(out, i, newLatitudeE7);
+            PositionCodec.putInt(out, i + 4, newLongitudeE7);
+            PositionCodec.putLong(out, i + 8, fix.timeMillis);
+            i += 16;
+            sinceKeyFrame = 0;
+        }
+        PositionCodec.putShort(out, i, unsignedShort(fix.accuracy * 10));
+        i += 2;
+        if (fix.hasMotion) {
+            PositionCodec.putShort(out, i, unsignedShort(fix.speed * 100));
+            double bearing = fix.bearing % 360;
+            PositionCodec.putShort(out, i + 2, (int) Math.round((bearing < 0 ? bearing + 360 : bearing) * 100) % 36000);
+            i += 4;
+        }
+
+        hasKeyFrame = true;
+        if (!delta) {
+            keyFrameLength = i - offset;
+            System.arraycopy(out, offset, keyFrame, 0, keyFrameLength);
+            isKeyFrameRepeatDue = true;
+        }
+        return i - offset;
+    }
+
+    /**
+     * Write again the last key frame, once, when it was encoded since the last repeat. Call it
+     * at the start of a message, the key frame then goes in two messages. The receiver skips
+     * the copy when it has the key frame already.
+     *
+     * @return the frame length, 0 if there is nothing to repeat
+     */
+    public int repeatKeyFrame(byte[] out, int offset) {
+        if (!isKeyFrameRepeatDue)
+            return 0;
+        isKeyFrameRepeatDue = false;
+        System.arraycopy(keyFrame, 0, out, offset, keyFrameLength);
+        return keyFrameLength;
+    }
+
+    /**
+     * Same as {@link #encode(PositionRecord, byte[], int)}, in an array of the frame length, as
+     * the message APIs take it
+     */
+    public byte[] encode(PositionRecord fix) {
+        return Arrays.copyOf(buffer, encode(fix, buffer, 0));
+    }
+
+    /**
+     * Make the next frame a key frame. The handheld calls it through {@link PositionSender#reset()}
+     * when a watch connects or is relaunched, since that watch can't apply the deltas of a key
+     * frame it never got.
+     */
+    public void reset() {
+        hasKeyFrame = false;
+        isKeyFrameRepeatDue = false;
+    }
+
+    private static int unsignedShort(double value) {
+        return (int) Math.max(0, Math.min(0xffff, Math.round(value)));
+    }
+}
@@ -0,0 +1,173 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Smooths the GPS fixes with a constant velocity Kalman filter, giving a position with less
+ * noise and a velocity for the fixes that have none.
+ * <p/>
+ * The state is the position in meters east and north of an origin near the fixes, and the
+ * velocity. The fix accuracy is isotropic, so both axes share one 2x2 covariance and are
+ * updated as two 1D filters. Everything is kept in primitive arrays, an update never allocates.
+ */
+public class PositionFilter {
+
+    public static final double DEFAULT_ACCELERATION_NOISE = 0.5; //m/s^2, a walk
+    public static final float MIN_MOTION_SPEED = 0.5f; //m/s, slower than that the velocity is the fix noise
+
+    private static final long MAX_GAP_MILLIS = 30000; //longer than that the filter starts again
+    private static final double MIN_ACCURACY = 1; //meters
+    private static final double INITIAL_SPEED_VARIANCE = 4; //(m/s)^2, a fix with a speed
+    private static final double UNKNOWN_SPEED_VARIANCE = 25; //(m/s)^2, a fix without
+    private static final double MAX_ORIGIN_DISTANCE = 10000; //meters
+
+    private final double[] state = new double[4]; //east, north, velocity east, velocity north
+    private final double[] covariance = new double[3]; //position, position and velocity, velocity
+
+    private double accelerationNoise; //variance of the acceleration
+    private double originLatitude, originLongitude, metersPerDegreeLongitude;
+    private long timeMillis;
+    private boolean initialized;
+
+    public PositionFilter() {
+        this(DEFAULT_ACCELERATION_NOISE);
+    }
+
+    /**
+     * @param accelerationNoise how much, in m/s^2, the velocity is expected to change, larger
+     *                          follows turns and stops faster, smaller smooths more
+     */
+    public PositionFilter(double accelerationNoise) {
+        setAccelerationNoise(accelerationNoise);
+    }
+
+    public void setAccelerationNoise(double accelerationNoise) {
+        this.accelerationNoise = accelerationNoise * accelerationNoise;
+    }
+
+    /**
+     * Add a fix, older fixes than the last one are ignored
+     *
+     * @return false if the fix was ignored
+     */
+    public boolean update(PositionRecord fix) {
+        double variance = Math.max(fix.accuracy, MIN_ACCURACY);
+        variance *= variance;
+        long elapsed = fix.timeMillis - timeMillis;
+        if (!initialized || elapsed > MAX_GAP_MILLIS) {
+            start(fix, variance);
+            return true;
+        }
+        if (elapsed <= 0)
+            return false;
+
+        predict(elapsed / 1000.0);
+
+        double east = (fix.longitude - originLongitude) * metersPerDegreeLongitude;
+        double north = (fix.latitude - originLatitude) * Geodesy.METERS_PER_DEGREE;
+        double p = covariance[0], pv = covariance[1];
+        double gain = p / (p + variance), velocityGain = pv / (p + variance);
+        double eastInnovation = east - state[0], northInnovation = north - state[1];
+        state[0] += gain * eastInnovation;
+        state[1] += gain * northInnovation;
+        state[2] += velocityGain * eastInnovation;
+        state[3] += velocityGain * northInnovation;
+        covariance[0] = (1 - gain) * p;
+        covariance[1] = (1 - gain) * pv;
+        covariance[2] -= velocityGain * pv;
+
+        timeMillis = fix.timeMillis;
+        if (Math.abs(state[0]) > MAX_ORIGIN_DISTANCE || Math.abs(state[1]) > MAX_ORIGIN_DISTANCE)
+            moveOrigin();
+        return true;
+    }
+
+    private void start(PositionRecord fix, double variance) {
+        originLatitude = fix.latitude;
+        originLongitude = fix.longitude;
+        metersPerDegreeLongitude = Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(originLatitude));
+        state[0] = 0;
+        state[1] = 0;
+        if (fix.hasMotion) {
+            double bearing = Geodesy.deg2rad(fix.bearing);
+            state[2] = fix.speed * Math.sin(bearing);
+            state[3] = fix.speed * Math.cos(bearing);
+        } else {
+            state[2] = 0;
+            state[3] = 0;
+        }
+        covariance[0] = variance;
+        covariance[1] = 0;
+        covariance[2] = fix.hasMotion ? INITIAL_SPEED_VARIANCE : UNKNOWN_SPEED_VARIANCE;
+        timeMillis = fix.timeMillis;
+        initialized = true;
+    }
+
+    /**
+     * Move the state the given seconds ahead, the velocity kept
+     */
+    private void predict(double dt) {
+        state[0] += state[2] * dt;
+        state[1] += state[3] * dt;
+        double p = covariance[0], pv = covariance[1], v = covariance[2];
+        double q = accelerationNoise;
+        covariance[0] = p + 2 * dt * pv + dt * dt * v + q * dt * dt * dt / 3;
+        covariance[1] = pv + dt * v + q * dt * dt / 2;
+        covariance[2] = v + q * dt;
+    }
+
+    private void moveOrigin() {
+        originLatitude = getLatitude();
+        originLongitude = getLongitude();
+        metersPerDegreeLongitude = Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(originLatitude));
+        state[0] = 0;
+        state[1] = 0;
+    }
+
+    /**
+     * Write the filtered position, its accuracy and, faster than {@link #MIN_MOTION_SPEED}, the
+     * velocity in the record. Standing still the bearing would be noise, the record has no motion.
+     */
+    public void getFiltered(PositionRecord out) {
+        out.set(getLatitude(), getLongitude(), timeMillis, getAccuracy());
+        float speed = getSpeed();
+        if (speed >= MIN_MOTION_SPEED)
+            out.setMotion(speed, getBearing());
+    }
+
+    public double getLatitude() {
+        return originLatitude + state[1] / Geodesy.METERS_PER_DEGREE;
+    }
+
+    public double getLongitude() {
+        return originLongitude + state[0] / metersPerDegreeLongitude;
+    }
+
+    /**
+     * @return the position standard deviation, in meters
+     */
+    public float getAccuracy() {
+        return (float) Math.sqrt(covariance[0]);
+    }
+
+    /**
+     * @return in meters per second
+     */
+    public float getSpeed() {
+        return (float) Math.sqrt(state[2] * state[2] + state[3] * state[3]);
+    }
+
+    /**
+     * @return the course, in degrees clockwise from the north, from 0 to 360
+     */
+    public float getBearing() {
+        double bearing = Geodesy.rad2deg(Math.atan2(state[2], state[3]));
+        return (float) (bearing < 0 ? bearing + 360 : bearing);
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void reset() {
+        initialized = false;
+    }
+}
@@ -0,0 +1,66 @@
+package com.araujo.jordan.wearrow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the freshest position from one producer thread, like the message callbacks, to one
+ * consumer thread, like the main looper, without locks or allocation.
+ * <p/>
+ * It is a triple buffer: the producer fills its own record and swaps it with the middle one,
+ * the consumer swaps the middle one with its own when the middle one is newer. A position
+ * offered before the consumer took the one before replaces it, so the consumer only sees the
+ * newest, in the order they were offered, and never a record being written.
+ */
+public class PositionMailbox {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4; //the middle record was not taken yet
+
+    private final PositionRecord[] records = {new PositionRecord(), new PositionRecord(), new PositionRecord()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; //only the producer
+    private int front = 2; //only the consumer
+
+    private final AtomicInteger offered = new AtomicInteger(), coalesced = new AtomicInteger();
+
+    /**
+     * Producer thread only
+     *
+     * @return true if the mailbox was empty, the consumer must be told to {@link #poll()}; false
+     * if a position still waiting was replaced, the consumer was told already
+     */
+    public boolean offer(PositionRecord position) {
+        records[back].copyFrom(position);
+        int before = middle.getAndSet(back | FRESH);
+        back = before & INDEX_MASK;
+        offered.incrementAndGet();
+        if ((before & FRESH) != 0) {
+            coalesced.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Consumer thread only
+     *
+     * @return the newest position, valid until the next poll, or null if it was taken already
+     */
+    public PositionRecord poll() {
+        if ((middle.get() & FRESH) == 0)
+            return null;
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return records[front];
+    }
+
+    public int getOffered() {
+        return offered.get();
+    }
+
+    /**
+     * @return how many positions were replaced before the consumer took them
+     */
+    public int getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,172 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Dead reckoning of the user position between the fixes that reach the wear.
+ * <p/>
+ * Walking, with a step detector, every step moves the position by the step length along the
+ * course, so the prediction stops when the user stops. The course is the one of the fix, or the
+ * wear heading when the fix is too slow to have one. The step length is learned from the fix
+ * speed and the step rate. Faster than walking, or without steps, the position moves with the
+ * fix speed and course, never more than {@link #MAX_EXTRAPOLATION_NANOS} after the fix. The
+ * steps are counted for longer, {@link #MAX_STEPPING_NANOS}, they stop with the user.
+ * <p/>
+ * The times are the wear clock, the fix is taken as of when it arrived. The predicted position
+ * is only told when it moved {@link #MIN_MOVE_METERS} since the last one told, so the heading
+ * events don't re-solve the bearing and distance for a few centimeters.
+ */
+public class PositionPredictor {
+
+    public static final float DEFAULT_STEP_LENGTH = 0.7f; //meters
+    public static final long MAX_EXTRAPOLATION_NANOS = 10000000000L;
+    public static final long MAX_STEPPING_NANOS = 60000000000L;
+    public static final double MIN_MOVE_METERS = 0.5;
+
+    private static final float MAX_WALKING_SPEED = 2.5f; //m/s
+    private static final long STEP_TIMEOUT_NANOS = 2000000000L;
+    private static final long HEADING_TIMEOUT_NANOS = 2000000000L;
+    private static final double STEP_LENGTH_SMOOTHING = 0.05;
+
+    private final GeodesicSolver geodesicSolver = new GeodesicSolver(GeodesicSolver.Tier.EQUIRECTANGULAR);
+
+    private boolean hasFix;
+    private double fixLatitude, fixLongitude;
+    private long fixTimeMillis, fixNanos;
+    private float speed, course; //of the last fix, speed 0 when it has no course
+
+    private boolean hasStepDetector;
+    private float stepLength = DEFAULT_STEP_LENGTH;
+    private long lastStepNanos, stepIntervalNanos;
+    private double steppedNorth, steppedEast; //meters walked since the fix
+
+    private float heading;
+    private long headingNanos;
+    private boolean hasHeading;
+
+    private double latitude, longitude;
+    private double toldNorth, toldEast; //meters from the fix of the last position told
+
+    /**
+     * @param hasStepDetector true if {@link #onStep(long)} will be called
+     */
+    public void setStepDetector(boolean hasStepDetector) {
+        this.hasStepDetector = hasStepDetector;
+    }
+
+    /**
+     * A fix arrived
+     *
+     * @param timeNanos when it arrived
+     */
+    public void onFix(PositionRecord fix, long timeNanos) {
+        if (fix.hasMotion) {
+            speed = fix.speed;
+            course = fix.bearing;
+        } else if (hasFix && fix.timeMillis > fixTimeMillis) {
+            geodesicSolver.solve(fixLatitude, fixLongitude, fix.latitude, fix.longitude);
+            speed = (float) (geodesicSolver.getDistance() * 1000000 / (fix.timeMillis - fixTimeMillis));
+            course = (float) geodesicSolver.getBearing();
+        } else
+            speed = 0;
+        if (speed < PositionRecord.MIN_COURSE_SPEED)
+            speed = 0;
+
+        if (speed > 0 && speed <= MAX_WALKING_SPEED && isWalking(timeNanos) && stepIntervalNanos > 0)
+            stepLength += STEP_LENGTH_SMOOTHING * (speed * stepIntervalNanos / 1e9 - stepLength);
+
+        fixLatitude = fix.latitude;
+        fixLongitude = fix.longitude;
+        fixTimeMillis = fix.timeMillis;
+        fixNanos = timeNanos;
+        steppedNorth = steppedEast = 0;
+        toldNorth = toldEast = 0; //the fix itself is shown
+        hasFix = true;
+    }
+
+    /**
+     * A step from the step detector
+     */
+    public void onStep(long timeNanos) {
+        if (lastStepNanos > 0 && timeNanos - lastStepNanos < STEP_TIMEOUT_NANOS)
+            stepIntervalNanos = timeNanos - lastStepNanos;
+        lastStepNanos = timeNanos;
+        if (!hasFix || timeNanos - fixNanos > MAX_STEPPING_NANOS)
+            return;
+
+        double stepCourse;
+        if (speed > 0)
+            stepCourse = course;
+        else if (hasHeading && timeNanos - headingNanos < HEADING_TIMEOUT_NANOS)
+            stepCourse = heading;
+        else
+            return; //no idea where to
+        double radians = Geodesy.deg2rad(stepCourse);
+        steppedNorth += stepLength * Math.cos(radians);
+        steppedEast += stepLength * Math.sin(radians);
+    }
+
+    /**
+     * @param heading where the wear points, in degrees clockwise from the north
+     */
+    public void onHeading(float heading, long timeNanos) {
+        this.heading = heading;
+        headingNanos = timeNanos;
+        hasHeading = true;
+    }
+
+    /**
+     * Calculate the position at the given time, read with {@link #getLatitude()} and
+     * {@link #getLongitude()}
+     *
+     * @return false if no fix arrived yet, or the position moved less than
+     * {@link #MIN_MOVE_METERS} from the fix or the last position this returned true for
+     */
+    public boolean predict(long timeNanos) {
+        if (!hasFix)
+            return false;
+
+        double north, east;
+        if (hasStepDetector && speed <= MAX_WALKING_SPEED) {
+            north = steppedNorth;
+            east = steppedEast;
+        } else {
+            double seconds = Math.min(Math.max(timeNanos - fixNanos, 0), MAX_EXTRAPOLATION_NANOS) / 1e9;
+            double radians = Geodesy.deg2rad(course);
+            north = speed * seconds * Math.cos(radians);
+            east = speed * seconds * Math.sin(radians);
+        }
+        if (Math.hypot(north - toldNorth, east - toldEast) < MIN_MOVE_METERS)
+            return false;
+        toldNorth = north;
+        toldEast = east;
+        latitude = fixLatitude + north / Geodesy.METERS_PER_DEGREE;
+        longitude = fixLongitude + east / (Geodesy.METERS_PER_DEGREE * Math.cos(Geodesy.deg2rad(fixLatitude)));
+        return true;
+    }
+
+    private boolean isWalking(long timeNanos) {
+        return lastStepNanos > 0 && timeNanos - lastStepNanos < STEP_TIMEOUT_NANOS;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the step length in meters, learned from the fixes
+     */
+    public float getStepLength() {
+        return stepLength;
+    }
+
+    public void reset() {
+        hasFix = false;
+        hasHeading = false;
+        lastStepNanos = 0;
+        stepIntervalNanos = 0;
+        stepLength = DEFAULT_STEP_LENGTH;
+    }
+}
@@ -0,0 +1,148 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Wire format of the positions on /gps_from_handheld.
+ * <pre>
+ * header    1 byte   111VVVDM: version V, delta frame D, motion M
+ * sequence  1 byte   key frame number, wraps at 256; a delta frame gives the one it is
+ *                    relative to
+ * key frame          latitude and longitude E7 (int), time in ms (long)
+ * delta frame        latitude and longitude E7 (short), time in ms (unsigned short),
+ *                    all relative to the key frame
+ * accuracy  2 bytes  decimeters
+ * motion    4 bytes  only with M: speed in cm/s, bearing in hundredths of degree
+ * </pre>
+ * A message can carry several frames back to back, see {@link PositionBatcher}; the header gives
+ * the length of each one. A lost message only loses its own fixes: every delta frame decodes as
+ * long as its key frame arrived. Version 1 chained each delta frame to the frame before, one
+ * loss dropped every fix up to the next key frame. The key frame is also sent again in the next
+ * message, see {@link PositionEncoder#repeatKeyFrame(byte[], int)}.
+ * <p/>
+ * The legacy payload, latitude and longitude as two doubles, is still decoded. Its first byte
+ * is the sign and exponent of a latitude, which never starts with 111.
+ * <p/>
+ * Frames are written by {@link PositionEncoder} and decoded here in one pass into a
+ * {@link PositionRecord}.
+ */
+public final class PositionProtocol {
+
+    public static final int VERSION = 2;
+
+    public static final int LEGACY_BYTES = 2 * PositionCodec.DOUBLE_BYTES;
+    public static final int KEY_FRAME_BYTES = 20;
+    public static final int DELTA_FRAME_BYTES = 10;
+    public static final int MOTION_BYTES = 4;
+    public static final int MAX_FRAME_BYTES = KEY_FRAME_BYTES + MOTION_BYTES;
+
+    static final int MAGIC = 0xe0;
+    static final int MAGIC_MASK = 0xe0;
+    static final int FLAG_DELTA = 0x02;
+    static final int FLAG_MOTION = 0x01;
+
+    static final double E7 = 1e7;
+
+    private PositionProtocol() {
+    }
+
+    /**
+     * Decode a frame, or a legacy payload, into the record. A delta frame is applied to its key
+     * frame, so it is rejected when that key frame was not the last one decoded into this
+     * record. The repeat of the last key frame decoded is skipped, the record keeps the newer
+     * fix.
+     *
+     * @return false if the frame is malformed, of an unknown version, can't be applied or is a
+     * repeat
+     */
+    public static boolean decode(byte[] data, int offset, int length, PositionRecord record) {
+        if (length < 1)
+            return false;
+        int header = data[offset] & 0xff;
+        if ((header & MAGIC_MASK) != MAGIC)
+            return decodeLegacy(data, offset, length, record);
+        if (((header >> 2) & 0x07) != VERSION)
+            return false;
+
+        boolean delta = (header & FLAG_DELTA) != 0;
+        boolean motion = (header & FLAG_MOTION) != 0;
+        if (length != (delta ? DELTA_FRAME_BYTES : KEY_FRAME_BYTES) + (motion ? MOTION_BYTES : 0))
+            return false;
+
+        int sequence = data[offset + 1] & 0xff;
+        int i = offset + 2;
+        if (delta) {
+            if (record.keySequence != sequence)
+                return false;
+            record.latitude = (record.keyLatitudeE7 + PositionCodec.getShort(data, i)) / E7;
+            record.longitude = (record.keyLongitudeE7 + PositionCodec.getShort(data, i + 2)) / E7;
+            record.timeMillis = record.keyTimeMillis + PositionCodec.getUnsignedShort(data, i + 4);
+            i += 6;
+        } else {
+            long keyTimeMillis = PositionCodec.getLong(data, i + 8);
+            if (record.keySequence == sequence && record.keyTimeMillis == keyTimeMillis)
+                return false;
+            record.keyLatitudeE7 = PositionCodec.getInt(data, i);
+            record.keyLongitudeE7 = PositionCodec.getInt(data, i + 4);
+            record.keyTimeMillis = keyTimeMillis;
+            record.keySequence = sequence;
+            record.latitude = record.keyLatitudeE7 / E7;
+            record.longitude = record.keyLongitudeE7 / E7;
+            record.timeMillis = record.keyTimeMillis;
+            i += 16;
+        }
+        record.accuracy = PositionCodec.getUnsignedShort(data, i) / 10f;
+
+        record.hasMotion = motion;
+        if (motion) {
+            record.speed = PositionCodec.getUnsignedShort(data, i + 2) / 100f;
+            record.bearing = PositionCodec.getUnsignedShort(data, i + 4) / 100f;
+        }
+        return true;
+    }
+
+    /**
+     * Decode every frame of a message, in order, into the record, so it ends with the freshest
+     * fix. A frame that can't be applied is skipped, the next key frame recovers.
+     *
+     * @return how many frames were decoded
+     */
+    public static int decodeAll(byte[] data, int offset, int length, PositionRecord record) {
+        if (length > 0 && ((data[offset] & 0xff) & MAGIC_MASK) != MAGIC)
+            return decodeLegacy(data, offset, length, record) ? 1 : 0;
+
+        int decoded = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int frameLength = frameLength(data[offset] & 0xff);
+            if (frameLength < 0 || offset + frameLength > end)
+                break;
+            if (decode(data, offset, frameLength, record))
+                decoded++;
+            offset += frameLength;
+        }
+        return decoded;
+    }
+
+    /**
+     * @return the length of the frame that starts with this header, -1 if it is not a frame of
+     * this version
+     */
+    public static int frameLength(int header) {
+        if ((header & MAGIC_MASK) != MAGIC || ((header >> 2) & 0x07) != VERSION)
+            return -1;
+        return ((header & FLAG_DELTA) != 0 ? DELTA_FRAME_BYTES : KEY_FRAME_BYTES)
+                + ((header & FLAG_MOTION) != 0 ? MOTION_BYTES : 0);
+    }
+
+    private static boolean decodeLegacy(byte[] data, int offset, int length, PositionRecord record) {
+        if (length != LEGACY_BYTES)
+            return false;
+        record.set(PositionCodec.getDouble(data, offset),
+                PositionCodec.getDouble(data, offset + PositionCodec.DOUBLE_BYTES), 0, 0);
+        record.keySequence = -1;
+        return true;
+    }
+
+    static int toE7(double degrees) {
+        return (int) Math.round(degrees * E7);
+    }
+}
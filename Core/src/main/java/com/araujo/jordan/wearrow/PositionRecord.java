@@ -0,0 +1,63 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * A position fix as it goes through {@link PositionProtocol}. It is mutable so the same record
+ * is filled by every decode.
+ */
+public class PositionRecord {
+
+    public double latitude, longitude;
+    public long timeMillis;
+    public float accuracy; //meters
+
+    /**
+     * False when the fix has no speed and bearing, like the legacy payload
+     */
+    public boolean hasMotion;
+    public float speed; //meters per second
+    public float bearing; //degrees clockwise from the north
+
+    public static final float MIN_COURSE_SPEED = 1; //m/s, slower than that the GPS course is noise
+    public static final float UNKNOWN_SPEED = 1.4f; //m/s, taken as walking
+    public static final float VEHICLE_SPEED = 35; //m/s, a fast car, the worst case of an unknown speed
+
+    //the last key frame decoded, the delta frames that name its sequence are applied to it
+    int keyLatitudeE7, keyLongitudeE7;
+    long keyTimeMillis;
+    int keySequence = -1;
+
+    public void set(double latitude, double longitude, long timeMillis, float accuracy) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timeMillis = timeMillis;
+        this.accuracy = accuracy;
+        this.hasMotion = false;
+    }
+
+    public void setMotion(float speed, float bearing) {
+        this.speed = speed;
+        this.bearing = bearing;
+        this.hasMotion = true;
+    }
+
+    public void copyFrom(PositionRecord other) {
+        latitude = other.latitude;
+        longitude = other.longitude;
+        timeMillis = other.timeMillis;
+        accuracy = other.accuracy;
+        hasMotion = other.hasMotion;
+        speed = other.speed;
+        bearing = other.bearing;
+        keyLatitudeE7 = other.keyLatitudeE7;
+        keyLongitudeE7 = other.keyLongitudeE7;
+        keyTimeMillis = other.keyTimeMillis;
+        keySequence = other.keySequence;
+    }
+
+    /**
+     * Forget the last key frame, so the delta frames are rejected until the next one arrives
+     */
+    public void reset() {
+        keySequence = -1;
+    }
+}
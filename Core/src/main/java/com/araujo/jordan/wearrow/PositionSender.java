@@ -0,0 +1,119 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * The handheld side of the position stream: fixes go into a {@link PositionBatcher} and the
+ * batches go out through a {@link PositionTransport} on the {@link TransportExecutor} thread.
+ * <p/>
+ * The batch is only taken from the batcher when it is about to be sent, so while nobody is
+ * connected, or a send is still waiting, the fixes stay queued and a key frame is never encoded
+ * without being sent. Scheduling the flush is left to the caller,
+ * see {@link #add(PositionRecord, long)}.
+ * <p/>
+ * In {@link SyncMode#DATA_ITEM} only the freshest fix is published, also while nobody is
+ * connected, since the transport keeps only the newest state.
+ */
+public class PositionSender {
+
+    private final PositionBatcher batcher;
+    private final TransportExecutor executor;
+    private final PositionTransport transport;
+    private volatile SyncMode syncMode = SyncMode.MESSAGE;
+
+    private final Runnable send = new Runnable() {
+        @Override
+        public void run() {
+            send();
+        }
+    };
+    private final Runnable sendStop = new Runnable() {
+        @Override
+        public void run() {
+            transport.send(PositionTransport.PATH_STOP, new byte[0]);
+        }
+    };
+
+    public PositionSender(PositionBatcher batcher, TransportExecutor executor, PositionTransport transport) {
+        this.batcher = batcher;
+        this.executor = executor;
+        this.transport = transport;
+    }
+
+    /**
+     * Queue a copy of the fix
+     *
+     * @param nowMillis the time the fix arrived
+     * @return how long until {@link #flush()} must be called, 0 for now
+     */
+    public long add(PositionRecord fix, long nowMillis) {
+        synchronized (batcher) {
+            batcher.add(fix, nowMillis);
+            return batcher.getFlushDelay(nowMillis);
+        }
+    }
+
+    /**
+     * Send the queued fixes. A send still waiting for the transport thread takes them instead.
+     */
+    public void flush() {
+        executor.submitLatest(send);
+    }
+
+    /**
+     * Tell the wear the positions stopped, after the sends already queued
+     */
+    public void sendStop() {
+        executor.execute(sendStop);
+    }
+
+    private void send() {
+        if (syncMode == SyncMode.DATA_ITEM) {
+            byte[] state;
+            synchronized (batcher) {
+                state = batcher.flushLatest();
+            }
+            if (state != null)
+                transport.publish(PositionTransport.PATH_POSITIONS, state);
+            return;
+        }
+
+        if (!transport.isConnected())
+            return; //kept in the batcher until the next flush
+
+        byte[] message;
+        synchronized (batcher) {
+            message = batcher.flush();
+        }
+        if (message != null)
+            transport.send(PositionTransport.PATH_POSITIONS, message);
+    }
+
+    public void setSyncMode(SyncMode syncMode) {
+        this.syncMode = syncMode;
+    }
+
+    public SyncMode getSyncMode() {
+        return syncMode;
+    }
+
+    public void setBatching(long flushIntervalMillis, int maxBatchSize) {
+        synchronized (batcher) {
+            batcher.setBatching(flushIntervalMillis, maxBatchSize);
+        }
+    }
+
+    /**
+     * Drop the queued fixes and start again with a key frame
+     */
+    public void reset() {
+        synchronized (batcher) {
+            batcher.reset();
+        }
+    }
+
+    /**
+     * @return the batcher, to read its counters synchronized on it
+     */
+    public PositionBatcher getBatcher() {
+        return batcher;
+    }
+}
@@ -0,0 +1,48 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Carries the messages between the handheld and the wear, so the position pipeline doesn't
+ * depend on where they go: the Wearable MessageApi on the devices, a loopback in the benchmarks.
+ */
+public interface PositionTransport {
+
+    String PATH_POSITIONS = "/gps_from_handheld";
+    String PATH_STOP = "/stop_sending_position";
+    /**
+     * Opens the arrow on the wear. The destination latitude and longitude, as
+     * {@link PositionCodec#toByteArray(double[])} writes them, then the wake distance in
+     * kilometers only when the proximity mode is on.
+     */
+    String PATH_START_ACTIVITY = "/start-activity";
+
+    /**
+     * Gets the messages that arrive
+     */
+    interface Receiver {
+        void onMessage(String path, byte[] data);
+    }
+
+    /**
+     * @return true if there is someone to send to
+     */
+    boolean isConnected();
+
+    /**
+     * Send the message to every connected node. It may block, so only on the transport thread.
+     *
+     * @return to how many nodes it was sent
+     */
+    int send(String path, byte[] data);
+
+    /**
+     * Replace the state kept at the path. The receivers get the newest state when they are
+     * connected, the states replaced before that are never delivered. It may block, so only on
+     * the transport thread.
+     */
+    void publish(String path, byte[] data);
+
+    /**
+     * Start giving the messages that arrive to the receiver, null stops
+     */
+    void setReceiver(Receiver receiver);
+}
@@ -0,0 +1,70 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Decides which location providers are used, and how often they report, given how far and how
+ * soon the destination is. Used by {@link ProviderStrategy}.
+ */
+public interface ProviderPolicy {
+
+    /**
+     * The providers to register and their update rate
+     */
+    final class Request {
+
+        public final String name; //for the logs
+        public final boolean gps, network, passive;
+        public final long minTimeMillis;
+        public final float minDistance; //meters
+        /**
+         * How late the fixes may be delivered, so a {@link LocationSource} that batches gives
+         * them together. 0 delivers every fix at once.
+         */
+        public final long maxWaitMillis;
+
+        public Request(String name, boolean gps, boolean network, boolean passive, long minTimeMillis,
+                       float minDistance) {
+            this(name, gps, network, passive, minTimeMillis, minDistance, 0);
+        }
+
+        public Request(String name, boolean gps, boolean network, boolean passive, long minTimeMillis,
+                       float minDistance, long maxWaitMillis) {
+            this.name = name;
+            this.gps = gps;
+            this.network = network;
+            this.passive = passive;
+            this.minTimeMillis = minTimeMillis;
+            this.minDistance = minDistance;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        /**
+         * @return true if this request keeps the GPS on for longer than the other one, or
+         * reports more often, or delivers the fixes sooner
+         */
+        public boolean isFinerThan(Request other) {
+            if (gps != other.gps)
+                return gps;
+            if (minTimeMillis != other.minTimeMillis)
+                return minTimeMillis < other.minTimeMillis;
+            return maxWaitMillis < other.maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * @return the request before the first fix, when nothing is known yet
+     */
+    Request getFirstRequest();
+
+    /**
+     * @param destinationDistance in kilometers
+     * @param speed               in meters per second, negative when not known
+     * @param watchConnected      true if a wear is showing the arrow
+     * @return one of the requests of the policy, the same instance for the same choice
+     */
+    Request getRequest(double destinationDistance, float speed, boolean watchConnected);
+}
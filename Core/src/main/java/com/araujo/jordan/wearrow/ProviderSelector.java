@@ -0,0 +1,52 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Registers the platform location providers of a {@link ProviderPolicy.Request}: the ones of
+ * the request that are enabled or, if none is, the GPS or the network, whichever is. Kept off
+ * the LocationManager so the fallback can be checked off the devices.
+ */
+public final class ProviderSelector {
+
+    //the names of the LocationManager
+    public static final String GPS = "gps";
+    public static final String NETWORK = "network";
+    public static final String PASSIVE = "passive";
+
+    /**
+     * The providers of the device
+     */
+    public interface Providers {
+
+        boolean isEnabled(String provider);
+
+        void requestUpdates(String provider, ProviderPolicy.Request request);
+    }
+
+    private ProviderSelector() {
+    }
+
+    /**
+     * @return false if no provider is enabled
+     */
+    public static boolean register(ProviderPolicy.Request request, Providers providers) {
+        boolean registered = false;
+        if (request.gps)
+            registered = register(GPS, request, providers);
+        if (request.network)
+            registered |= register(NETWORK, request, providers);
+        if (request.passive)
+            registered |= register(PASSIVE, request, providers);
+        if (!registered && !request.gps)
+            registered = register(GPS, request, providers);
+        if (!registered && !request.network)
+            registered = register(NETWORK, request, providers);
+        return registered;
+    }
+
+    private static boolean register(String provider, ProviderPolicy.Request request, Providers providers) {
+        if (!providers.isEnabled(provider))
+            return false;
+        providers.requestUpdates(provider, request);
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Follows the fixes and tells when the location providers should be registered again with
+ * another request, as decided by a {@link ProviderPolicy}.
+ * <p/>
+ * A finer request is taken at once, a coarser one only after the policy asked for it for
+ * {@link #MIN_COARSER_MILLIS}, so a noisy speed or a short stop don't toggle the GPS. Also
+ * keeps how long the GPS was registered.
+ */
+public class ProviderStrategy {
+
+    public static final long MIN_COARSER_MILLIS = 30000;
+
+    private ProviderPolicy policy;
+    private ProviderPolicy.Request request, coarser;
+    private long coarserSince, requestSince;
+    private long gpsMillis;
+    private int changes;
+
+    public ProviderStrategy(ProviderPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void setPolicy(ProviderPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * The request before the first fix
+     *
+     * @param timeMillis now, on a monotonic clock
+     */
+    public ProviderPolicy.Request start(long timeMillis) {
+        request = policy.getFirstRequest();
+        coarser = null;
+        requestSince = timeMillis;
+        gpsMillis = 0;
+        changes = 0;
+        return request;
+    }
+
+    /**
+     * A new fix
+     *
+     * @param destinationDistance in kilometers
+     * @param speed               in meters per second, negative when not known
+     * @param watchConnected      true if a wear is showing the arrow
+     * @param timeMillis          now, on a monotonic clock
+     * @return true if the providers must be registered again with {@link #getRequest()}
+     */
+    public boolean onFix(double destinationDistance, float speed, boolean watchConnected, long timeMillis) {
+        ProviderPolicy.Request wanted = policy.getRequest(destinationDistance, speed, watchConnected);
+        if (wanted == request) {
+            coarser = null;
+            return false;
+        }
+        if (!wanted.isFinerThan(request)) {
+            if (wanted != coarser) {
+                coarser = wanted;
+                coarserSince = timeMillis;
+            }
+            if (timeMillis - coarserSince < MIN_COARSER_MILLIS)
+                return false;
+        }
+
+        stop(timeMillis);
+        request = wanted;
+        coarser = null;
+        changes++;
+        return true;
+    }
+
+    /**
+     * Account the time of the current request, call when the providers are removed
+     */
+    public void stop(long timeMillis) {
+        if (request != null && request.gps)
+            gpsMillis += timeMillis - requestSince;
+        requestSince = timeMillis;
+    }
+
+    public ProviderPolicy.Request getRequest() {
+        return request;
+    }
+
+    /**
+     * @return how long the GPS was registered, up to the last change or stop
+     */
+    public long getGpsMillis() {
+        return gpsMillis;
+    }
+
+    /**
+     * @return how many times the request changed since the start
+     */
+    public int getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,111 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Splits a trip in a dormant part, far from the destination, and an active one, inside a ring
+ * around it. Far away the distance is shown in whole kilometers and the arrow barely turns, so
+ * while dormant the heading sensors can stop, the screens sleep and the location come every
+ * few minutes, see {@link GeofenceProviderPolicy}.
+ * <p/>
+ * The ring is taken as crossed when the user could reach it before the next dormant fix, at
+ * the speed of the last one, so the tracking is back at full rate before the user is inside.
+ * The dormant fixes come from the network without a speed, the caller estimates it with a
+ * {@link SpeedEstimator}. A speed not known at all is taken as
+ * {@link PositionRecord#VEHICLE_SPEED}, the worst case.
+ * Going dormant again needs {@link #SLEEP_MARGIN} more, so a fix on the ring doesn't toggle.
+ */
+public class ProximityGeofence {
+
+    public static final double DEFAULT_WAKE_DISTANCE = 2; //km
+    public static final long DEFAULT_DORMANT_INTERVAL_MILLIS = 5 * 60000;
+    public static final double SLEEP_MARGIN = 0.3; //km
+
+
+    private double wakeDistance; //km
+    private final long dormantIntervalMillis;
+
+    private boolean isDormant;
+    private long changedMillis, dormantMillis;
+    private int wakes;
+
+    public ProximityGeofence() {
+        this(DEFAULT_WAKE_DISTANCE, DEFAULT_DORMANT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param wakeDistance          radius of the ring, in kilometers
+     * @param dormantIntervalMillis time between the fixes while dormant
+     */
+    public ProximityGeofence(double wakeDistance, long dormantIntervalMillis) {
+        this.wakeDistance = wakeDistance;
+        this.dormantIntervalMillis = dormantIntervalMillis;
+    }
+
+    public void setWakeDistance(double wakeDistance) {
+        this.wakeDistance = wakeDistance;
+    }
+
+    public double getWakeDistance() {
+        return wakeDistance;
+    }
+
+    public long getDormantIntervalMillis() {
+        return dormantIntervalMillis;
+    }
+
+    /**
+     * A new fix
+     *
+     * @param destinationDistance in kilometers
+     * @param speed               in meters per second, negative when not known
+     * @param timeMillis          now, on a monotonic clock
+     * @return true if it went dormant or woke up, see {@link #isDormant()}
+     */
+    public boolean onFix(double destinationDistance, float speed, long timeMillis) {
+        double reach = (speed < 0 ? PositionRecord.VEHICLE_SPEED : speed) * dormantIntervalMillis / 1e6; //km
+        double ahead = destinationDistance - reach;
+        boolean dormant = ahead >= (isDormant ? wakeDistance : wakeDistance + SLEEP_MARGIN);
+        if (dormant == isDormant)
+            return false;
+
+        if (isDormant) {
+            dormantMillis += timeMillis - changedMillis;
+            wakes++;
+        }
+        isDormant = dormant;
+        changedMillis = timeMillis;
+        return true;
+    }
+
+    /**
+     * @return true while the user is far outside the ring
+     */
+    public boolean isDormant() {
+        return isDormant;
+    }
+
+    /**
+     * @return how long it was dormant since the start, up to now
+     */
+    public long getDormantMillis(long timeMillis) {
+        return isDormant ? dormantMillis + timeMillis - changedMillis : dormantMillis;
+    }
+
+    /**
+     * @return how many times the ring was crossed inwards
+     */
+    public int getWakes() {
+        return wakes;
+    }
+
+    /**
+     * Active again, with the counters cleared
+     *
+     * @param timeMillis now, on a monotonic clock
+     */
+    public void start(long timeMillis) {
+        isDormant = false;
+        changedMillis = timeMillis;
+        dormantMillis = 0;
+        wakes = 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Decides how often the heading sensors report, given how fast the heading is changing.
+ * Used by {@link AdaptiveSampler}.
+ */
+public interface SamplingPolicy {
+
+    /**
+     * @param angularVelocity how fast the heading is turning, in degrees per second
+     * @return the sensor sampling period, in microseconds
+     */
+    int getSamplingPeriodUs(float angularVelocity);
+
+    /**
+     * @param samplingPeriodUs the period returned by {@link #getSamplingPeriodUs(float)}
+     * @return how long the sensor hub may batch the events before waking the CPU, in
+     * microseconds, 0 to deliver every event right away
+     */
+    int getMaxReportLatencyUs(int samplingPeriodUs);
+}
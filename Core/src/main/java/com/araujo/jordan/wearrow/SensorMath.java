@@ -0,0 +1,146 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Plain Java copy of the {@code SensorManager} rotation math used by the arrow, so the sensor
+ * path can be measured off the device. The results are the same as the Android ones for 3x3
+ * matrices.
+ */
+public final class SensorMath {
+
+    private static final float GRAVITY_EARTH = 9.81f;
+    private static final float FREE_FALL_GRAVITY_SQUARED = 0.01f * GRAVITY_EARTH * GRAVITY_EARTH;
+
+    private SensorMath() {
+    }
+
+    /**
+     * Same as {@code SensorManager.getRotationMatrix} for 3x3 matrices.
+     *
+     * @param R           the rotation matrix, may be null
+     * @param I           the inclination matrix, may be null
+     * @param gravity     the accelerometer values
+     * @param geomagnetic the magnetic field values
+     * @return false when the device is in free fall or close to the magnetic north pole
+     */
+    public static boolean getRotationMatrix(float[] R, float[] I, float[] gravity, float[] geomagnetic) {
+        float Ax = gravity[0];
+        float Ay = gravity[1];
+        float Az = gravity[2];
+
+        final float normsqA = (Ax * Ax + Ay * Ay + Az * Az);
+        if (normsqA < FREE_FALL_GRAVITY_SQUARED)
+            return false;
+
+        final float Ex = geomagnetic[0];
+        final float Ey = geomagnetic[1];
+        final float Ez = geomagnetic[2];
+        float Hx = Ey * Az - Ez * Ay;
+        float Hy = Ez * Ax - Ex * Az;
+        float Hz = Ex * Ay - Ey * Ax;
+        final float normH = (float) Math.sqrt(Hx * Hx + Hy * Hy + Hz * Hz);
+        if (normH < 0.1f)
+            return false;
+
+        final float invH = 1.0f / normH;
+        Hx *= invH;
+        Hy *= invH;
+        Hz *= invH;
+        final float invA = 1.0f / (float) Math.sqrt(normsqA);
+        Ax *= invA;
+        Ay *= invA;
+        Az *= invA;
+        final float Mx = Ay * Hz - Az * Hy;
+        final float My = Az * Hx - Ax * Hz;
+        final float Mz = Ax * Hy - Ay * Hx;
+
+        if (R != null) {
+            R[0] = Hx;
+            R[1] = Hy;
+            R[2] = Hz;
+            R[3] = Mx;
+            R[4] = My;
+            R[5] = Mz;
+            R[6] = Ax;
+            R[7] = Ay;
+            R[8] = Az;
+        }
+        if (I != null) {
+            final float invE = 1.0f / (float) Math.sqrt(Ex * Ex + Ey * Ey + Ez * Ez);
+            final float c = (Ex * Mx + Ey * My + Ez * Mz) * invE;
+            final float s = (Ex * Ax + Ey * Ay + Ez * Az) * invE;
+            I[0] = 1;
+            I[1] = 0;
+            I[2] = 0;
+            I[3] = 0;
+            I[4] = c;
+            I[5] = s;
+            I[6] = 0;
+            I[7] = -s;
+            I[8] = c;
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code SensorManager.getOrientation} for 3x3 matrices.
+     *
+     * @return the values array filled with azimuth, pitch and roll, in radians
+     */
+    public static float[] getOrientation(float[] R, float[] values) {
+        values[0] = (float) Math.atan2(R[1], R[4]);
+        values[1] = (float) Math.asin(-R[7]);
+        values[2] = (float) Math.atan2(-R[6], R[8]);
+        return values;
+    }
+
+    /**
+     * Only the azimuth of {@link #getOrientation(float[], float[])}, since the arrow has no use
+     * for the pitch and roll.
+     *
+     * @return the azimuth, in radians
+     */
+    public static float getAzimuth(float[] R, Trigonometry trigonometry) {
+        return (float) trigonometry.atan2(R[1], R[4]);
+    }
+
+    /**
+     * Same as {@code SensorManager.getRotationMatrixFromVector} for 3x3 matrices.
+     *
+     * @param R              the rotation matrix
+     * @param rotationVector the rotation vector values, with or without the scalar component
+     * @param length         how many values of the rotation vector are valid
+     */
+    public static void getRotationMatrixFromVector(float[] R, float[] rotationVector, int length) {
+        float q0;
+        float q1 = rotationVector[0];
+        float q2 = rotationVector[1];
+        float q3 = rotationVector[2];
+
+        if (length >= 4) {
+            q0 = rotationVector[3];
+        } else {
+            q0 = 1 - q1 * q1 - q2 * q2 - q3 * q3;
+            q0 = (q0 > 0) ? (float) Math.sqrt(q0) : 0;
+        }
+
+        float sq_q1 = 2 * q1 * q1;
+        float sq_q2 = 2 * q2 * q2;
+        float sq_q3 = 2 * q3 * q3;
+        float q1_q2 = 2 * q1 * q2;
+        float q3_q0 = 2 * q3 * q0;
+        float q1_q3 = 2 * q1 * q3;
+        float q2_q0 = 2 * q2 * q0;
+        float q2_q3 = 2 * q2 * q3;
+        float q1_q0 = 2 * q1 * q0;
+
+        R[0] = 1 - sq_q2 - sq_q3;
+        R[1] = q1_q2 - q3_q0;
+        R[2] = q1_q3 + q2_q0;
+        R[3] = q1_q2 + q3_q0;
+        R[4] = 1 - sq_q1 - sq_q3;
+        R[5] = q2_q3 - q1_q0;
+        R[6] = q1_q3 - q2_q0;
+        R[7] = q2_q3 + q1_q0;
+        R[8] = 1 - sq_q1 - sq_q2;
+    }
+}
@@ -0,0 +1,54 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * The speed of the user when the fixes don't have one, like the network ones, for the
+ * {@link ProviderPolicy} and the {@link ProximityGeofence}. It is how far the user moved since
+ * an earlier fix at least {@link #MIN_INTERVAL_MILLIS} before, closer fixes are too noisy to
+ * tell a walk from a drive.
+ * <p/>
+ * The {@link PositionFilter} velocity can't be used: it restarts after a gap between fixes, and
+ * the network fixes are minutes apart.
+ */
+public class SpeedEstimator {
+
+    public static final long MIN_INTERVAL_MILLIS = 30000;
+
+    private final GeodesicSolver geodesicSolver = new GeodesicSolver(GeodesicSolver.Tier.EQUIRECTANGULAR);
+
+    private boolean hasBase;
+    private double baseLatitude, baseLongitude;
+    private long baseTimeMillis;
+    private float speed = -1; //m/s
+
+    /**
+     * A new fix, newer than the ones before
+     */
+    public void onFix(PositionRecord fix) {
+        if (fix.hasMotion) {
+            speed = fix.speed;
+        } else if (hasBase) {
+            long interval = fix.timeMillis - baseTimeMillis;
+            if (interval < MIN_INTERVAL_MILLIS)
+                return; //the next one is measured from the same base
+            geodesicSolver.solve(baseLatitude, baseLongitude, fix.latitude, fix.longitude);
+            speed = (float) (geodesicSolver.getDistance() * 1e6 / interval);
+        }
+        hasBase = true;
+        baseLatitude = fix.latitude;
+        baseLongitude = fix.longitude;
+        baseTimeMillis = fix.timeMillis;
+    }
+
+    /**
+     * @return in meters per second, of the last fix that had one or from the positions,
+     * negative when not known yet
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    public void reset() {
+        hasBase = false;
+        speed = -1;
+    }
+}
@@ -0,0 +1,20 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * How the positions go from the handheld to the wear
+ */
+public enum SyncMode {
+
+    /**
+     * A message per batch, every fix of the batch reaches the wear. Messages sent while the
+     * link drops are lost, and a lost message makes the wear wait for the next key frame.
+     */
+    MESSAGE,
+
+    /**
+     * The freshest fix as one DataItem overwritten on every flush. The wear only sees the newest
+     * state, also after reconnecting, and the publishes made while disconnected collapse into
+     * one. Every publish is a key frame, since the ones before may never be seen.
+     */
+    DATA_ITEM
+}
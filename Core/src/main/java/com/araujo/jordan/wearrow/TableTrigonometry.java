@@ -0,0 +1,68 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * {@link Trigonometry} from lookup tables with linear interpolation, for watch CPUs where
+ * {@link Math} is slow. The error against {@link Math} stays under {@link #MAX_ERROR} for
+ * angles within a few turns of zero.
+ */
+public final class TableTrigonometry implements Trigonometry {
+
+    public static final TableTrigonometry INSTANCE = new TableTrigonometry();
+
+    /**
+     * Largest difference from {@link Math}, in radians for atan2
+     */
+    public static final double MAX_ERROR = 1e-6;
+
+    private static final int SIN_SIZE = 4096; //power of 2, so the index wraps with a mask
+    private static final int SIN_MASK = SIN_SIZE - 1;
+    private static final double SIN_INDEX = SIN_SIZE / (2 * Math.PI);
+    private static final int ATAN_SIZE = 1024;
+
+    private final float[] sinTable = new float[SIN_SIZE + 1];
+    private final float[] atanTable = new float[ATAN_SIZE + 1];
+
+    private TableTrigonometry() {
+        for (int i = 0; i <= SIN_SIZE; i++)
+            sinTable[i] = (float) Math.sin(i / SIN_INDEX);
+        for (int i = 0; i <= ATAN_SIZE; i++)
+            atanTable[i] = (float) Math.atan((double) i / ATAN_SIZE);
+    }
+
+    @Override
+    public double sin(double angle) {
+        return sinIndex(angle * SIN_INDEX);
+    }
+
+    @Override
+    public double cos(double angle) {
+        return sinIndex(angle * SIN_INDEX + SIN_SIZE / 4);
+    }
+
+    private double sinIndex(double index) {
+        double floor = Math.floor(index);
+        int i = (int) floor & SIN_MASK;
+        double fraction = index - floor;
+        return sinTable[i] + (sinTable[i + 1] - sinTable[i]) * fraction;
+    }
+
+    @Override
+    public double atan2(double y, double x) {
+        double absX = Math.abs(x), absY = Math.abs(y);
+        if (absX == 0 && absY == 0)
+            return 0;
+
+        //reduce to an angle between 0 and 45 degrees
+        boolean steep = absY > absX;
+        double index = (steep ? absX / absY : absY / absX) * ATAN_SIZE;
+        int i = (int) index;
+        double angle = i >= ATAN_SIZE ? atanTable[ATAN_SIZE]
+                : atanTable[i] + (atanTable[i + 1] - atanTable[i]) * (index - i);
+
+        if (steep)
+            angle = Math.PI / 2 - angle;
+        if (x < 0)
+            angle = Math.PI - angle;
+        return y < 0 ? -angle : angle;
+    }
+}
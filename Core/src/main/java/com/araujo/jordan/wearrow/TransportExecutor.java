@@ -0,0 +1,132 @@
+package com.araujo.jordan.wearrow;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The one thread that talks to the wear, so the blocking node queries and the sends never run
+ * on the main thread and never need a thread of their own.
+ * <p/>
+ * Tasks run in order from a bounded queue, a task that doesn't fit is rejected. A task given to
+ * {@link #submitLatest(Runnable)} replaces the one still waiting, so a burst of fixes sends only
+ * the freshest and the queue doesn't grow with the fix rate.
+ */
+public class TransportExecutor {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicReference<Runnable> latest = new AtomicReference<>();
+    private final Runnable runLatest = new Runnable() {
+        @Override
+        public void run() {
+            Runnable task = latest.getAndSet(null);
+            if (task != null)
+                task.run();
+        }
+    };
+
+    private final AtomicInteger threadsCreated = new AtomicInteger();
+    private final AtomicInteger staleDropped = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public TransportExecutor() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public TransportExecutor(int queueCapacity) {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "wearrow-transport-" + threadsCreated.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queue a task
+     *
+     * @return false if the queue is full or the executor was shut down
+     */
+    public boolean execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        int depth = executor.getQueue().size();
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth))
+            max = maxQueueDepth.get();
+        return true;
+    }
+
+    /**
+     * Queue a task that replaces the last one given here, if it has not started yet
+     *
+     * @return false if the task was rejected
+     */
+    public boolean submitLatest(Runnable task) {
+        if (latest.getAndSet(task) != null) {
+            staleDropped.incrementAndGet();
+            return true; //the queued runner takes the new task
+        }
+        if (execute(runLatest))
+            return true;
+        latest.compareAndSet(task, null);
+        return false;
+    }
+
+    /**
+     * Run the queued tasks and let the thread end
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return how many tasks are waiting to run
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return how many threads ran the tasks, more than 1 only if a task threw
+     */
+    public int getThreadsCreated() {
+        return threadsCreated.get();
+    }
+
+    /**
+     * @return how many tasks were replaced by a newer one before running
+     */
+    public int getStaleDropped() {
+        return staleDropped.get();
+    }
+
+    /**
+     * @return how many tasks didn't fit the queue
+     */
+    public int getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,14 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * The trigonometric functions used by the heading and bearing math, so a faster backend can be
+ * swapped in on slow watches. Angles are in radians.
+ */
+public interface Trigonometry {
+
+    double sin(double angle);
+
+    double cos(double angle);
+
+    double atan2(double y, double x);
+}
@@ -0,0 +1,42 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Default {@link SamplingPolicy}: a slow batched rate while the heading is stable, the UI rate
+ * while the user walks and the game rate when the device is being swung around.
+ */
+public class VelocitySamplingPolicy implements SamplingPolicy {
+
+    public static final int PERIOD_FAST_US = 20000; //SENSOR_DELAY_GAME
+    public static final int PERIOD_UI_US = 60000; //SENSOR_DELAY_UI
+    public static final int PERIOD_SLOW_US = 200000; //SENSOR_DELAY_NORMAL
+    public static final int SLOW_MAX_REPORT_LATENCY_US = 1000000;
+
+    private final float stableVelocity, fastVelocity;
+
+    public VelocitySamplingPolicy() {
+        this(5, 90);
+    }
+
+    /**
+     * @param stableVelocity under this angular velocity, in degrees per second, the slow rate is used
+     * @param fastVelocity   over this angular velocity, in degrees per second, the fast rate is used
+     */
+    public VelocitySamplingPolicy(float stableVelocity, float fastVelocity) {
+        this.stableVelocity = stableVelocity;
+        this.fastVelocity = fastVelocity;
+    }
+
+    @Override
+    public int getSamplingPeriodUs(float angularVelocity) {
+        if (angularVelocity < stableVelocity)
+            return PERIOD_SLOW_US;
+        if (angularVelocity > fastVelocity)
+            return PERIOD_FAST_US;
+        return PERIOD_UI_US;
+    }
+
+    @Override
+    public int getMaxReportLatencyUs(int samplingPeriodUs) {
+        return samplingPeriodUs >= PERIOD_SLOW_US ? SLOW_MAX_REPORT_LATENCY_US : 0;
+    }
+}
@@ -0,0 +1,47 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSamplerTest {
+
+    private static final long DURATION_NANOS = 600 * 1000000000L;
+
+    private final AdaptiveSampler sampler = new AdaptiveSampler(new VelocitySamplingPolicy());
+    private final Random random = new Random(42);
+
+    @Test
+    public void walkingDoesntSampleMoreThanTheFixedRate() {
+        long samples = 0;
+        for (long t = 0; t < DURATION_NANOS; t += sampler.getSamplingPeriodUs() * 1000L) {
+            double seconds = t / 1e9;
+            double bearing = seconds < 240 ? 45 : seconds < 360 ? 135 : seconds < 480 ? 45 : 0; //three corners
+            sampler.onHeading((float) (bearing + 10 * Math.sin(2 * Math.PI * seconds / 1.1) //arm swing
+                    + random.nextGaussian() * 2), t);
+            samples++;
+        }
+        long fixedSamples = DURATION_NANOS / (VelocitySamplingPolicy.PERIOD_UI_US * 1000L);
+        assertTrue(samples + " samples", samples <= fixedSamples);
+        assertTrue(sampler.getRateChanges() + " rate changes", sampler.getRateChanges() <= 2);
+    }
+
+    @Test
+    public void swingingTheDeviceSamplesFast() {
+        for (long t = 0; t < 1000000000L; t += sampler.getSamplingPeriodUs() * 1000L)
+            sampler.onHeading((float) (180 * t / 1e9), t);
+        assertEquals(VelocitySamplingPolicy.PERIOD_FAST_US, sampler.getSamplingPeriodUs());
+    }
+
+    @Test
+    public void restingSamplesSlowAndBatched() {
+        for (long t = 0; t < 10000000000L; t += sampler.getSamplingPeriodUs() * 1000L)
+            sampler.onHeading((float) (45 + random.nextGaussian() * 0.2), t);
+        assertEquals(VelocitySamplingPolicy.PERIOD_SLOW_US, sampler.getSamplingPeriodUs());
+        assertEquals(VelocitySamplingPolicy.SLOW_MAX_REPORT_LATENCY_US, sampler.getMaxReportLatencyUs());
+        assertEquals(1, sampler.getRateChanges());
+    }
+}
@@ -0,0 +1,29 @@
+package com.araujo.jordan.wearrow;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated by the current thread. Needs a JVM with
+ * {@code com.sun.management.ThreadMXBean}, like HotSpot.
+ */
+class Allocations {
+
+    private Allocations() {
+    }
+
+    /**
+     * @return the bytes the current thread allocated in the second run of the events, the first
+     * one loads and compiles the classes
+     */
+    static long allocatedBytes(Runnable events) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        events.run();
+        long before = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - before; //of the measuring itself
+        before = threads.getThreadAllocatedBytes(thread);
+        events.run();
+        return threads.getThreadAllocatedBytes(thread) - before - overhead;
+    }
+}
@@ -0,0 +1,52 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The batched requests never keep the fixes until the user is inside the near ring, also when
+ * the fixes have no speed
+ */
+public class ArrivalProviderPolicyTest {
+
+    private static final double DESTINATION_LATITUDE = 37.4300, DESTINATION_LONGITUDE = -122.0750;
+    private static final double NEAR_DISTANCE = 0.2; //km, of the default policy
+    private static final float DRIVE_SPEED = 15; //m/s
+
+    private final ArrivalProviderPolicy policy = new ArrivalProviderPolicy();
+
+    @Test
+    public void driveWithoutMotionIsNotBatchedIntoTheNearRing() {
+        SpeedEstimator speedEstimator = new SpeedEstimator();
+        PositionRecord fix = new PositionRecord();
+        long timeMillis = 0;
+        double distance = 12; //km, driving straight north to the destination
+        int batched = 0;
+        while (distance > NEAR_DISTANCE) {
+            fix.set(DESTINATION_LATITUDE - distance * 1000 / Geodesy.METERS_PER_DEGREE, DESTINATION_LONGITUDE,
+                    timeMillis, 50);
+            speedEstimator.onFix(fix);
+            ProviderPolicy.Request request = policy.getRequest(distance, speedEstimator.getSpeed(), false);
+            //the newest fix of the next delivery
+            long lateMillis = request.minTimeMillis + request.maxWaitMillis;
+            double next = distance - DRIVE_SPEED * lateMillis / 1e6;
+            if (request.maxWaitMillis > 0) {
+                batched++;
+                assertTrue(request + " from " + distance + " km", next >= NEAR_DISTANCE);
+            }
+            timeMillis += lateMillis;
+            distance = next;
+        }
+        assertTrue(batched > 0);
+    }
+
+    @Test
+    public void unknownSpeedIsBatchedOnlyOutOfReachOfAVehicle() {
+        assertEquals(ArrivalProviderPolicy.FAR, policy.getRequest(5, -1, true));
+        assertEquals(ArrivalProviderPolicy.FAR_BATCHED, policy.getRequest(20, -1, true));
+        assertEquals(ArrivalProviderPolicy.FAR_BATCHED, policy.getRequest(5, 1.4f, true));
+        assertEquals(ArrivalProviderPolicy.APPROACH_NO_WEAR, policy.getRequest(1, -1, false));
+    }
+}
@@ -0,0 +1,87 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The batch contract of a {@link LocationSource}, on the {@link TraceLocationSource} fake: the
+ * fixes of a batch come oldest first, counting the ones that remain down to 0, and with a
+ * {@link LocationBatch} only the last one moves the arrow
+ */
+public class LocationBatchTest {
+
+    private static final int FIXES = 600; //one a second
+    private static final ProviderPolicy.Request BATCHED = new ProviderPolicy.Request("batched", true, false, false,
+            1000, 0, 60000);
+
+    private final List<Long> times = new ArrayList<>();
+    private final List<Integer> remainings = new ArrayList<>();
+    private final List<Long> shown = new ArrayList<>(); //the fixes that moved the arrow
+    private final LocationBatch locationBatch = new LocationBatch();
+
+    private final LocationSource.Listener listener = new LocationSource.Listener() {
+        @Override
+        public void onLocation(PositionRecord fix, String provider, int remaining) {
+            times.add(fix.timeMillis);
+            remainings.add(remaining);
+            locationBatch.add(fix);
+            if (locationBatch.end(remaining))
+                shown.add(locationBatch.getNewest().timeMillis);
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+        }
+    };
+
+    @Test
+    public void batchComesOldestFirstAndOnlyItsLastFixMovesTheArrow() {
+        TraceLocationSource source = new TraceLocationSource(walk(), true);
+        source.start(BATCHED, listener);
+        for (long time = 0; time < FIXES * 1000L; time += 1000)
+            source.advanceTo(time);
+
+        assertEquals(source.getFixesDelivered(), times.size());
+        assertEquals(source.getDeliveries(), shown.size());
+        assertTrue(source.getDeliveries() < times.size() / 10);
+        int shownIndex = 0;
+        for (int i = 0; i < times.size(); i++) {
+            if (i > 0 && remainings.get(i - 1) > 0) {
+                assertEquals(remainings.get(i - 1) - 1, (int) remainings.get(i));
+                assertTrue(times.get(i) > times.get(i - 1));
+            }
+            if (remainings.get(i) == 0)
+                assertEquals(times.get(i), shown.get(shownIndex++));
+        }
+        assertEquals(shown.size(), shownIndex);
+    }
+
+    @Test
+    public void batchWithoutAFixTakenDoesntMoveTheArrow() {
+        PositionRecord fix = walk()[0];
+        assertFalse(locationBatch.end(0));
+        locationBatch.add(fix);
+        assertFalse(locationBatch.end(2));
+        assertTrue(locationBatch.end(0));
+        assertFalse(locationBatch.end(0));
+        locationBatch.add(fix);
+        locationBatch.reset();
+        assertFalse(locationBatch.end(0));
+    }
+
+    private static PositionRecord[] walk() {
+        PositionRecord[] fixes = new PositionRecord[FIXES];
+        for (int i = 0; i < FIXES; i++) {
+            fixes[i] = new PositionRecord();
+            fixes[i].set(37.4220 + i * 1.4 / Geodesy.METERS_PER_DEGREE, -122.0841, i * 1000L, 4);
+            fixes[i].setMotion(1.4f, 0);
+        }
+        return fixes;
+    }
+}
@@ -0,0 +1,170 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NodeRegistryTest {
+
+    private static final String WATCH = "watch";
+
+    private final NodeRegistry registry = new NodeRegistry();
+    private final FakeNodeSource source = new FakeNodeSource();
+
+    @Test
+    public void refreshAsksTheSourceOnce() {
+        source.connected.add(WATCH);
+        registry.refresh(source);
+        assertEquals(Collections.singletonList(WATCH), registry.getNodes());
+        assertEquals(1, registry.getQueries());
+    }
+
+    @Test
+    public void peerCallbacksKeepTheNodesCurrent() {
+        registry.refresh(source);
+        assertTrue(registry.isEmpty());
+        registry.onPeerConnected(WATCH);
+        registry.onPeerConnected(WATCH);
+        assertEquals(Collections.singletonList(WATCH), registry.getNodes());
+        registry.onPeerDisconnected(WATCH);
+        assertTrue(registry.isEmpty());
+        assertEquals(1, registry.getQueries());
+    }
+
+    @Test
+    public void peerConnectedDuringTheQueryIsKept() {
+        source.duringQuery = new Runnable() {
+            @Override
+            public void run() {
+                source.connected.add(WATCH);
+                registry.onPeerConnected(WATCH);
+            }
+        };
+        registry.refresh(source);
+        assertEquals(Collections.singletonList(WATCH), registry.getNodes());
+        assertEquals(2, registry.getQueries());
+    }
+
+    @Test
+    public void peerDisconnectedDuringTheQueryIsKept() {
+        source.connected.addAll(Arrays.asList(WATCH, "phone"));
+        source.duringQuery = new Runnable() {
+            @Override
+            public void run() {
+                source.connected.remove(WATCH);
+                registry.onPeerDisconnected(WATCH);
+            }
+        };
+        registry.refresh(source);
+        assertEquals(Collections.singletonList("phone"), registry.getNodes());
+        assertEquals(2, registry.getQueries());
+    }
+
+    @Test
+    public void onlyTheFirstNodeIsTold() {
+        final AtomicInteger connected = new AtomicInteger();
+        registry.setOnConnectedListener(new NodeRegistry.OnConnectedListener() {
+            @Override
+            public void onConnected() {
+                connected.incrementAndGet();
+            }
+        });
+        source.connected.add(WATCH);
+        registry.refresh(source);
+        registry.refresh(source);
+        registry.onPeerConnected("phone");
+        assertEquals(1, connected.get());
+        registry.onPeerDisconnected(WATCH);
+        registry.onPeerDisconnected("phone");
+        registry.onPeerConnected(WATCH);
+        assertEquals(2, connected.get());
+    }
+
+    @Test
+    public void concurrentCallbacksAreNotLost() throws InterruptedException {
+        final int peers = 8, rounds = 100000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            List<String> nodes = registry.getNodes();
+                            int size = nodes.size();
+                            for (String node : nodes)
+                                if (node == null)
+                                    throw new IllegalStateException("null node");
+                            if (nodes.size() != size)
+                                throw new IllegalStateException("snapshot changed while read");
+                            reads.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        Thread[] writers = new Thread[2];
+        for (int w = 0; w < writers.length; w++) {
+            final int first = w * peers / writers.length;
+            writers[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < rounds; i++) {
+                        String peer = "peer" + (first + i % (peers / 2));
+                        registry.onPeerConnected(peer);
+                        if (i < rounds - peers)
+                            registry.onPeerDisconnected(peer);
+                    }
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+        done.set(true);
+        for (Thread reader : readers)
+            reader.join();
+
+        assertNull(failure.get());
+        assertTrue(reads.get() > 0);
+        assertEquals(peers, registry.getNodes().size());
+    }
+
+    /**
+     * Answers with the nodes connected now, running {@link #duringQuery} in the first query
+     */
+    private static class FakeNodeSource implements NodeSource {
+
+        final List<String> connected = new ArrayList<>();
+        Runnable duringQuery;
+
+        @Override
+        public List<String> getConnectedNodes() {
+            List<String> nodes = new ArrayList<>(connected);
+            if (duringQuery != null) {
+                Runnable callback = duringQuery;
+                duringQuery = null;
+                callback.run();
+            }
+            return nodes;
+        }
+    }
+}
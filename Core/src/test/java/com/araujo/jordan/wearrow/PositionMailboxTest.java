@@ -0,0 +1,105 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PositionMailboxTest {
+
+    private static final int POSITIONS = 200000;
+
+    private final PositionMailbox mailbox = new PositionMailbox();
+    private final PositionRecord received = new PositionRecord();
+
+    @Test
+    public void pollTakesTheOfferedPositionOnce() {
+        assertNull(mailbox.poll());
+        received.set(1, -1, 1, 1);
+        assertTrue(mailbox.offer(received));
+        assertEquals(1, mailbox.poll().timeMillis);
+        assertNull(mailbox.poll());
+        assertEquals(0, mailbox.getCoalesced());
+    }
+
+    @Test
+    public void positionsWaitingAreCoalescedIntoTheNewest() {
+        for (int i = 0; i < 3; i++) {
+            received.set(i, -i, i, i);
+            assertEquals(i == 0, mailbox.offer(received));
+        }
+        assertEquals(2, mailbox.poll().timeMillis);
+        assertNull(mailbox.poll());
+        assertEquals(3, mailbox.getOffered());
+        assertEquals(2, mailbox.getCoalesced());
+
+        received.set(3, -3, 3, 3);
+        assertTrue(mailbox.offer(received));
+        assertEquals(3, mailbox.poll().timeMillis);
+    }
+
+    @Test
+    public void polledPositionStaysValidUntilTheNextPoll() {
+        received.set(1, -1, 1, 1);
+        mailbox.offer(received);
+        PositionRecord position = mailbox.poll();
+        for (int i = 2; i < 5; i++) {
+            received.set(i, -i, i, i);
+            assertEquals(i == 2, mailbox.offer(received));
+        }
+        assertEquals(1, position.timeMillis);
+        assertEquals(-1, position.longitude, 0);
+    }
+
+    @Test
+    public void looperSeesPositionsInOrderAndEndsWithTheLast() throws InterruptedException {
+        looperSeesPositionsInOrder(0);
+        looperSeesPositionsInOrder(2000);
+    }
+
+    /**
+     * Offers as fast as it can to a single thread executor posted whenever offer asks for it,
+     * like the watch Handler, that spends looperWorkNanos per position
+     */
+    private void looperSeesPositionsInOrder(final long looperWorkNanos) throws InterruptedException {
+        final PositionMailbox mailbox = new PositionMailbox();
+        final ExecutorService looper = Executors.newSingleThreadExecutor();
+        final long[] last = {-1};
+        final int[] shown = new int[1];
+        final String[] failure = new String[1];
+        Runnable showPosition = new Runnable() {
+            @Override
+            public void run() {
+                PositionRecord position = mailbox.poll();
+                if (position == null)
+                    return;
+                if (position.timeMillis <= last[0])
+                    failure[0] = "position " + position.timeMillis + " after " + last[0];
+                if (position.latitude != position.timeMillis || position.longitude != -position.timeMillis
+                        || position.accuracy != position.timeMillis % 100)
+                    failure[0] = "torn position " + position.timeMillis;
+                last[0] = position.timeMillis;
+                shown[0]++;
+                long until = System.nanoTime() + looperWorkNanos;
+                while (System.nanoTime() < until)
+                    Thread.yield();
+            }
+        };
+
+        for (int i = 0; i < POSITIONS; i++) {
+            received.set(i, -i, i, i % 100);
+            if (mailbox.offer(received))
+                looper.execute(showPosition);
+        }
+        looper.shutdown();
+        assertTrue(looper.awaitTermination(30, TimeUnit.SECONDS));
+        assertNull(failure[0]);
+        assertEquals(POSITIONS - 1, last[0]);
+        assertEquals(POSITIONS, shown[0] + mailbox.getCoalesced());
+    }
+}
@@ -0,0 +1,120 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link PositionProtocol} frames against golden bytes, so a change to the wire
+ * format doesn't go unnoticed
+ */
+public class PositionProtocolTest {
+
+    //37.4220, -122.0841 at 1445000000000 ms, 4.5 m, then 1 s and about 1.4 m north east
+    private static final String GOLDEN_KEY_FRAME = "e8 00 16 4e 24 e0 b7 3b 71 d8 00 00 01 50 70 b6 32 00 00 2d";
+    private static final String GOLDEN_DELTA_FRAME = "eb 00 00 64 00 64 03 e8 00 1e 00 8c 11 94";
+    private static final String GOLDEN_LEGACY = "40 42 b6 04 18 93 74 bc c0 5e 85 61 e4 f7 65 fe";
+
+    private final PositionEncoder encoder = new PositionEncoder();
+    private final PositionRecord fix = new PositionRecord();
+    private final PositionRecord decoded = new PositionRecord();
+    private byte[] keyFrame;
+    private byte[] deltaFrame;
+
+    @Before
+    public void encodeKeyAndDeltaFrames() {
+        fix.set(37.4220, -122.0841, 1445000000000L, 4.5f);
+        keyFrame = encoder.encode(fix);
+        fix.set(37.4220100, -122.0840900, 1445000001000L, 3f);
+        fix.setMotion(1.4f, 45f);
+        deltaFrame = encoder.encode(fix);
+    }
+
+    @Test
+    public void keyFrame() {
+        assertEquals(GOLDEN_KEY_FRAME, hex(keyFrame));
+        assertTrue(PositionProtocol.decode(keyFrame, 0, keyFrame.length, decoded));
+        assertEquals(37.4220, decoded.latitude, 0);
+        assertEquals(-122.0841, decoded.longitude, 0);
+        assertEquals(1445000000000L, decoded.timeMillis);
+        assertEquals(4.5f, decoded.accuracy, 0);
+        assertFalse(decoded.hasMotion);
+    }
+
+    @Test
+    public void deltaFrame() {
+        assertEquals(GOLDEN_DELTA_FRAME, hex(deltaFrame));
+        assertTrue(PositionProtocol.decode(keyFrame, 0, keyFrame.length, decoded));
+        assertTrue(PositionProtocol.decode(deltaFrame, 0, deltaFrame.length, decoded));
+        assertEquals(37.42201, decoded.latitude, 0);
+        assertEquals(-122.08409, decoded.longitude, 0);
+        assertEquals(1445000001000L, decoded.timeMillis);
+        assertTrue(decoded.hasMotion);
+        assertEquals(1.4f, decoded.speed, 0);
+        assertEquals(45f, decoded.bearing, 0);
+    }
+
+    @Test
+    public void deltaFrameWithoutItsKeyFrameIsRejected() {
+        assertFalse(PositionProtocol.decode(deltaFrame, 0, deltaFrame.length, decoded));
+    }
+
+    @Test
+    public void deltaFrameAfterALostDeltaFrameDecodes() {
+        fix.set(37.4220200, -122.0840800, 1445000002000L, 3f);
+        byte[] nextDeltaFrame = encoder.encode(fix);
+        assertTrue(PositionProtocol.decode(keyFrame, 0, keyFrame.length, decoded));
+        assertTrue(PositionProtocol.decode(nextDeltaFrame, 0, nextDeltaFrame.length, decoded));
+        assertEquals(37.42202, decoded.latitude, 0);
+        assertEquals(1445000002000L, decoded.timeMillis);
+    }
+
+    @Test
+    public void keyFrameRepeatIsSkippedOnlyWhenAlreadyDecoded() {
+        byte[] repeat = new byte[PositionProtocol.MAX_FRAME_BYTES];
+        int length = encoder.repeatKeyFrame(repeat, 0);
+        assertEquals(keyFrame.length, length);
+        assertEquals(0, encoder.repeatKeyFrame(repeat, 0));
+
+        PositionRecord lostKeyFrame = new PositionRecord();
+        assertTrue(PositionProtocol.decode(repeat, 0, length, lostKeyFrame));
+        assertTrue(PositionProtocol.decode(deltaFrame, 0, deltaFrame.length, lostKeyFrame));
+
+        assertTrue(PositionProtocol.decode(keyFrame, 0, keyFrame.length, decoded));
+        assertTrue(PositionProtocol.decode(deltaFrame, 0, deltaFrame.length, decoded));
+        assertFalse(PositionProtocol.decode(repeat, 0, length, decoded));
+        assertEquals(1445000001000L, decoded.timeMillis);
+    }
+
+    @Test
+    public void legacyPayload() {
+        byte[] legacy = PositionCodec.toByteArray(new double[]{37.4220, -122.0841});
+        assertEquals(GOLDEN_LEGACY, hex(legacy));
+        assertTrue(PositionProtocol.decode(legacy, 0, legacy.length, decoded));
+        assertEquals(37.4220, decoded.latitude, 0);
+        assertEquals(-122.0841, decoded.longitude, 0);
+        assertFalse(decoded.hasMotion);
+    }
+
+    @Test
+    public void unknownVersionIsRejected() {
+        byte[] future = keyFrame.clone();
+        future[0] = (byte) (future[0] + (1 << 2));
+        assertFalse(PositionProtocol.decode(future, 0, future.length, decoded));
+    }
+
+    @Test
+    public void truncatedFrameIsRejected() {
+        assertFalse(PositionProtocol.decode(keyFrame, 0, keyFrame.length - 1, decoded));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes)
+            hex.append(hex.length() > 0 ? " " : "").append(String.format("%02x", b & 0xff));
+        return hex.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The watch decodes every position message straight into its record, without allocating, and a
+ * watch that joins the stream late can decode it from the next key frame
+ */
+public class PositionReceiveTest {
+
+    private static final int FIXES = 100;
+    private static final int ROUNDS = 200;
+
+    private final PositionRecord received = new PositionRecord();
+
+    @Test
+    public void decodeDoesntAllocate() {
+        final byte[][] messages = new byte[FIXES][];
+        PositionEncoder encoder = new PositionEncoder();
+        PositionRecord fix = new PositionRecord();
+        for (int i = 0; i < FIXES; i++) {
+            fix.set(37.4220 + i * 1e-5, -122.0841 + i * 1e-5, 1445000000000L + i * 1000L, 4.5f);
+            fix.setMotion(1.4f, 45f);
+            messages[i] = encoder.encode(fix);
+        }
+        assertEquals(0, Allocations.allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                for (int round = 0; round < ROUNDS; round++)
+                    for (byte[] message : messages)
+                        assertTrue(PositionProtocol.decode(message, 0, message.length, received));
+            }
+        }));
+    }
+
+    @Test
+    public void legacyDecodeDoesntAllocate() {
+        final byte[][] messages = new byte[FIXES][];
+        for (int i = 0; i < FIXES; i++)
+            messages[i] = PositionCodec.toByteArray(new double[]{37.4220 + i * 1e-5, -122.0841 + i * 1e-5});
+        assertEquals(0, Allocations.allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                for (int round = 0; round < ROUNDS; round++)
+                    for (byte[] message : messages)
+                        assertTrue(PositionProtocol.decode(message, 0, message.length, received));
+            }
+        }));
+    }
+
+    @Test
+    public void freshRecordJoinsMidStream() {
+        PositionEncoder encoder = new PositionEncoder();
+        PositionRecord fix = new PositionRecord();
+        PositionRecord relaunched = new PositionRecord();
+        for (int i = 0; i < 10; i++) {
+            fix.set(37.4220 + i * 1e-5, -122.0841 + i * 1e-5, 1445000000000L + i * 1000L, 4.5f);
+            byte[] message = encoder.encode(fix);
+            assertTrue(PositionProtocol.decode(message, 0, message.length, received));
+        }
+        fix.set(37.4230, -122.0831, 1445000010000L, 4.5f);
+        byte[] delta = encoder.encode(fix);
+        assertFalse(PositionProtocol.decode(delta, 0, delta.length, relaunched));
+
+        encoder.reset(); //what the handheld does when a watch connects or is relaunched
+        fix.set(37.4231, -122.0830, 1445000011000L, 4.5f);
+        byte[] key = encoder.encode(fix);
+        assertTrue(PositionProtocol.decode(key, 0, key.length, relaunched));
+        assertTrue(PositionProtocol.decode(key, 0, key.length, received));
+        for (PositionRecord record : new PositionRecord[]{relaunched, received}) {
+            assertEquals(37.4231, record.latitude, 1e-6);
+            assertEquals(-122.0830, record.longitude, 1e-6);
+        }
+
+        fix.set(37.4232, -122.0829, 1445000012000L, 4.5f);
+        byte[] next = encoder.encode(fix);
+        assertTrue(PositionProtocol.decode(next, 0, next.length, relaunched));
+        assertTrue(PositionProtocol.decode(next, 0, next.length, received));
+        assertEquals(37.4232, relaunched.latitude, 1e-6);
+        assertEquals(relaunched.latitude, received.latitude, 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProviderSelectorTest {
+
+    private final FakeProviders providers = new FakeProviders();
+
+    @Test
+    public void enabledProvidersOfTheRequest() {
+        providers.enabled.addAll(Arrays.asList(ProviderSelector.GPS, ProviderSelector.NETWORK, ProviderSelector.PASSIVE));
+        assertTrue(ProviderSelector.register(ArrivalProviderPolicy.FIRST, providers));
+        assertEquals(Arrays.asList(ProviderSelector.GPS, ProviderSelector.NETWORK), providers.registered);
+    }
+
+    @Test
+    public void gpsRequestFallsBackToTheNetwork() {
+        providers.enabled.add(ProviderSelector.NETWORK);
+        assertTrue(ProviderSelector.register(ArrivalProviderPolicy.NEAR, providers));
+        assertEquals(Collections.singletonList(ProviderSelector.NETWORK), providers.registered);
+    }
+
+    @Test
+    public void networkRequestFallsBackToTheGps() {
+        providers.enabled.add(ProviderSelector.GPS);
+        assertTrue(ProviderSelector.register(ArrivalProviderPolicy.FAR, providers));
+        assertEquals(Collections.singletonList(ProviderSelector.GPS), providers.registered);
+    }
+
+    @Test
+    public void passiveAloneIsNotAFallback() {
+        providers.enabled.add(ProviderSelector.PASSIVE);
+        assertFalse(ProviderSelector.register(ArrivalProviderPolicy.NEAR, providers));
+        assertTrue(providers.registered.isEmpty());
+        assertTrue(ProviderSelector.register(ArrivalProviderPolicy.STILL, providers));
+        assertEquals(Collections.singletonList(ProviderSelector.PASSIVE), providers.registered);
+    }
+
+    @Test
+    public void nothingEnabled() {
+        assertFalse(ProviderSelector.register(ArrivalProviderPolicy.FIRST, providers));
+        assertFalse(ProviderSelector.register(ArrivalProviderPolicy.FAR, providers));
+        assertTrue(providers.registered.isEmpty());
+    }
+
+    private static class FakeProviders implements ProviderSelector.Providers {
+
+        final Set<String> enabled = new HashSet<>();
+        final List<String> registered = new ArrayList<>();
+
+        @Override
+        public boolean isEnabled(String provider) {
+            return enabled.contains(provider);
+        }
+
+        @Override
+        public void requestUpdates(String provider, ProviderPolicy.Request request) {
+            registered.add(provider);
+        }
+    }
+}
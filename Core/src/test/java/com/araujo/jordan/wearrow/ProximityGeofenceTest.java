@@ -0,0 +1,41 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProximityGeofenceTest {
+
+    private static final float DRIVE_SPEED = 15; //m/s
+
+    private final ProximityGeofence geofence = new ProximityGeofence();
+
+    @Test
+    public void unknownSpeedIsTakenAsAVehicle() {
+        geofence.start(0);
+        //a car covers 10.5 km until the next dormant fix
+        assertFalse(geofence.onFix(10, -1, 1000));
+        assertFalse(geofence.isDormant());
+        assertTrue(geofence.onFix(15, -1, 2000));
+        assertTrue(geofence.isDormant());
+    }
+
+    @Test
+    public void estimatedDriveWakesBeforeTheRing() {
+        geofence.start(0);
+        SpeedEstimator speedEstimator = new SpeedEstimator();
+        PositionRecord fix = new PositionRecord();
+        double step = DRIVE_SPEED * geofence.getDormantIntervalMillis() / 1e6; //km between the dormant fixes
+        long timeMillis = 0;
+        for (double distance = 20; distance > 0; distance -= step) { //driving on network fixes
+            fix.set(37.4300 - distance * 1000 / Geodesy.METERS_PER_DEGREE, -122.0750, timeMillis, 50);
+            speedEstimator.onFix(fix);
+            geofence.onFix(distance, speedEstimator.getSpeed(), timeMillis);
+            if (geofence.isDormant())
+                assertTrue(distance + " km", distance - step >= geofence.getWakeDistance() - 1e-9);
+            timeMillis += geofence.getDormantIntervalMillis();
+        }
+        assertTrue(geofence.getDormantMillis(timeMillis) > 0);
+    }
+}
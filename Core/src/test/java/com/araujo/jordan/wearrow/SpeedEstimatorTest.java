@@ -0,0 +1,53 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpeedEstimatorTest {
+
+    private static final double LATITUDE = 37.4220, LONGITUDE = -122.0841;
+
+    private final SpeedEstimator speedEstimator = new SpeedEstimator();
+    private final PositionRecord fix = new PositionRecord();
+
+    @Test
+    public void unknownUntilTwoFixesWithoutMotion() {
+        assertTrue(speedEstimator.getSpeed() < 0);
+        setNorth(0, 0);
+        speedEstimator.onFix(fix);
+        assertTrue(speedEstimator.getSpeed() < 0);
+        setNorth(900, 60000);
+        speedEstimator.onFix(fix);
+        assertEquals(15, speedEstimator.getSpeed(), 0.1);
+    }
+
+    @Test
+    public void closeFixesAreMeasuredFromTheSameBase() {
+        setNorth(0, 0);
+        speedEstimator.onFix(fix);
+        setNorth(200, 10000);
+        speedEstimator.onFix(fix);
+        assertTrue(speedEstimator.getSpeed() < 0);
+        setNorth(600, 40000);
+        speedEstimator.onFix(fix);
+        assertEquals(15, speedEstimator.getSpeed(), 0.1);
+    }
+
+    @Test
+    public void theSpeedOfTheFixWins() {
+        setNorth(0, 0);
+        speedEstimator.onFix(fix);
+        setNorth(900, 60000);
+        fix.setMotion(3, 0);
+        speedEstimator.onFix(fix);
+        assertEquals(3, speedEstimator.getSpeed(), 0);
+        speedEstimator.reset();
+        assertTrue(speedEstimator.getSpeed() < 0);
+    }
+
+    private void setNorth(double meters, long timeMillis) {
+        fix.set(LATITUDE + meters / Geodesy.METERS_PER_DEGREE, LONGITUDE, timeMillis, 50);
+    }
+}
@@ -0,0 +1,68 @@
+package com.araujo.jordan.wearrow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link TableTrigonometry} stays within {@link TableTrigonometry#MAX_ERROR} of {@link Math}
+ */
+public class TableTrigonometryTest {
+
+    private static final int SAMPLES = 1000000;
+    private static final double[] EDGES = {0, 1, -1, 1e-9, -1e-9, 1e9, -1e9};
+
+    private final TableTrigonometry table = TableTrigonometry.INSTANCE;
+
+    @Test
+    public void sinAndCosOnRandomAngles() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            double angle = (random.nextDouble() * 2 - 1) * 4 * Math.PI;
+            assertSinCos(angle);
+        }
+    }
+
+    @Test
+    public void sinAndCosOnTheAxesAndQuadrantEdges() {
+        for (int quarter = -8; quarter <= 8; quarter++) {
+            double angle = quarter * Math.PI / 2;
+            assertSinCos(angle);
+            assertSinCos(Math.nextUp(angle));
+            assertSinCos(Math.nextAfter(angle, Double.NEGATIVE_INFINITY));
+            assertSinCos(angle + Math.PI / 4);
+        }
+    }
+
+    @Test
+    public void atan2OnRandomPoints() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; i++)
+            assertAtan2(random.nextGaussian(), random.nextGaussian());
+    }
+
+    @Test
+    public void atan2OnTheAxesAndQuadrantEdges() {
+        for (double y : EDGES)
+            for (double x : EDGES)
+                assertAtan2(y, x);
+        for (double y : new double[]{1, -1})
+            for (double x : new double[]{1, -1}) {
+                assertAtan2(y, Math.nextUp(x));
+                assertAtan2(Math.nextUp(y), x);
+            }
+    }
+
+    private void assertSinCos(double angle) {
+        assertEquals("sin " + angle, Math.sin(angle), table.sin(angle), TableTrigonometry.MAX_ERROR);
+        assertEquals("cos " + angle, Math.cos(angle), table.cos(angle), TableTrigonometry.MAX_ERROR);
+    }
+
+    private void assertAtan2(double y, double x) {
+        double error = Math.abs(table.atan2(y, x) - Math.atan2(y, x));
+        error = Math.min(error, 2 * Math.PI - error); //pi and -pi are the same angle
+        assertEquals("atan2 " + y + ", " + x, 0, error, TableTrigonometry.MAX_ERROR);
+    }
+}
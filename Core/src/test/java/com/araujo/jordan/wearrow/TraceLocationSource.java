@@ -0,0 +1,104 @@
+package com.araujo.jordan.wearrow;
+
+/**
+ * Fake {@link LocationSource} that replays GPS fixes on the trace clock, for running the
+ * handheld location pipeline in the tests and the :Benchmark replays. The fixes keep the request
+ * interval and minimum distance, like the LocationManager. Batching, they are held until the
+ * oldest waited the request wait, like the fused provider with {@code setMaxWaitTime}, and
+ * delivered together. The fixes come from the GPS when the request has it, otherwise from the
+ * network, without a speed and bearing.
+ */
+public class TraceLocationSource implements LocationSource {
+
+    private static final String GPS = "gps", NETWORK = "network";
+
+    private final PositionRecord[] trace; //with the speed and bearing
+    private final boolean isBatching;
+    private final GeodesicSolver geodesicSolver = new GeodesicSolver(GeodesicSolver.Tier.EQUIRECTANGULAR);
+    private final PositionRecord fix = new PositionRecord();
+    private final int[] pending;
+
+    private ProviderPolicy.Request request;
+    private Listener listener;
+    private int next, pendingCount, lastTaken = -1;
+    private int deliveries, fixesDelivered;
+
+    /**
+     * @param isBatching false delivers every fix at once, whatever the request wait
+     */
+    public TraceLocationSource(PositionRecord[] trace, boolean isBatching) {
+        this.trace = trace;
+        this.isBatching = isBatching;
+        pending = new int[trace.length];
+    }
+
+    /**
+     * The fixes still waiting are kept, they go with the next batch of the new request
+     */
+    @Override
+    public boolean start(ProviderPolicy.Request request, Listener listener) {
+        this.request = request;
+        this.listener = listener;
+        return true;
+    }
+
+    /**
+     * The fixes still waiting are lost
+     */
+    @Override
+    public void stop() {
+        request = null;
+        pendingCount = 0;
+    }
+
+    /**
+     * Move the trace clock, taking the fixes up to that time and delivering the batch when it
+     * waited enough
+     */
+    public void advanceTo(long timeMillis) {
+        for (; next < trace.length && trace[next].timeMillis <= timeMillis; next++) {
+            if (request != null && isWanted(next))
+                pending[pendingCount++] = lastTaken = next;
+        }
+        if (pendingCount == 0)
+            return;
+        long maxWait = isBatching ? request.maxWaitMillis : 0;
+        if (timeMillis - trace[pending[0]].timeMillis >= maxWait)
+            deliver();
+    }
+
+    private boolean isWanted(int i) {
+        if (lastTaken < 0)
+            return true;
+        if (trace[i].timeMillis - trace[lastTaken].timeMillis < request.minTimeMillis)
+            return false;
+        geodesicSolver.solve(trace[lastTaken].latitude, trace[lastTaken].longitude, trace[i].latitude,
+                trace[i].longitude);
+        return geodesicSolver.getDistance() * 1000 >= request.minDistance;
+    }
+
+    private void deliver() {
+        int count = pendingCount;
+        pendingCount = 0;
+        deliveries++;
+        for (int j = 0; j < count; j++) {
+            PositionRecord traced = trace[pending[j]];
+            fix.set(traced.latitude, traced.longitude, traced.timeMillis, traced.accuracy);
+            if (request.gps)
+                fix.setMotion(traced.speed, traced.bearing);
+            fixesDelivered++;
+            listener.onLocation(fix, request.gps ? GPS : NETWORK, count - 1 - j);
+        }
+    }
+
+    /**
+     * @return how many times the listener was woken up
+     */
+    public int getDeliveries() {
+        return deliveries;
+    }
+
+    public int getFixesDelivered() {
+        return fixesDelivered;
+    }
+}
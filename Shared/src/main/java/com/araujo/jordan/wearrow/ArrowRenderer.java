@@ -0,0 +1,79 @@
+package com.araujo.jordan.wearrow;
+
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+/**
+ * Draws the arrow once per display frame with the latest rotation and distance, instead of on
+ * every sensor event and GPS fix. Must be used from the main thread.
+ */
+public class ArrowRenderer implements Choreographer.FrameCallback, ArrowFrame.View {
+
+    private final ImageView arrowImg;
+    private final TextView textInfo;
+    private final ArrowFrame arrowFrame;
+    private final Choreographer choreographer;
+
+    public ArrowRenderer(ImageView arrowImg, TextView textInfo) {
+        this.arrowImg = arrowImg;
+        this.textInfo = textInfo;
+        arrowFrame = new ArrowFrame();
+        choreographer = Choreographer.getInstance();
+    }
+
+    public void showRotation(float rotation) {
+        if (arrowFrame.setRotation(rotation))
+            choreographer.postFrameCallback(this);
+    }
+
+    public void showText(String text) {
+        if (arrowFrame.setText(text))
+            choreographer.postFrameCallback(this);
+    }
+
+    public void showArrow(boolean visible) {
+        if (arrowFrame.setArrowVisible(visible))
+            choreographer.postFrameCallback(this);
+    }
+
+    public void stop() {
+        choreographer.removeFrameCallback(this);
+        arrowFrame.cancelFrame();
+        Log.v("ARAUJOJORDAN", "Frames drawn: " + arrowFrame.getFramesDrawn() + ", updates coalesced: "
+                + arrowFrame.getUpdatesCoalesced());
+    }
+
+    public int getFramesDrawn() {
+        return arrowFrame.getFramesDrawn();
+    }
+
+    public int getUpdatesCoalesced() {
+        return arrowFrame.getUpdatesCoalesced();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        arrowFrame.draw(this);
+    }
+
+    @Override
+    public void setRotation(float rotation) {
+        if (arrowImg != null)
+            arrowImg.setRotation(rotation);
+    }
+
+    @Override
+    public void setText(String text) {
+        if (textInfo != null)
+            textInfo.setText(text);
+    }
+
+    @Override
+    public void setArrowVisible(boolean visible) {
+        if (arrowImg != null)
+            arrowImg.setVisibility(visible ? View.VISIBLE : View.GONE);
+    }
+}
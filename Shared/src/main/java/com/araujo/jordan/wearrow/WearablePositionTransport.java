@@ -0,0 +1,142 @@
+package com.araujo.jordan.wearrow;
+
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.MessageApi;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * {@link PositionTransport} on the Wearable MessageApi, sending to the nodes of a
+ * {@link NodeRegistry}, and the DataApi for the published states
+ */
+public class WearablePositionTransport implements PositionTransport, MessageApi.MessageListener,
+        DataApi.DataListener {
+
+    private final GoogleApiClient googleApiClient;
+    private final NodeRegistry nodeRegistry;
+    private Receiver receiver;
+
+    private final ResultCallback<MessageApi.SendMessageResult> logResult =
+            new ResultCallback<MessageApi.SendMessageResult>() {
+                @Override
+                public void onResult(MessageApi.SendMessageResult sendMessageResult) {
+                    if (sendMessageResult.getStatus().isSuccess()) {
+                        Log.v("ARAUJOJORDAN", "Mensagem enviada!");
+                    } else
+                        Log.v("ARAUJOJORDAN", "Mensagem NÃO enviada! " + sendMessageResult.getStatus().getStatusCode());
+                }
+            };
+    private final ResultCallback<DataApi.DataItemResult> logPublishResult =
+            new ResultCallback<DataApi.DataItemResult>() {
+                @Override
+                public void onResult(DataApi.DataItemResult dataItemResult) {
+                    if (!dataItemResult.getStatus().isSuccess())
+                        Log.v("ARAUJOJORDAN", "Estado NÃO publicado! " + dataItemResult.getStatus().getStatusCode());
+                }
+            };
+
+    private final ResultCallback<DataItemBuffer> receivePublished = new ResultCallback<DataItemBuffer>() {
+        @Override
+        public void onResult(DataItemBuffer dataItems) {
+            Receiver receiver = WearablePositionTransport.this.receiver;
+            try {
+                for (DataItem item : dataItems) {
+                    if (receiver != null)
+                        receiver.onMessage(item.getUri().getPath(), item.getData());
+                }
+            } finally {
+                dataItems.release();
+            }
+        }
+    };
+
+    public WearablePositionTransport(GoogleApiClient googleApiClient, NodeRegistry nodeRegistry) {
+        this.googleApiClient = googleApiClient;
+        this.nodeRegistry = nodeRegistry;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return googleApiClient.isConnected() && !nodeRegistry.isEmpty();
+    }
+
+    @Override
+    public int send(String path, byte[] data) {
+        if (!googleApiClient.isConnected())
+            return 0;
+        int sent = 0;
+        for (String node : nodeRegistry.getNodes()) {
+            Log.v("ARAUJOJORDAN", "Enviando " + path + " para dispositivo " + node);
+            Wearable.MessageApi.sendMessage(googleApiClient, node, path, data).setResultCallback(logResult);
+            sent++;
+        }
+        return sent;
+    }
+
+    /**
+     * The DataItem is kept by the api while disconnected and synced when a node connects
+     */
+    @Override
+    public void publish(String path, byte[] data) {
+        if (!googleApiClient.isConnected())
+            return;
+        PutDataRequest request = PutDataRequest.create(path);
+        request.setData(data);
+        request.setUrgent();
+        Wearable.DataApi.putDataItem(googleApiClient, request).setResultCallback(logPublishResult);
+    }
+
+    /**
+     * The api client must be connected. Every call with a receiver, like on each connect, also
+     * gives it the positions state already published, the DataApi listener only gets the changes
+     * after it.
+     */
+    @Override
+    public void setReceiver(Receiver receiver) {
+        if (receiver != null && this.receiver == null) {
+            Wearable.MessageApi.addListener(googleApiClient, this);
+            Wearable.DataApi.addListener(googleApiClient, this);
+        } else if (receiver == null && this.receiver != null) {
+            Wearable.MessageApi.removeListener(googleApiClient, this);
+            Wearable.DataApi.removeListener(googleApiClient, this);
+        }
+        this.receiver = receiver;
+        if (receiver != null) {
+            Uri positions = new Uri.Builder().scheme(PutDataRequest.WEAR_URI_SCHEME).path(PATH_POSITIONS).build();
+            Wearable.DataApi.getDataItems(googleApiClient, positions).setResultCallback(receivePublished);
+        }
+    }
+
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        Receiver receiver = this.receiver;
+        if (receiver != null)
+            receiver.onMessage(messageEvent.getPath(), messageEvent.getData());
+    }
+
+    /**
+     * A published state arrives as a message with the same path
+     */
+    @Override
+    public void onDataChanged(DataEventBuffer dataEvents) {
+        Receiver receiver = this.receiver;
+        try {
+            for (DataEvent event : dataEvents) {
+                if (receiver != null && event.getType() == DataEvent.TYPE_CHANGED)
+                    receiver.onMessage(event.getDataItem().getUri().getPath(), event.getDataItem().getData());
+            }
+        } finally {
+            dataEvents.release();
+        }
+    }
+}
@@ -9,7 +9,7 @@ public class DataLayerListenerService extends WearableListenerService {
 
     @Override
     public void onMessageReceived(MessageEvent messageEvent) {
-        if (messageEvent.getPath().equals("/start-activity")) {
+        if (messageEvent.getPath().equals(PositionTransport.PATH_START_ACTIVITY)) {
             Intent startIntent = new Intent(this, MainActivity.class);
             startIntent.putExtra("location", messageEvent.getData());
             startIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
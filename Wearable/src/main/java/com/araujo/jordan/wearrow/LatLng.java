@@ -1,14 +0,0 @@
-package com.araujo.jordan.wearrow;
-
-/**
- * Created by araujojordan on 19/05/15.
- */
-public class LatLng {
-
-    public double latitude,longitude;
-
-    public LatLng(double latitude, double longitude) {
-        this.latitude = latitude;
-        this.longitude = longitude;
-    }
-}
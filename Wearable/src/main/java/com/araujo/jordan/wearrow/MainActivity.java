@@ -1,7 +1,9 @@
 package com.araujo.jordan.wearrow;
 
 import android.app.Activity;
+import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
 import android.util.Log;
 import android.view.WindowManager;
 import android.widget.ImageView;
@@ -11,12 +13,19 @@ import android.widget.Toast;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.wearable.Wearable;
 
-import java.nio.ByteBuffer;
 
 public class MainActivity extends Activity {
 
     private WearRotationArrow mWearRotationArrow;
 
+    private final Handler handler = new Handler();
+    private final Runnable finishStopped = new Runnable() {
+        @Override
+        public void run() {
+            finish();
+        }
+    };
+
     @Override
     public void onCreate(Bundle b) {
         super.onCreate(b);
@@ -25,6 +34,13 @@ public class MainActivity extends Activity {
         setupViews();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (mWearRotationArrow != null && !mWearRotationArrow.isRunning && !isFinishing())
+            mWearRotationArrow.start(); //paused only to get a new intent
+    }
+
     @Override
     protected void onPause() {
         super.onPause();
@@ -32,6 +48,26 @@ public class MainActivity extends Activity {
             mWearRotationArrow.stop();
     }
 
+    /**
+     * The handheld opened the activity again, maybe with another destination. It is paused
+     * before, so the arrow stopped and the finish it asked for is still waiting, cancel it.
+     */
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        LatLng latLng = getLocationFromIntent();
+        if (latLng == null)
+            return;
+        handler.removeCallbacks(finishStopped);
+        if (mWearRotationArrow == null)
+            setupViews();
+        else {
+            mWearRotationArrow.setDestination(latLng);
+            setProximityModeFromIntent();
+        }
+    }
+
     private void setupViews() {
         ImageView arrowImg = (ImageView) findViewById(R.id.arrowImg);
         TextView textInfo = (TextView) findViewById(R.id.textInfo);
@@ -39,39 +75,36 @@ public class MainActivity extends Activity {
         if (mLatLng != null) {
             Log.e("ARAUJOJORDAN", "HAS LATLNG: " + mLatLng.latitude + " " + mLatLng.longitude);
             mWearRotationArrow = new WearRotationArrow(arrowImg, textInfo, mLatLng, this);
-            mWearRotationArrow.start();
-            new Thread(new Runnable() {
+            mWearRotationArrow.setOnStoppedListener(new WearRotationArrow.OnStoppedListener() {
                 @Override
-                public void run() {
-                    while (true) {
-                        try {
-                            Thread.sleep(1000);
-                            if(!mWearRotationArrow.isRunning)
-                                finish();
-                        } catch (InterruptedException e) {}
-                    }
+                public void onStopped() {
+                    handler.post(finishStopped); //after a new intent, that cancels it
                 }
-            }).start();
+            });
+            setProximityModeFromIntent();
+            mWearRotationArrow.start();
         } else
             Toast.makeText(this, getResources().getString(R.string.noGEOFound), Toast.LENGTH_LONG)
                     .show();
     }
 
+    /**
+     * The handheld adds the wake distance to the destination when the proximity mode is on
+     */
+    private void setProximityModeFromIntent() {
+        double[] values = PositionCodec.toDoubleArray(getIntent().getExtras().getByteArray("location"));
+        if (values.length > 2)
+            mWearRotationArrow.setProximityMode(true, values[2]);
+        else
+            mWearRotationArrow.setProximityMode(false, ProximityGeofence.DEFAULT_WAKE_DISTANCE);
+    }
+
     private LatLng getLocationFromIntent() {
         LatLng latLng;
         if (getIntent().hasExtra("location")) {
-            double[] values = toDoubleArray(getIntent().getExtras().getByteArray("location"));
+            double[] values = PositionCodec.toDoubleArray(getIntent().getExtras().getByteArray("location"));
             return new LatLng(values[0], values[1]);
         }
         return null;
     }
-
-    private double[] toDoubleArray(byte[] byteArray) {
-        int times = Double.SIZE / Byte.SIZE;
-        double[] doubles = new double[byteArray.length / times];
-        for (int i = 0; i < doubles.length; i++) {
-            doubles[i] = ByteBuffer.wrap(byteArray, i * times, times).getDouble();
-        }
-        return doubles;
-    }
-}
\ No newline at end of file
+}
@@ -6,165 +6,224 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
-import android.view.View;
+import android.view.WindowManager;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.data.FreezableUtils;
-import com.google.android.gms.wearable.DataApi;
-import com.google.android.gms.wearable.DataEvent;
-import com.google.android.gms.wearable.DataEventBuffer;
-import com.google.android.gms.wearable.MessageApi;
-import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.NodeApi;
 import com.google.android.gms.wearable.Wearable;
 
-import java.nio.ByteBuffer;
-import java.util.List;
-
 /**
  * Created by araujojordan on 18/05/15.
  */
 public class WearRotationArrow {
 
-    private final static String GPSPATH = "/gps_from_handheld";
+    /**
+     * Told on the main thread when the arrow stops, by {@link #stop()} or by the handheld
+     */
+    public interface OnStoppedListener {
+        void onStopped();
+    }
+
+    private final static int CLOSE_DISTANCE = 5; //in meters
 
     private JWearLocationListener jWearLocationListener;
     private JSensorEventListener jSensorEventListener;
 
     private GoogleApiClient mGoogleApiClient;
 
-    private TextView textInfo; //The  text of distance (and loading text)
-    private ImageView arrowImg; //the arrow image (that rotate with setRotation method)
+    private ArrowRenderer arrowRenderer; //draws the arrow rotation and the distance text once per frame
 
-    private LatLng destinationLocation, userLocation;
+    private Navigation navigation; //user and destination positions, with the angle and distance between them
+    private final PositionPredictor positionPredictor = new PositionPredictor(); //moves the user between the fixes
+    private boolean isPredicting = true;
+    private final ProximityGeofence proximityGeofence = new ProximityGeofence(); //far from the ring, sensors and screen off
+    private final SpeedEstimator speedEstimator = new SpeedEstimator(); //for the positions without a speed
+    private boolean isProximityMode;
 
     public boolean isRunning;
+    private OnStoppedListener onStoppedListener;
+
+    private DistanceFormatter distanceFormatter;
 
     private Activity act;
 
     public WearRotationArrow(ImageView arrowImg, TextView textInfo, LatLng destinationLocation, Activity act) {
         isRunning = false;
         this.act = act;
-        this.arrowImg = arrowImg;
-        this.textInfo = textInfo;
+        arrowRenderer = new ArrowRenderer(arrowImg, textInfo);
+
+        distanceFormatter = new DistanceFormatter(act.getString(R.string.kilometer),
+                act.getString(R.string.meter), act.getString(R.string.distanceToClose), CLOSE_DISTANCE);
 
         jWearLocationListener = new JWearLocationListener(act);
         jSensorEventListener = new JSensorEventListener();
 
-        userLocation = new LatLng(0, 0); //Will change when GPS get user position
-        this.destinationLocation = destinationLocation;
+        navigation = new Navigation(destinationLocation);
     }
 
     public void start() {
         isRunning = true;
+        proximityGeofence.start(SystemClock.elapsedRealtime());
+        speedEstimator.reset();
+        act.getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON); //cleared while dormant
         jWearLocationListener.startUsingGPS();
         jSensorEventListener.startUsingGiro();
     }
 
     public void stop() {
+        boolean wasRunning = isRunning;
         isRunning = false;
         jWearLocationListener.stopUsingGPS();
         jSensorEventListener.stopUsingGiro();
+        if (isProximityMode)
+            Log.v("ARAUJOJORDAN", "Modo de proximidade: " + proximityGeofence.getDormantMillis(
+                    SystemClock.elapsedRealtime()) / 1000 + " s dormindo, " + proximityGeofence.getWakes() + " despertares");
+        positionPredictor.reset();
+        arrowRenderer.stop();
+        if (wasRunning && onStoppedListener != null)
+            onStoppedListener.onStopped();
     }
 
     /**
-     * Distance between 2 location on latitude and longitude.
+     * Point to another destination, the positions received so far are kept
+     */
+    public void setDestination(LatLng destinationLocation) {
+        navigation.setDestination(destinationLocation.latitude, destinationLocation.longitude);
+        arrowRenderer.showText(getDistanceText());
+    }
+
+    public void setOnStoppedListener(OnStoppedListener onStoppedListener) {
+        this.onStoppedListener = onStoppedListener;
+    }
+
+    /**
+     * Choose where the heading of the arrow comes from. If the device doesn't have that sensor
+     * the next {@link HeadingSource} is used.
+     */
+    public void setHeadingSource(HeadingSource headingSource) {
+        jSensorEventListener.selectHeadingSource(headingSource);
+    }
+
+    /**
+     * Choose how the heading sensor rate follows the heading changes
+     */
+    public void setSamplingPolicy(SamplingPolicy policy) {
+        jSensorEventListener.setSamplingPolicy(policy);
+    }
+
+    /**
+     * Choose how much the arrow angle is smoothed
      *
-     * @return an text indicating the distance in meters or in kilometers, if not initialized,
-     * it will disapear. If its < 5m it will show and message telling that is too close
-     * @author Jordan Junior
-     * @version 1.0
+     * @param timeConstant how long, in seconds, the arrow takes to follow 63% of a turn
+     * @param deadband     smallest change, in degrees, that redraws the arrow
      */
-    private String getDistanceBetween2Points(LatLng p1, LatLng p2) {
-        if ((p1.latitude == 0 && p1.longitude == 0) || (p2.latitude == 0 && p2.longitude == 0)) {
-            if (arrowImg != null) {
-                arrowImg.setVisibility(View.GONE);
-            }
-            return act.getResources().getString(R.string.loading);
-        } else {
-            if (arrowImg != null) {
-                arrowImg.setVisibility(View.VISIBLE);
-            }
-        }
+    public void setHeadingSmoothing(float timeConstant, float deadband) {
+        jSensorEventListener.setHeadingSmoothing(timeConstant, deadband);
+    }
 
-        final int R = 6371;
-        final double dLat = deg2rad(p2.latitude - p1.latitude);
-        final double dLon = deg2rad(p2.longitude - p1.longitude);
-        final double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(deg2rad(p1.latitude)) * Math.cos(deg2rad(p2.latitude)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        final double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return getMlOrKm(R * c);
+    /**
+     * Choose if the user position is moved between the handheld fixes with the fix motion, the
+     * steps and the heading, or stays at the last fix
+     */
+    public void setPositionPrediction(boolean isPredicting) {
+        this.isPredicting = isPredicting;
     }
 
-    private String getMlOrKm(double d) {
-        String kil = act.getString(R.string.kilometer);
-        String met = act.getString(R.string.meter);
-        String toClose = act.getString(R.string.distanceToClose);
-
-        if (d < 1) {
-            int distance = (int) (d * 1000);
-            int CLOSE_DISTANCE = 5;
-            if (distance < CLOSE_DISTANCE) {
-                if (arrowImg != null) {
-                    arrowImg.setVisibility(View.GONE);
-                }
-                return toClose;
-            }
-            return distance + " " + met;
+    /**
+     * Choose if, far from the destination, the heading sensors stop and the screen may sleep,
+     * until the user nears a ring around it. The screen sleeping closes the activity, the
+     * handheld opens it again on the wake.
+     *
+     * @param wakeDistance radius of the ring, in kilometers, see {@link ProximityGeofence}
+     */
+    public void setProximityMode(boolean isProximityMode, double wakeDistance) {
+        boolean wasDormant = proximityGeofence.isDormant();
+        this.isProximityMode = isProximityMode;
+        proximityGeofence.setWakeDistance(wakeDistance);
+        proximityGeofence.start(SystemClock.elapsedRealtime()); //awake, the next fix decides again
+        if (wasDormant && isRunning)
+            setDormant(false);
+    }
+
+    private void setDormant(boolean isDormant) {
+        Log.v("ARAUJOJORDAN", isDormant ? "Longe do destino, sensores desligados" : "Perto do destino, sensores ligados");
+        if (isDormant) {
+            jSensorEventListener.stopUsingGiro();
+            act.getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         } else {
-            return ((int) (d)) + " " + kil; //in km
+            jSensorEventListener.startUsingGiro();
+            act.getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         }
     }
 
     /**
-     * Simple conversion from degree to radian
-     *
-     * @author Jordan Junior
-     * @version 1.0
+     * Choose the trigonometry for the heading, bearing and distance. {@link TableTrigonometry}
+     * is faster on low-end watches and stays within {@link TableTrigonometry#MAX_ERROR} of
+     * {@link MathTrigonometry}, the default.
      */
-    private double deg2rad(double deg) {
-        return deg * (Math.PI / 180);
+    public void setTrigonometry(Trigonometry trigonometry) {
+        navigation.setTrigonometry(trigonometry);
+        jSensorEventListener.setTrigonometry(trigonometry);
     }
 
     /**
-     * Get the angle between the 2 points using pitagoras
+     * Distance between the user and the destination.
      *
-     * @return the angle between the 2 points
+     * @return an text indicating the distance in meters or in kilometers, if not initialized,
+     * it will disapear. If its < 5m it will show and message telling that is too close
      * @author Jordan Junior
      * @version 1.0
      */
-    private float getAngleBetween2Points(LatLng p1, LatLng p2) {
-        double deltaY = p2.latitude - p1.latitude;
-        double deltaX = p2.longitude - p1.longitude;
-        double result = (Math.atan2(deltaY, deltaX)) * (180 / Math.PI);
-        if (result < 0) {
-            return (float) (180 + (180 + result));
+    private String getDistanceText() {
+        if (!navigation.isKnown()) {
+            arrowRenderer.showArrow(false);
+            return act.getResources().getString(R.string.loading);
         }
-        return (float) result;
-    }
 
+        double distance = navigation.getDistance();
+        arrowRenderer.showArrow(!distanceFormatter.isTooClose(distance) && !proximityGeofence.isDormant());
+        return distanceFormatter.getMlOrKm(distance);
+    }
 
     /**
-     * Listener for the Location This will update the GPS coordinates of the user
+     * Listener for the Location This will update the GPS coordinates of the user. The positions
+     * are decoded on the message thread and handed to the main looper through a
+     * {@link PositionMailbox}, that keeps only the freshest one.
      *
      * @author Jordan Junior
      * @version 1.0
      */
-    private class JWearLocationListener extends AsyncTask<Void, LatLng, Void> implements GoogleApiClient.ConnectionCallbacks,
-            GoogleApiClient.OnConnectionFailedListener, DataApi.DataListener, MessageApi.MessageListener,
+    private class JWearLocationListener implements GoogleApiClient.ConnectionCallbacks,
+            GoogleApiClient.OnConnectionFailedListener, PositionTransport.Receiver,
             NodeApi.NodeListener {
 
         private boolean isLocalRunning;
 
-        private LatLng mLocalLatLng;
+        private final PositionRecord receivedPosition = new PositionRecord(); //only the message thread
+        private final PositionMailbox positionMailbox = new PositionMailbox();
+        private PositionTransport positionTransport; //the watch only receives, the nodes are never asked
+
+        private final Handler handler = new Handler();
+        private final Runnable showPosition = new Runnable() {
+            @Override
+            public void run() {
+                showPosition();
+            }
+        };
+        private final Runnable stopReceived = new Runnable() {
+            @Override
+            public void run() {
+                stop();
+            }
+        };
 
         public JWearLocationListener(Activity act) {
             mGoogleApiClient = new GoogleApiClient.Builder(act)
@@ -173,6 +232,7 @@ public class WearRotationArrow {
                     .addOnConnectionFailedListener(this)
                     .build();
             mGoogleApiClient.connect();
+            positionTransport = new WearablePositionTransport(mGoogleApiClient, new NodeRegistry());
         }
 
         /**
@@ -182,10 +242,11 @@ public class WearRotationArrow {
             if (!isLocalRunning)
                 return;
 
-            Wearable.DataApi.removeListener(mGoogleApiClient, this);
-            Wearable.MessageApi.removeListener(mGoogleApiClient, this);
+            positionTransport.setReceiver(null);
             Wearable.NodeApi.removeListener(mGoogleApiClient, this);
             mGoogleApiClient.disconnect();
+            Log.v("ARAUJOJORDAN", "Pontos recebidos: " + positionMailbox.getOffered() + ", "
+                    + positionMailbox.getCoalesced() + " substituidos antes de mostrar");
 
             isLocalRunning = false;
         }
@@ -200,42 +261,31 @@ public class WearRotationArrow {
             }
 
             isLocalRunning = true;
-            execute();
-        }
-
-        @Override
-        protected synchronized Void doInBackground(Void... params) {
-            while (isLocalRunning) {
-                try {
-                    wait(); //will stop until a new position from mobile
-                } catch (InterruptedException returnExecution) {
-                    if (mLocalLatLng.latitude != destinationLocation.latitude || //new point
-                            mLocalLatLng.longitude != destinationLocation.longitude)
-                        publishProgress(mLocalLatLng);
-                }
-            }
-            return null;
-        }
-
-        @Override
-        protected void onProgressUpdate(LatLng... loc) {
-            super.onProgressUpdate(loc);
-            Log.v("PhoneLocationListener", "Updating user position: " + loc[0].latitude + " " + loc[0].longitude);
-            userLocation = loc[0];
-
-            textInfo.setText(getDistanceBetween2Points(userLocation, destinationLocation));
+            if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting())
+                mGoogleApiClient.connect(); //disconnected by a stop before
         }
 
-        @Override
-        protected void onPostExecute(Void aVoid) {
-            super.onPostExecute(aVoid);
-            stopUsingGPS();
+        /**
+         * Show the freshest position, on the main looper
+         */
+        private void showPosition() {
+            PositionRecord position = positionMailbox.poll();
+            if (position == null || !isLocalRunning || !isNewPoint(position))
+                return;
+            Log.v("PhoneLocationListener", "Updating user position: " + position.latitude + " " + position.longitude);
+            positionPredictor.onFix(position, SystemClock.elapsedRealtimeNanos());
+            navigation.setUserLocation(position.latitude, position.longitude);
+            speedEstimator.onFix(position);
+            if (isProximityMode && proximityGeofence.onFix(navigation.getDistance(),
+                    speedEstimator.getSpeed(), SystemClock.elapsedRealtime()))
+                setDormant(proximityGeofence.isDormant());
+
+            arrowRenderer.showText(getDistanceText());
         }
 
         @Override
         public void onConnected(Bundle bundle) {
-            Wearable.DataApi.addListener(mGoogleApiClient, this);
-            Wearable.MessageApi.addListener(mGoogleApiClient, this);
+            positionTransport.setReceiver(this); //also gives the positions state published before the connect
             Wearable.NodeApi.addListener(mGoogleApiClient, this);
         }
 
@@ -245,44 +295,36 @@ public class WearRotationArrow {
         }
 
         @Override
-        public void onDataChanged(DataEventBuffer dataEvents) {
-            Log.v("PhoneLocationListener", "Data changed");
-            final List<DataEvent> events = FreezableUtils.freezeIterable(dataEvents);
-            dataEvents.close();
-            for (DataEvent event : events) {
-                String path = event.getDataItem().getUri().getPath();
-                if (GPSPATH.equals(path)) {
-                    Log.v("PhoneLocationListener", "New Position");
-                }
-            }
-        }
-
-        @Override
-        public void onMessageReceived(MessageEvent messageEvent) {
+        public void onMessage(String path, byte[] data) {
             Log.v("PhoneLocationListener", "New received position");
-            if (messageEvent.getPath().equals(GPSPATH))
-                updateLocation(toDoubleArray(messageEvent.getData()));
-            if(messageEvent.getPath().equals("/stop_sending_position")) {
+            if (path.equals(PositionTransport.PATH_POSITIONS))
+                updateLocation(data);
+            if(path.equals(PositionTransport.PATH_STOP)) {
                 Log.v("ARAUJOJORDA","Stop sending position signal received");
-                isRunning = false;
-                stop();
+                handler.post(stopReceived);
             }
         }
 
-        private synchronized void updateLocation(double[] doubles) {
-            Log.v("ARAUJOJORDAN","Ponto recebido: "+doubles[0]+" "+doubles[1]);
-
-            if (mLocalLatLng == null)
-                this.mLocalLatLng = new LatLng(doubles[0], doubles[1]);
-            else {
-                mLocalLatLng.latitude = doubles[0];
-                mLocalLatLng.longitude = doubles[1];
+        /**
+         * Decode the message straight into the position record, no array or buffer in between.
+         * A message can bring a batch of fixes, the record ends with the freshest one. Messages
+         * and data items may come on different threads, so the decoding is synchronized, the
+         * mailbox takes a single producer.
+         */
+        private synchronized void updateLocation(byte[] data) {
+            if (PositionProtocol.decodeAll(data, 0, data.length, receivedPosition) == 0) {
+                Log.v("ARAUJOJORDAN", "Ponto descartado, esperando o proximo key frame");
+                return;
             }
+            Log.v("ARAUJOJORDAN","Ponto recebido: "+receivedPosition.latitude+" "+receivedPosition.longitude);
 
-            userLocation = mLocalLatLng;
-            if (mLocalLatLng.latitude != destinationLocation.latitude || //new point
-                    mLocalLatLng.longitude != destinationLocation.longitude)
-                publishProgress(mLocalLatLng);
+            if (positionMailbox.offer(receivedPosition))
+                handler.post(showPosition);
+        }
+
+        private boolean isNewPoint(PositionRecord position) {
+            return position.latitude != navigation.getDestination().latitude ||
+                    position.longitude != navigation.getDestination().longitude;
         }
 
         @Override
@@ -299,16 +341,6 @@ public class WearRotationArrow {
         public void onConnectionFailed(ConnectionResult connectionResult) {
 
         }
-
-        private double[] toDoubleArray(byte[] byteArray) {
-            int times = Double.SIZE / Byte.SIZE;
-            double[] doubles = new double[byteArray.length / times];
-            for (int i = 0; i < doubles.length; i++) {
-                doubles[i] = ByteBuffer.wrap(byteArray, i * times, times).getDouble();
-            }
-            return doubles;
-        }
-
     }
 
     /**
@@ -319,49 +351,107 @@ public class WearRotationArrow {
      */
     private class JSensorEventListener implements SensorEventListener {
 
-        private float[] mGravity;
-        private float[] mGeomagnetic;
-        private float azimut;
+        private HeadingFusion headingFusion;
+        private AdaptiveSampler adaptiveSampler;
+        private HeadingFilter headingFilter;
 
         private boolean isLocalRunning;
+        private boolean isRegisterPending; //the sampler changed the rate too soon after the last one
+        private long registeredNanos;
+        private final long MIN_REGISTER_INTERVAL_NANOS = 1000000000L;
 
         private SensorManager mSensorManager;
-        private Sensor mSensor, aSensor;
+        private Sensor mSensor, aSensor, rSensor, stepSensor;
+        private HeadingSource headingSource;
 
         public JSensorEventListener() {
             mSensorManager = (SensorManager) act.getSystemService(Context.SENSOR_SERVICE);
             mSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
             aSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            stepSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+            positionPredictor.setStepDetector(stepSensor != null);
+            headingFusion = new HeadingFusion();
+            adaptiveSampler = new AdaptiveSampler(new VelocitySamplingPolicy());
+            headingFilter = new HeadingFilter();
             isLocalRunning = false;
+            selectHeadingSource(HeadingSource.ROTATION_VECTOR);
+        }
+
+        /**
+         * Use the preferred heading source, or the first fallback that this device has
+         */
+        public void selectHeadingSource(HeadingSource preferred) {
+            boolean wasRunning = isLocalRunning;
+            stopUsingGiro();
+
+            for (HeadingSource source = preferred; source != null; source = source.fallback()) {
+                rSensor = getRotationVectorSensor(source);
+                if (rSensor != null || source == HeadingSource.ACCELEROMETER_MAGNETOMETER) {
+                    headingSource = source;
+                    break;
+                }
+            }
+            Log.v("ARAUJOJORDAN", "Heading source: " + headingSource);
+
+            if (wasRunning)
+                startUsingGiro();
+        }
+
+        private Sensor getRotationVectorSensor(HeadingSource source) {
+            switch (source) {
+                case ROTATION_VECTOR:
+                    return mSensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+                case GEOMAGNETIC_ROTATION_VECTOR:
+                    return mSensorManager.getDefaultSensor(Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR);
+                default:
+                    return null;
+            }
         }
 
         public void onAccuracyChanged(Sensor sensor, int accuracy) {
         }
 
         public void onSensorChanged(SensorEvent event) {
-            if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-                mGravity = event.values;
-            }
-            if (event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
-                mGeomagnetic = event.values;
+            //the predictor takes the fixes on this clock, the event timestamp may be another one
+            long nowNanos = SystemClock.elapsedRealtimeNanos();
+            switch (event.sensor.getType()) {
+                case Sensor.TYPE_ACCELEROMETER:
+                    headingFusion.onAccelerometer(event.values);
+                    break;
+                case Sensor.TYPE_MAGNETIC_FIELD:
+                    headingFusion.onMagneticField(event.values);
+                    break;
+                case Sensor.TYPE_ROTATION_VECTOR:
+                case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR:
+                    headingFusion.onRotationVector(event.values);
+                    break;
+                case Sensor.TYPE_STEP_DETECTOR:
+                    positionPredictor.onStep(nowNanos);
+                    return;
             }
 
-            if (mGravity != null && mGeomagnetic != null) {
-                float R[] = new float[9];
-                float I[] = new float[9];
-
-                if (SensorManager.getRotationMatrix(R, I, mGravity, mGeomagnetic)) {
-
-                    float orientation[] = new float[3];
-                    SensorManager.getOrientation(R, orientation);
-                    azimut = orientation[0];
-                    float newNorth = (float) (-azimut * 360 / (2 * Math.PI));
-                    float northRotation = newNorth + 30;
-                    if (arrowImg != null) {
-                        arrowImg.setRotation(northRotation - getAngleBetween2Points(userLocation,
-                                destinationLocation
-                        ));
-                    }
+            if (headingFusion.update()) {
+                positionPredictor.onHeading((float) Geodesy.rad2deg(headingFusion.getAzimuth()), nowNanos);
+                //told only when it moved half a meter, not on every heading event
+                if (isPredicting && positionPredictor.predict(nowNanos)) {
+                    navigation.setUserLocation(positionPredictor.getLatitude(), positionPredictor.getLongitude());
+                    arrowRenderer.showText(getDistanceText());
+                }
+
+                float newNorth = (float) Geodesy.rad2deg(-headingFusion.getAzimuth());
+                if (adaptiveSampler.onHeading(newNorth, event.timestamp))
+                    isRegisterPending = true;
+                //registering again flushes the sensor batches, at most once in MIN_REGISTER_INTERVAL_NANOS
+                if (isRegisterPending && event.timestamp - registeredNanos >= MIN_REGISTER_INTERVAL_NANOS) {
+                    isRegisterPending = false;
+                    registeredNanos = event.timestamp;
+                    mSensorManager.unregisterListener(this);
+                    registerSensors();
+                }
+                float northRotation = newNorth + 30;
+                float rotation = navigation.getArrowRotation(northRotation);
+                if (headingFilter.filter(rotation, event.timestamp)) {
+                    arrowRenderer.showRotation(headingFilter.getAngle());
                 }
             }
         }
@@ -371,6 +461,13 @@ public class WearRotationArrow {
                 return;
 
             mSensorManager.unregisterListener(this);
+            headingFusion.reset();
+            adaptiveSampler.reset();
+            isRegisterPending = false;
+            registeredNanos = 0;
+            Log.v("ARAUJOJORDAN", "Arrow redraws: " + headingFilter.getPassed() + ", suppressed: "
+                    + headingFilter.getSuppressed());
+            headingFilter.reset();
             isLocalRunning = false;
         }
 
@@ -378,10 +475,42 @@ public class WearRotationArrow {
             if (isLocalRunning)
                 stopUsingGiro();
 
-            mSensorManager.registerListener(this, mSensor, SensorManager.SENSOR_DELAY_UI);
-            mSensorManager.registerListener(this, aSensor, SensorManager.SENSOR_DELAY_UI);
+            registerSensors();
             isLocalRunning = true;
 
         }
+
+        public void setSamplingPolicy(SamplingPolicy policy) {
+            adaptiveSampler.setPolicy(policy);
+        }
+
+        public void setHeadingSmoothing(float timeConstant, float deadband) {
+            headingFilter.setTimeConstant(timeConstant);
+            headingFilter.setDeadband(deadband);
+        }
+
+        public void setTrigonometry(Trigonometry trigonometry) {
+            headingFusion.setTrigonometry(trigonometry);
+        }
+
+        /**
+         * Register the heading sensors with the rate chosen by the adaptive sampler
+         */
+        private void registerSensors() {
+            int samplingPeriodUs = adaptiveSampler.getSamplingPeriodUs();
+            int maxReportLatencyUs = adaptiveSampler.getMaxReportLatencyUs();
+            if (rSensor != null) {
+                registerSensor(rSensor, samplingPeriodUs, maxReportLatencyUs);
+            } else {
+                registerSensor(mSensor, samplingPeriodUs, maxReportLatencyUs);
+                registerSensor(aSensor, samplingPeriodUs, maxReportLatencyUs);
+            }
+            if (stepSensor != null)
+                registerSensor(stepSensor, SensorManager.SENSOR_DELAY_NORMAL, 0);
+        }
+
+        private void registerSensor(Sensor sensor, int samplingPeriodUs, int maxReportLatencyUs) {
+            mSensorManager.registerListener(this, sensor, samplingPeriodUs, maxReportLatencyUs);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.araujo.jordan.wearrow;
+
+import android.content.Intent;
+import android.test.ActivityInstrumentationTestCase2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The watch activity must not leave any thread of its own running once it finishes
+ */
+public class MainActivityTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final String APP_PACKAGE = "com.araujo.jordan.wearrow";
+    private static final long JOIN_MILLIS = 2000;
+
+    public MainActivityTest() {
+        super(MainActivity.class);
+    }
+
+    public void testNoAppThreadAliveAfterStop() throws InterruptedException {
+        Set<Thread> before = Thread.getAllStackTraces().keySet();
+
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.putExtra("location", PositionCodec.toByteArray(new double[]{37.4220, -122.0841}));
+        setActivityIntent(intent);
+        final MainActivity activity = getActivity();
+
+        //onPause stops the arrow, and the stop listener finishes the activity
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getInstrumentation().callActivityOnPause(activity);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        assertTrue(activity.isFinishing());
+
+        List<String> alive = new ArrayList<String>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (before.contains(thread) || !isStartedByTheApp(thread))
+                continue;
+            thread.join(JOIN_MILLIS);
+            if (thread.isAlive())
+                alive.add(thread.getName());
+        }
+        assertTrue("threads still alive after finish: " + alive, alive.isEmpty());
+    }
+
+    /**
+     * @return true if the thread runs code of the app, the platform and library threads don't
+     */
+    private static boolean isStartedByTheApp(Thread thread) {
+        if (thread.getClass().getName().startsWith(APP_PACKAGE + "."))
+            return true;
+        for (StackTraceElement frame : thread.getStackTrace())
+            if (frame.getClassName().startsWith(APP_PACKAGE + "."))
+                return true;
+        return false;
+    }
+}